@@ -0,0 +1,44 @@
+package com.example.regex.benchmark;
+
+import com.example.regex.Regex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation of a long input by patterns anchored to its start or to its end, which fail
+ * after reading most of it: a single attempt from the start, or a reverse match from the
+ * end, instead of an attempt from every position.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AnchoredBenchmark {
+    @Param({"10000"})
+    public int length;
+
+    private Regex fromStart;
+    private Regex toEnd;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.silenceLogging();
+        fromStart = new Regex("^\\w+$");
+        toEnd = new Regex("\\d+\\z");
+        input = "7".repeat(length) + " ";
+    }
+
+    @Benchmark
+    public boolean fromStart() {
+        return fromStart.isMatch(input);
+    }
+
+    @Benchmark
+    public boolean toEnd() {
+        return toEnd.isMatch(input);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.regex.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. Accepts the regular JMH command line and
+ * always attaches the GC profiler, so every run reports allocation rate and
+ * bytes allocated per operation ({@code gc.alloc.rate.norm}).
+ * <p>
+ * Every fork runs with the {@code jdk.incubator.vector} module, so all the engines
+ * measure the vectorized scanner the library picks by default. The flag is prepended,
+ * the {@code jvmArgsAppend} of the benchmarks' {@code @Fork} still apply.
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar MatchBenchmark -p size=1000000
+ * </pre>
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .jvmArgsPrepend("--add-modules", "jdk.incubator.vector")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.regex.benchmark;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public interface Benchmarks {
+    /**
+     * {@code Regex} and {@code FSM} log every compiled pattern, silence them so
+     * the console output doesn't end up in the measurements.
+     */
+    Logger ROOT = Logger.getLogger("com.example.regex");
+
+    static void silenceLogging() {
+        ROOT.setLevel(Level.WARNING);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.regex.benchmark;
+
+import com.example.regex.ByteRegex;
+import com.example.regex.Regex;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UTF-8 input matched after decoding it to a {@link String} and matched in place by a
+ * {@link ByteRegex}. The input mixes a few non-ASCII characters into the generated text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ByteBenchmark {
+    @Param({"SHORT_CLASS", "LONG_CLASS"})
+    public Patterns pattern;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private Regex regex;
+    private ByteRegex byteRegex;
+    private byte[] input;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.silenceLogging();
+        Regex.Options options = new Regex.Options().withCompilationThreshold(compiled ? 0 : -1);
+        regex = new Regex(pattern.pattern(), options);
+        byteRegex = new ByteRegex(pattern.pattern(), options, ByteRegex.Encoding.UTF_8);
+        input = Inputs.generate(size, pattern).replace('q', 'é').getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public boolean decodeThenMatch() {
+        return regex.isMatch(new String(input, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public boolean matchBytes() {
+        return byteRegex.isMatch(input);
+    }
+}
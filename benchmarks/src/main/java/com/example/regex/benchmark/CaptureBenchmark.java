@@ -0,0 +1,40 @@
+package com.example.regex.benchmark;
+
+import com.example.regex.Regex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction of the capture groups of every match of a one-pass pattern, resolved by a
+ * Pike VM while the pattern is cold ({@code -1} never compiles it) or by a single thread
+ * once it is hot ({@code 0} compiles it upfront).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CaptureBenchmark {
+    @Param({"-1", "0"})
+    public long compilationThreshold;
+
+    @Param({"10000"})
+    public int count;
+
+    private Regex regex;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.silenceLogging();
+        regex = new Regex("(\\w+)=([^;]*);", new Regex.Options().withCompilationThreshold(compilationThreshold));
+        input = "key=some value; ".repeat(count);
+    }
+
+    @Benchmark
+    public long groups() {
+        return regex.findAll(input).mapToLong(result -> result.start(1) + result.end(2)).sum();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.regex.benchmark;
+
+import com.example.regex.Regex;
+import com.example.regex.ast.AST;
+import com.example.regex.compiler.CompiledRegex;
+import com.example.regex.compiler.Compiler;
+import com.example.regex.grammar.Grammar;
+import com.example.regex.optimizer.Optimizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompileBenchmark {
+    @Param
+    public Patterns pattern;
+
+    private AST ast;
+    private Regex.Options options;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.silenceLogging();
+        ast = new Optimizer().optimize(Grammar.REGEX.parse(pattern.pattern()).orElseThrow().value());
+        options = new Regex.Options();
+    }
+
+    @Benchmark
+    public CompiledRegex compile() {
+        return new Compiler(ast, options).compile();
+    }
+
+    @Benchmark
+    public Regex parseAndCompile() {
+        return new Regex(pattern.pattern(), options);
+    }
+}
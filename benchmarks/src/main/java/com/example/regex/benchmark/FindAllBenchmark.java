@@ -0,0 +1,49 @@
+package com.example.regex.benchmark;
+
+import com.example.regex.Regex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction of every match of an input made of samples only, reading the offsets of the
+ * matches: from the {@link Regex.Match} list of {@link Regex#matches} or from the lazy
+ * results of {@link Regex#findAll}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FindAllBenchmark {
+    @Param({"SHORT_CLASS", "LONG_CLASS", "SHORT_LITERAL"})
+    public Patterns pattern;
+
+    @Param({"10000"})
+    public int count;
+
+    private Regex regex;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.silenceLogging();
+        regex = new Regex(pattern.pattern());
+        input = (pattern.sample() + " ").repeat(count);
+    }
+
+    @Benchmark
+    public long matches() {
+        long sum = 0;
+        for (Regex.Match match : regex.matches(input)) {
+            sum += match.startIndex();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long findAll() {
+        return regex.findAll(input).mapToLong(result -> result.start()).sum();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.regex.benchmark;
+
+import java.util.Random;
+
+public interface Inputs {
+    String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ.,:-/ ";
+
+    /**
+     * Generates log-like text of exactly {@code size} characters which ends with
+     * the pattern sample. The filler uses only upper case letters and punctuation,
+     * so none of the benchmark patterns can match before the sample.
+     */
+    static String generate(int size, Patterns pattern) {
+        String sample = pattern.sample();
+        StringBuilder sb = new StringBuilder(Math.max(size, sample.length()));
+        Random random = new Random(size);
+
+        while (sb.length() < size - sample.length()) {
+            if (random.nextInt(80) == 0) {
+                sb.append('\n');
+            } else {
+                sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+        }
+        return sb.append(sample).toString();
+    }
+}
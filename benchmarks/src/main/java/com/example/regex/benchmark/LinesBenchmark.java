@@ -0,0 +1,54 @@
+package com.example.regex.benchmark;
+
+import com.example.regex.Regex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short log lines filtered one {@link Regex#isMatch} call at a time and by a pool of
+ * {@code threads} threads reusing their matchers. {@code 0} threads stands for the
+ * available processors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class LinesBenchmark {
+    @Param({"SHORT_CLASS", "LONG_CLASS"})
+    public Patterns pattern;
+
+    @Param({"1", "0"})
+    public int threads;
+
+    private Regex regex;
+    private ForkJoinPool pool;
+    private List<String> lines;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.silenceLogging();
+        regex = new Regex(pattern.pattern());
+        pool = new ForkJoinPool(threads == 0 ? Runtime.getRuntime().availableProcessors() : threads);
+        lines = Inputs.generate(10_000_000, pattern).lines().toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<String> eachLine() {
+        return lines.stream().filter(regex::isMatch).toList();
+    }
+
+    @Benchmark
+    public List<String> filter() {
+        return regex.filter(lines, pool, true);
+    }
+}
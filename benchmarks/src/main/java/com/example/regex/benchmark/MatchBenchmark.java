@@ -0,0 +1,46 @@
+package com.example.regex.benchmark;
+
+import com.example.regex.Regex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a single scan over inputs from 100 B to 100 MB. The match is
+ * always at the very end of the input, see {@link Inputs#generate}. Finding its
+ * bounds and groups also reads it backwards from its end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MatchBenchmark {
+    @Param
+    public Patterns pattern;
+
+    @Param({"100", "10000", "1000000", "100000000"})
+    public int size;
+
+    private Regex regex;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.silenceLogging();
+        regex = new Regex(pattern.pattern());
+        input = Inputs.generate(size, pattern);
+    }
+
+    @Benchmark
+    public boolean isMatch() {
+        return regex.isMatch(input);
+    }
+
+    @Benchmark
+    public Optional<Regex.Match> firstMatch() {
+        return regex.firstMatch(input);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.regex.benchmark;
+
+import com.example.regex.Regex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All the matches of a large input found sequentially and by a pool of {@code threads}
+ * threads. {@code 0} threads stands for the available processors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ParallelBenchmark {
+    @Param({"SHORT_CLASS", "LONG_CLASS"})
+    public Patterns pattern;
+
+    @Param({"100000000"})
+    public int size;
+
+    @Param({"1", "0"})
+    public int threads;
+
+    private Regex regex;
+    private ForkJoinPool pool;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.silenceLogging();
+        regex = new Regex(pattern.pattern());
+        pool = new ForkJoinPool(threads == 0 ? Runtime.getRuntime().availableProcessors() : threads);
+        input = Inputs.generate(size, pattern);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<Regex.Match> sequential() {
+        return regex.matches(input);
+    }
+
+    @Benchmark
+    public List<Regex.Match> parallel() {
+        return regex.matches(input, pool);
+    }
+}
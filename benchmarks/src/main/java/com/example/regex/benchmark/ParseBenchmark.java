@@ -0,0 +1,30 @@
+package com.example.regex.benchmark;
+
+import com.example.regex.ast.AST;
+import com.example.regex.grammar.Grammar;
+import com.example.regex.parser.ParseResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    @Param
+    public Patterns pattern;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.silenceLogging();
+    }
+
+    @Benchmark
+    public Optional<ParseResult<AST>> parse() {
+        return Grammar.REGEX.parse(pattern.pattern());
+    }
+}
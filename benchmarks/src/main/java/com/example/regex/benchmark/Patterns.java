@@ -0,0 +1,34 @@
+package com.example.regex.benchmark;
+
+/**
+ * Patterns shared by all benchmarks, grouped by length and by the kind of
+ * units they are made of.
+ */
+public enum Patterns {
+    SHORT_LITERAL("timeout"),
+    LONG_LITERAL("ERROR connection to upstream service refused after retry"),
+    SHORT_CLASS("[a-z]+\\d"),
+    LONG_CLASS("[A-Za-z_][A-Za-z0-9_]*\\s*=\\s*\\d{1,5}(\\.\\d+)?\\s+[^;]*;");
+
+    private final String pattern;
+
+    Patterns(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public String pattern() {
+        return pattern;
+    }
+
+    /**
+     * A string matched by the pattern, appended at the very end of the
+     * generated input so every benchmark scans the whole input once.
+     */
+    public String sample() {
+        return switch (this) {
+            case SHORT_LITERAL, LONG_LITERAL -> pattern;
+            case SHORT_CLASS -> "abc7";
+            case LONG_CLASS -> "retry_count = 42.5 attempts;";
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.regex.benchmark;
+
+import com.example.regex.Regex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redaction of log lines: every sample in a line of filler is replaced by a constant
+ * template or by its first group, and the line is split around the samples. Lines
+ * without a sample are returned as they are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ReplaceBenchmark {
+    @Param({"SHORT_CLASS", "LONG_CLASS", "SHORT_LITERAL"})
+    public Patterns pattern;
+
+    private Regex regex;
+    private Regex grouped;
+    private String line;
+    private String clean;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.silenceLogging();
+        regex = new Regex(pattern.pattern());
+        grouped = new Regex("(" + pattern.pattern() + ")");
+        line = ("request served " + pattern.sample() + " ").repeat(5);
+        clean = Inputs.generate(200, pattern).replace(pattern.sample(), "");
+    }
+
+    @Benchmark
+    public String replaceAll() {
+        return regex.replaceAll(line, "[REDACTED]");
+    }
+
+    @Benchmark
+    public String replaceWithGroup() {
+        return grouped.replaceAll(line, "<$1>");
+    }
+
+    @Benchmark
+    public String replaceNoMatch() {
+        return regex.replaceAll(clean, "[REDACTED]");
+    }
+
+    @Benchmark
+    public List<String> split() {
+        return regex.split(line);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.regex.benchmark;
+
+import com.example.regex.Matcher;
+import com.example.regex.Regex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short inputs, as in request handlers, matched by a pattern shared between the
+ * benchmark threads: through the matcher {@link Regex} keeps for each thread, a matcher
+ * of the thread reset to the input, or a new matcher for every input.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(Threads.MAX)
+public class ReuseBenchmark {
+    @State(Scope.Benchmark)
+    public static class Shared {
+        @Param({"SHORT_CLASS", "LONG_CLASS", "SHORT_LITERAL"})
+        public Patterns pattern;
+
+        private Regex regex;
+        private String input;
+
+        @Setup
+        public void setUp() {
+            Benchmarks.silenceLogging();
+            regex = new Regex(pattern.pattern());
+            input = Inputs.generate(100, pattern);
+        }
+    }
+
+    private Matcher matcher;
+
+    @Setup
+    public void setUp(Shared shared) {
+        matcher = shared.regex.matcher("");
+    }
+
+    @Benchmark
+    public boolean isMatch(Shared shared) {
+        return shared.regex.isMatch(shared.input);
+    }
+
+    @Benchmark
+    public boolean resetMatcher(Shared shared) {
+        return matcher.reset(shared.input).isMatch();
+    }
+
+    @Benchmark
+    public boolean newMatcher(Shared shared) {
+        return shared.regex.matcher(shared.input).isMatch();
+    }
+}
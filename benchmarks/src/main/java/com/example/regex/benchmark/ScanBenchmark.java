@@ -0,0 +1,99 @@
+package com.example.regex.benchmark;
+
+import com.example.regex.Regex;
+import com.example.regex.simd.CharScanner;
+import com.example.regex.simd.CharScanners;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar and vectorized scans side by side, on the {@link CharScanner} operations and
+ * through the engines using them. The engines pick their scanner once per JVM, the
+ * {@link CharScanners#PROPERTY} property is set before the first pattern is compiled.
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar ScanBenchmark -p size=1000000
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ScanBenchmark {
+    public enum Scanner {SCALAR, VECTOR}
+
+    private static final String LITERAL = "ERROR connection to upstream service refused after retry";
+    private static final String REQUIRED = "[A-Z]{5} connection to upstream service";
+
+    @Param
+    public Scanner scanner;
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private CharScanner charScanner;
+    private String text;
+    private StringBuilder builder;
+    private String spaces;
+    private String quoted;
+    private char[] quote;
+    private char[] notSpace;
+    private Regex literal;
+    private Regex methods;
+    private Regex string;
+
+    @Setup
+    public void setUp() {
+        System.setProperty(CharScanners.PROPERTY, String.valueOf(scanner == Scanner.VECTOR));
+        Benchmarks.silenceLogging();
+        charScanner = scanner == Scanner.VECTOR ? CharScanners.vector().orElseThrow() : CharScanners.scalar();
+
+        text = Inputs.generate(size, Patterns.LONG_LITERAL);
+        builder = new StringBuilder(text);
+        spaces = " ".repeat(size) + "x";
+        quoted = "\"" + text.replace('"', ' ') + "\"";
+        quote = CharScanner.single('"');
+        notSpace = new char[]{0, ' ' - 1, ' ' + 1, Character.MAX_VALUE};
+
+        literal = new Regex(REQUIRED);
+        methods = new Regex("(?:GET|PUT|POST) /[a-z]+");
+        string = new Regex("\"[^\"]*\"", new Regex.Options().withCompilationThreshold(0));
+    }
+
+    @Benchmark
+    public int findCharacter() {
+        return charScanner.indexOfAny(text, 0, text.length(), quote);
+    }
+
+    @Benchmark
+    public int skipRun() {
+        return charScanner.indexOfAny(spaces, 0, spaces.length(), notSpace);
+    }
+
+    @Benchmark
+    public int findCharacterInBuilder() {
+        return charScanner.indexOfAny(builder, 0, builder.length(), quote);
+    }
+
+    @Benchmark
+    public boolean compareLiteral() {
+        return charScanner.regionMatches(builder, builder.length() - LITERAL.length(), LITERAL);
+    }
+
+    @Benchmark
+    public boolean requiredLiteral() {
+        return literal.isMatch(text);
+    }
+
+    @Benchmark
+    public boolean prefixSet() {
+        return methods.isMatch(text);
+    }
+
+    @Benchmark
+    public boolean skipInCompiledState() {
+        return string.isMatch(quoted);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.regex;
+
+import com.example.regex.bytecode.BytecodeCompiler;
+import com.example.regex.compiler.CompiledRegex;
+import com.example.regex.compiler.Compiler;
+import com.example.regex.compiler.Utf8Lowering;
+import com.example.regex.matcher.LazyDFA;
+import com.example.regex.matcher.MatchEndSearch;
+import com.example.regex.matcher.Matching;
+import com.example.regex.matcher.RegularMatcher;
+import com.example.regex.optimizer.Optimizer;
+import com.example.regex.prefilter.Prefilter;
+import com.example.regex.util.ByteSequence;
+import com.example.regex.util.ObjectPool;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A regular pattern matched on bytes in place, without decoding them to a {@link String}.
+ * Match bounds are byte offsets, the matched text and groups are decoded.
+ * <p>
+ * In {@link Encoding#UTF_8} mode the program is lowered to the UTF-8 byte sequences of
+ * the characters it matches ({@link Utf8Lowering}), a character is a code point and
+ * malformed bytes are never matched. Word boundaries only know the ASCII word
+ * characters. In {@link Encoding#BYTES} mode, for binary protocols, every byte is the
+ * character of the same value (ISO-8859-1) and the program runs as it is.
+ * <p>
+ * Only regular patterns (no lazy quantifiers, back references or {@code \G}) can be
+ * matched on bytes. Not thread-safe.
+ */
+public final class ByteRegex {
+    public enum Encoding {
+        UTF_8,
+        BYTES
+    }
+
+    private final CompiledRegex regex;
+    private final Regex.Options options;
+    private final Encoding encoding;
+    private final LazyDFA dfa;
+    /**
+     * The lazy DFA, or the generated class once the pattern is hot. The class is
+     * generated in the common pool, the searches go on with the lazy DFA meanwhile.
+     */
+    private volatile MatchEndSearch search;
+    /**
+     * The lazy DFA of the reversed program, made on the first search needing it
+     */
+    private final ObjectPool<LazyDFA> reverseDFAs;
+    private long searchCount;
+
+    public ByteRegex(String pattern, Regex.Options options, Encoding encoding) {
+        CompiledRegex compiled = new Compiler(new Optimizer().optimize(Regex.parse(pattern)), options).compile();
+        if (!compiled.isRegular()) {
+            throw new IllegalArgumentException("Only regular patterns can be matched on bytes");
+        }
+        // The literal prefilters look for characters, they only hold for the bytes of a Latin-1 input
+        this.regex = encoding == Encoding.BYTES ? compiled : new CompiledRegex(compiled.fsm(),
+                compiled.captureGroups(),
+                compiled.isRegular(),
+                compiled.isFromStartOfString(),
+                compiled.isToEndOfString(),
+                compiled.symbols(),
+                Utf8Lowering.lower(compiled.program()),
+                Prefilter.none(),
+                Optional.empty(),
+                Optional.empty());
+        this.options = options;
+        this.encoding = encoding;
+        this.dfa = new LazyDFA(regex.program());
+        this.reverseDFAs = new ObjectPool<>(() -> LazyDFA.longest(regex.program().reverse()), 1);
+        this.search = dfa;
+        if (options.compilationThreshold() == 0) {
+            compileSearch();
+        }
+    }
+
+    public ByteRegex(String pattern) {
+        this(pattern, new Regex.Options(), Encoding.UTF_8);
+    }
+
+    public Encoding encoding() {
+        return encoding;
+    }
+
+    public boolean isMatch(byte[] bytes) {
+        return isMatch(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Looks for a match between the position and the limit of the buffer, offsets are
+     * relative to its position
+     */
+    public boolean isMatch(ByteBuffer bytes) {
+        return makeMatcher(bytes, true).nextMatch().isPresent();
+    }
+
+    public Optional<Regex.Match> firstMatch(byte[] bytes) {
+        return firstMatch(ByteBuffer.wrap(bytes));
+    }
+
+    public Optional<Regex.Match> firstMatch(ByteBuffer bytes) {
+        return makeMatcher(bytes, false).nextMatch();
+    }
+
+    public List<Regex.Match> matches(byte[] bytes) {
+        return matches(ByteBuffer.wrap(bytes));
+    }
+
+    public List<Regex.Match> matches(ByteBuffer bytes) {
+        var matcher = makeMatcher(bytes, false);
+        List<Regex.Match> matches = new ArrayList<>();
+        for (var match = matcher.nextMatch(); match.isPresent(); match = matcher.nextMatch()) {
+            matches.add(match.get());
+        }
+        return matches;
+    }
+
+    private Matching makeMatcher(ByteBuffer bytes, boolean isMatchOnly) {
+        if (++searchCount == options.compilationThreshold()) {
+            ForkJoinPool.commonPool().execute(this::compileSearch);
+        }
+        if (encoding == Encoding.BYTES) {
+            return new RegularMatcher(new ByteSequence(bytes, bytes.position(), bytes.remaining()),
+                    regex, search, reverseDFAs, null, options, isMatchOnly);
+        }
+
+        CharSequence input = ByteSequence.utf8(bytes, bytes.position(), bytes.remaining());
+        Matching matcher = new RegularMatcher(input, regex, search, reverseDFAs, null, options, isMatchOnly);
+        // Matches can't start with a continuation byte, but the search moves a byte forward
+        // after an empty match, which could then be found in the middle of a character
+        return () -> {
+            var match = matcher.nextMatch();
+            while (match.isPresent() && match.get().startIndex() == match.get().endIndex() &&
+                   match.get().startIndex() < input.length() && isContinuation(input.charAt(match.get().startIndex()))) {
+                match = matcher.nextMatch();
+            }
+            return match;
+        };
+    }
+
+    private void compileSearch() {
+        BytecodeCompiler.compile(regex.program()).ifPresent(compiled -> search = compiled);
+    }
+
+    private static boolean isContinuation(char unit) {
+        return ByteSequence.utf8Unit((byte) 0x80) <= unit && unit <= ByteSequence.utf8Unit((byte) 0xBF);
+    }
+}
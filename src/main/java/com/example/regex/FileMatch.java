@@ -0,0 +1,13 @@
+package com.example.regex;
+
+/**
+ * A match found by {@link Grep}, offsets are in bytes from the beginning of the file.
+ *
+ * @param lineNumber  line where the match starts, from 1
+ * @param lineOffset  offset of the first byte of that line
+ * @param startOffset offset of the first byte of the match
+ * @param endOffset   offset of the byte after the match
+ * @param line        the line holding the match, or every line it spans, without the line terminators
+ */
+public record FileMatch(long lineNumber, long lineOffset, long startOffset, long endOffset, String line) {
+}
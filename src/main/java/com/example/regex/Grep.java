@@ -0,0 +1,358 @@
+package com.example.regex;
+
+import com.example.regex.matcher.Matching;
+import com.example.regex.util.ByteSequence;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Searches a file for the matches of a pattern, line by line like grep or across lines.
+ * <p>
+ * The file is mapped in memory and the lines are found and matched in place: an ASCII
+ * line (or any line of a Latin-1 file) is matched through a view of its bytes, other
+ * lines are decoded into a reused buffer. Strings are only made for the matching lines.
+ * Lines end with {@code "\n"} or {@code "\r\n"}, as for {@link java.nio.file.Files#lines}.
+ * <p>
+ * The whole file is mapped at once into a {@link MemorySegment}, whatever its size. The
+ * engines match a {@link CharSequence}, indexed by an {@code int}: a line, or the file in
+ * {@link Mode#WHOLE_FILE} mode, longer than {@value Integer#MAX_VALUE} bytes fails the
+ * search with an {@link IOException}.
+ * <p>
+ * Thread-safe, every search has its own matchers. {@link #search(Path, ForkJoinPool)}
+ * splits a large file between the threads of a pool: in {@link Mode#LINES} mode a chunk
+ * starts at the first line starting in it.
+ */
+public final class Grep {
+    public enum Mode {
+        /**
+         * Each line is matched on its own, like {@code grep}
+         */
+        LINES,
+        /**
+         * The whole file is matched at once, matches can span lines
+         */
+        WHOLE_FILE
+    }
+
+    private final Regex regex;
+    private final Charset charset;
+    private final Mode mode;
+    private final int maxLineLength;
+    private final int minChunkSize;
+
+    public Grep(Regex regex) {
+        this(regex, StandardCharsets.UTF_8, Mode.LINES);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the charset doesn't encode line terminators
+     *                                  like ASCII does, UTF-16 for instance
+     */
+    public Grep(Regex regex, Charset charset, Mode mode) {
+        this(regex, charset, mode, Integer.MAX_VALUE, ParallelSearch.MIN_CHUNK_SIZE);
+    }
+
+    Grep(Regex regex, Charset charset, Mode mode, int maxLineLength, int minChunkSize) {
+        if (!Arrays.equals("\r\n".getBytes(charset), new byte[]{'\r', '\n'})) {
+            throw new IllegalArgumentException("Unsupported charset " + charset);
+        }
+        this.regex = regex;
+        this.charset = charset;
+        this.mode = mode;
+        this.maxLineLength = maxLineLength;
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Returns every match in the file, in order
+     */
+    public List<FileMatch> search(Path file) throws IOException {
+        List<FileMatch> matches = new ArrayList<>();
+        search(file, matches::add);
+        return matches;
+    }
+
+    /**
+     * Passes every match in the file to the consumer as soon as it's found, in order
+     */
+    public void search(Path file, Consumer<FileMatch> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Arena arena = Arena.ofConfined()) {
+            MemorySegment bytes = map(channel, arena);
+            if (mode == Mode.LINES) {
+                searchLines(bytes, 0, bytes.byteSize(), consumer);
+            } else {
+                searchWholeFile(bytes, null, consumer);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #search(Path)}, splitting a large file in chunks searched by the
+     * threads of the pool. The file must not change during the search.
+     */
+    public List<FileMatch> search(Path file, ForkJoinPool pool) throws IOException {
+        // The threads of the pool read the mapping
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Arena arena = Arena.ofShared()) {
+            MemorySegment bytes = map(channel, arena);
+            List<FileMatch> matches = new ArrayList<>();
+            long size = bytes.byteSize();
+            int chunkCount = ParallelSearch.chunkCount(pool, size, minChunkSize);
+            if (mode == Mode.WHOLE_FILE) {
+                searchWholeFile(bytes, pool, matches::add);
+            } else if (chunkCount < 2) {
+                searchLines(bytes, 0, size, matches::add);
+            } else {
+                List<ForkJoinTask<Lines>> tasks = new ArrayList<>(chunkCount);
+                for (int chunk = 0; chunk < chunkCount; chunk++) {
+                    long from = size * chunk / chunkCount;
+                    long to = size * (chunk + 1) / chunkCount;
+                    tasks.add(pool.submit(() -> {
+                        List<FileMatch> found = new ArrayList<>();
+                        long lineCount = searchLines(bytes, lineStart(bytes, from), to, found::add);
+                        return new Lines(lineCount, found);
+                    }));
+                }
+
+                try {
+                    // Chunks number their lines from 1, shifted by the lines of the chunks before
+                    long lineCount = 0;
+                    for (ForkJoinTask<Lines> task : tasks) {
+                        Lines lines = join(task);
+                        for (FileMatch match : lines.matches()) {
+                            matches.add(new FileMatch(lineCount + match.lineNumber(), match.lineOffset(),
+                                    match.startOffset(), match.endOffset(), match.line()));
+                        }
+                        lineCount += lines.count();
+                    }
+                } finally {
+                    // The mapping must outlive the chunks still searched after one failed
+                    tasks.forEach(ForkJoinTask::quietlyJoin);
+                }
+            }
+            return matches;
+        }
+    }
+
+    private static MemorySegment map(FileChannel channel, Arena arena) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+    }
+
+    /**
+     * Searches the lines starting from {@code from}, a line start, up to {@code to} and
+     * returns how many there are
+     */
+    private long searchLines(MemorySegment bytes, long from, long to, Consumer<FileMatch> consumer)
+            throws IOException {
+        Decoder decoder = new Decoder();
+        Matcher matcher = regex.matcher("");
+        ByteSequence view = new ByteSequence(bytes, 0, 0);
+        long size = bytes.byteSize();
+        long lineNumber = 0;
+
+        long lineStart = from;
+        while (lineStart < to) {
+            long lineEnd = lineStart;
+            boolean isAscii = true;
+            for (byte b; lineEnd < size && (b = bytes.get(ValueLayout.JAVA_BYTE, lineEnd)) != '\n'; lineEnd++) {
+                isAscii &= b >= 0;
+            }
+            long contentEnd = lineEnd > lineStart && bytes.get(ValueLayout.JAVA_BYTE, lineEnd - 1) == '\r'
+                    ? lineEnd - 1
+                    : lineEnd;
+            if (contentEnd - lineStart > maxLineLength) {
+                throw new IOException("Line at byte " + lineStart + " is longer than " + maxLineLength + " bytes");
+            }
+
+            lineNumber++;
+            int length = (int) (contentEnd - lineStart);
+            CharSequence line = isView(isAscii)
+                    ? view.reset(lineStart, length)
+                    : decoder.decode(bytes.asSlice(lineStart, length).asByteBuffer());
+            if (matcher.reset(line).isMatch()) {
+                String text = line.toString();
+                ByteOffsets offsets = new ByteOffsets(text, lineStart, isView(isAscii));
+                matcher.reset(text);
+                for (var match = matcher.find(); match.isPresent(); match = matcher.find()) {
+                    consumer.accept(new FileMatch(lineNumber, lineStart,
+                            offsets.of(match.get().startIndex()), offsets.of(match.get().endIndex()), text));
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return lineNumber;
+    }
+
+    /**
+     * Returns the start of the first line starting at or after the offset
+     */
+    private static long lineStart(MemorySegment bytes, long offset) {
+        if (offset == 0) return 0;
+        long size = bytes.byteSize();
+        for (long position = offset - 1; position < size; position++) {
+            if (bytes.get(ValueLayout.JAVA_BYTE, position) == '\n') return position + 1;
+        }
+        return size;
+    }
+
+    /**
+     * Searches the whole file at once, with the threads of the pool unless it's null
+     */
+    private void searchWholeFile(MemorySegment bytes, ForkJoinPool pool, Consumer<FileMatch> consumer)
+            throws IOException {
+        long size = bytes.byteSize();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("The file has " + size + " bytes, over the " + Integer.MAX_VALUE +
+                                  " characters of a CharSequence, it can only be searched line by line");
+        }
+        boolean isAscii = true;
+        for (long i = 0; i < size && isAscii; i++) {
+            isAscii = bytes.get(ValueLayout.JAVA_BYTE, i) >= 0;
+        }
+        CharSequence text = isView(isAscii)
+                ? new ByteSequence(bytes, 0, (int) size)
+                : new Decoder().decode(bytes.asByteBuffer());
+
+        // Both only move forward: a match can start on the line the previous one ended on
+        ByteOffsets offsets = new ByteOffsets(text, 0, isView(isAscii));
+        ByteOffsets lineOffsets = new ByteOffsets(text, 0, isView(isAscii));
+        long lineNumber = 1;
+        int lineStart = 0;
+        int scanned = 0;
+        Matching matcher;
+        if (pool == null) {
+            matcher = regex.matcher(text)::find;
+        } else {
+            Iterator<Regex.Match> found = regex.matches(text, pool, minChunkSize).iterator();
+            matcher = () -> found.hasNext() ? Optional.of(found.next()) : Optional.empty();
+        }
+        for (var match = matcher.nextMatch(); match.isPresent(); match = matcher.nextMatch()) {
+            int start = match.get().startIndex();
+            int end = match.get().endIndex();
+            for (; scanned < start; scanned++) {
+                if (text.charAt(scanned) == '\n') {
+                    lineNumber++;
+                    lineStart = scanned + 1;
+                }
+            }
+
+            int lineEnd = Math.max(start, end - 1);
+            while (lineEnd < text.length() && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            String lines = text.subSequence(lineStart, Math.max(lineStart, lineEnd)).toString();
+            consumer.accept(new FileMatch(lineNumber, lineOffsets.of(lineStart), offsets.of(start), offsets.of(end), lines));
+        }
+    }
+
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while searching");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) throw cause;
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns whether text can be matched through a view of its bytes
+     */
+    private boolean isView(boolean isAscii) {
+        return charset.equals(StandardCharsets.ISO_8859_1) ||
+               isAscii && (charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Matches found in a chunk of the file, numbered from its first line, and the number
+     * of lines in it
+     */
+    private record Lines(long count, List<FileMatch> matches) {
+    }
+
+    /**
+     * Decodes into a buffer reused from one line to the next, malformed input is replaced
+     */
+    private final class Decoder {
+        private final CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private CharBuffer buffer = CharBuffer.allocate(256);
+
+        CharBuffer decode(ByteBuffer bytes) {
+            int capacity = (int) Math.ceil(decoder.maxCharsPerByte() * bytes.remaining());
+            if (buffer.capacity() < capacity) {
+                buffer = CharBuffer.allocate(capacity);
+            }
+            buffer.clear();
+            decoder.reset();
+            // Sized for the worst case and replacing malformed input, this can't fail
+            decoder.decode(bytes, buffer, true);
+            decoder.flush(buffer);
+            return buffer.flip();
+        }
+    }
+
+    /**
+     * Byte offsets of the characters of a text, queried in increasing order
+     */
+    private final class ByteOffsets {
+        private final CharSequence text;
+        private final boolean isOneBytePerCharacter;
+        private int index;
+        private long offset;
+
+        ByteOffsets(CharSequence text, long offset, boolean isOneBytePerCharacter) {
+            this.text = text;
+            this.offset = offset;
+            this.isOneBytePerCharacter = isOneBytePerCharacter;
+        }
+
+        long of(int target) {
+            if (isOneBytePerCharacter) return offset + target;
+            if (charset.equals(StandardCharsets.UTF_8)) {
+                for (; index < target; index++) {
+                    char character = text.charAt(index);
+                    offset += character < 0x80 ? 1
+                            : character < 0x800 ? 2
+                            : Character.isHighSurrogate(character) ? 4
+                            : Character.isLowSurrogate(character) ? 0
+                            : 3;
+                }
+            } else if (index < target) {
+                offset += charset.encode(CharBuffer.wrap(text, index, target)).remaining();
+                index = target;
+            }
+            return offset;
+        }
+    }
+}
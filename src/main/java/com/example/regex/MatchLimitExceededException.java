@@ -0,0 +1,43 @@
+package com.example.regex;
+
+/**
+ * Thrown when a single search runs more steps than allowed by
+ * {@link Regex.Options#withStepLimit(long)} or outlives {@link Regex.Options#withTimeout},
+ * when a {@link StreamMatcher} would need to buffer more characters than allowed, or when
+ * the backtracking matcher would need more than {@link Regex.Options#withBacktrackingMemory(long)}.
+ */
+public class MatchLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public enum Limit {
+        STEPS,
+        DEADLINE,
+        BUFFER,
+        MEMORY
+    }
+
+    private final Limit limit;
+    private final long steps;
+
+    public MatchLimitExceededException(Limit limit, long steps) {
+        super(switch (limit) {
+            case STEPS -> "Step limit exceeded";
+            case DEADLINE -> "Deadline exceeded";
+            case BUFFER -> "Buffer limit exceeded";
+            case MEMORY -> "Backtracking memory exceeded";
+        } + " after " + steps + " steps");
+        this.limit = limit;
+        this.steps = steps;
+    }
+
+    public Limit limit() {
+        return limit;
+    }
+
+    /**
+     * Returns the number of steps run by the search before it was stopped
+     */
+    public long steps() {
+        return steps;
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.regex;
+
+import com.example.regex.matcher.LazyDFA;
+import com.example.regex.matcher.MatchBudget;
+import com.example.regex.matcher.MatchEndSearch;
+import com.example.regex.matcher.Matching;
+import com.example.regex.matcher.ResettableMatching;
+
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.regex.MatchResult;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Finds the matches of a {@link Regex} in an input, then in another one after a
+ * {@link #reset}. A matcher keeps what it allocated from one input to the next: the
+ * thread lists, capture arrays and cursor of its matchers. The states of the lazy DFA
+ * are cached by the pattern and lent to a search at a time, a new matcher starts warm.
+ * Once the pattern is compiled to a class, the matchers switch to it.
+ * <p>
+ * Not thread-safe, each thread needs its own matchers of the shared pattern.
+ */
+public final class Matcher {
+    private final Regex regex;
+    private final Search search = new Search();
+    private CharSequence input;
+    private ResettableMatching matcher;
+    private ResettableMatching matchOnlyMatcher;
+    /**
+     * Offsets of the last match found by {@link #findOffsets}
+     */
+    private final int[] offsets;
+    /**
+     * Whether {@link #find} started looking for the matches of the input
+     */
+    private boolean isFinding;
+
+    Matcher(Regex regex, CharSequence input) {
+        this.regex = regex;
+        this.input = input;
+        this.offsets = new int[2 * (regex.groupCount() + 1)];
+    }
+
+    public Regex regex() {
+        return regex;
+    }
+
+    public CharSequence input() {
+        return input;
+    }
+
+    /**
+     * Makes the matcher search another input from its start
+     */
+    public Matcher reset(CharSequence input) {
+        this.input = input;
+        this.isFinding = false;
+        return this;
+    }
+
+    /**
+     * Resets the matcher and its matchers to an empty input, so that a pooled matcher
+     * doesn't keep the last one alive
+     */
+    void clear() {
+        reset("");
+        if (matcher != null) {
+            matcher.reset("");
+        }
+        if (matchOnlyMatcher != null) {
+            matchOnlyMatcher.reset("");
+        }
+    }
+
+    /**
+     * Returns whether the input has a match, whatever {@link #find} already found
+     */
+    public boolean isMatch() {
+        regex.countSearch();
+        if (matchOnlyMatcher == null) {
+            matchOnlyMatcher = regex.newMatcher(input, search, true);
+        } else {
+            matchOnlyMatcher.reset(input);
+        }
+        return matchOnlyMatcher.find();
+    }
+
+    /**
+     * Returns the next match in the input from left to right, nothing once all were found
+     */
+    public Optional<Regex.Match> find() {
+        return finding().nextMatch();
+    }
+
+    /**
+     * Returns the matches {@link #find} didn't find yet, from left to right. A result
+     * only holds the offsets of the match and of its groups, their strings are made when
+     * asked for: the input must not change while the results are in use. The stream
+     * advances this matcher, which must not be reset until it is consumed.
+     */
+    public Stream<MatchResult> results() {
+        return StreamSupport.stream(new Results(), false);
+    }
+
+    /**
+     * Moves to the next match without making a {@link Regex.Match} of it, returns false
+     * once all were found. The offsets of the match and of its groups are then in
+     * {@link #offsets()}.
+     */
+    boolean findOffsets() {
+        ResettableMatching matcher = finding();
+        if (!matcher.find()) return false;
+        matcher.offsets(offsets);
+        return true;
+    }
+
+    /**
+     * Returns the start and end of the last match found by {@link #findOffsets} then of
+     * its groups, overwritten by the next one
+     */
+    int[] offsets() {
+        return offsets;
+    }
+
+    private ResettableMatching finding() {
+        if (!isFinding) {
+            regex.countSearch();
+            if (matcher == null) {
+                matcher = regex.newMatcher(input, search, false);
+            } else {
+                matcher.reset(input);
+            }
+            isFinding = true;
+        }
+        return matcher;
+    }
+
+    /**
+     * Returns a matcher of the matches of a regular pattern in the input starting from
+     * {@code from} up to {@code to} included, which shares the states of this one
+     */
+    Matching inRegion(int from, int to) {
+        regex.countSearch();
+        return regex.newMatcher(input, from, to, search);
+    }
+
+    private final class Results extends Spliterators.AbstractSpliterator<MatchResult> {
+        Results() {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super MatchResult> action) {
+            if (!findOffsets()) return false;
+            action.accept(new OffsetMatch(input, offsets.clone()));
+            return true;
+        }
+    }
+
+    /**
+     * The class generated for the pattern once there is one, otherwise a lazy DFA of the
+     * pattern borrowed for the duration of each search
+     */
+    private final class Search implements MatchEndSearch {
+        @Override
+        public int earliestMatchEnd(CharSequence input, int from, MatchBudget budget) {
+            MatchEndSearch compiled = regex.compiledSearch();
+            if (compiled != null) return compiled.earliestMatchEnd(input, from, budget);
+            LazyDFA dfa = regex.lazyDFAs().acquire();
+            try {
+                return dfa.earliestMatchEnd(input, from, budget);
+            } finally {
+                regex.lazyDFAs().release(dfa);
+            }
+        }
+
+        @Override
+        public int earliestMatchEnd(CharSequence input, int from, int to, MatchBudget budget) {
+            MatchEndSearch compiled = regex.compiledSearch();
+            if (compiled != null) return compiled.earliestMatchEnd(input, from, to, budget);
+            LazyDFA dfa = regex.lazyDFAs().acquire();
+            try {
+                return dfa.earliestMatchEnd(input, from, to, budget);
+            } finally {
+                regex.lazyDFAs().release(dfa);
+            }
+        }
+
+        @Override
+        public int anchoredMatchEnd(CharSequence input, int from, MatchBudget budget) {
+            MatchEndSearch compiled = regex.compiledSearch();
+            if (compiled != null) return compiled.anchoredMatchEnd(input, from, budget);
+            LazyDFA dfa = regex.lazyDFAs().acquire();
+            try {
+                return dfa.anchoredMatchEnd(input, from, budget);
+            } finally {
+                regex.lazyDFAs().release(dfa);
+            }
+        }
+
+        @Override
+        public int leftmostMatchEnd(CharSequence input, int from, MatchBudget budget) {
+            MatchEndSearch compiled = regex.compiledSearch();
+            if (compiled != null) return compiled.leftmostMatchEnd(input, from, budget);
+            LazyDFA dfa = regex.lazyDFAs().acquire();
+            try {
+                return dfa.leftmostMatchEnd(input, from, budget);
+            } finally {
+                regex.lazyDFAs().release(dfa);
+            }
+        }
+
+        @Override
+        public int leftmostMatchEnd(CharSequence input, int from, int to, MatchBudget budget) {
+            MatchEndSearch compiled = regex.compiledSearch();
+            if (compiled != null) return compiled.leftmostMatchEnd(input, from, to, budget);
+            LazyDFA dfa = regex.lazyDFAs().acquire();
+            try {
+                return dfa.leftmostMatchEnd(input, from, to, budget);
+            } finally {
+                regex.lazyDFAs().release(dfa);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.regex;
+
+import java.util.Map;
+import java.util.regex.MatchResult;
+
+/**
+ * A match of {@link Matcher#results()} holding only its offsets in the input, the
+ * strings of the match and of its groups are made when asked for. The input must not
+ * change while the match is in use.
+ */
+final class OffsetMatch implements MatchResult {
+    private final CharSequence input;
+    /**
+     * Start and end of the match then of each capture group, {@code -1} for the groups
+     * which didn't participate
+     */
+    private final int[] offsets;
+
+    OffsetMatch(CharSequence input, int[] offsets) {
+        this.input = input;
+        this.offsets = offsets;
+    }
+
+    @Override
+    public int start() {
+        return offsets[0];
+    }
+
+    @Override
+    public int start(int group) {
+        return offsets[2 * checkGroup(group)];
+    }
+
+    @Override
+    public int end() {
+        return offsets[1];
+    }
+
+    @Override
+    public int end(int group) {
+        return offsets[2 * checkGroup(group) + 1];
+    }
+
+    @Override
+    public String group() {
+        return group(0);
+    }
+
+    @Override
+    public String group(int group) {
+        int start = start(group);
+        return start < 0 ? null : input.subSequence(start, end(group)).toString();
+    }
+
+    @Override
+    public int groupCount() {
+        return offsets.length / 2 - 1;
+    }
+
+    /**
+     * Patterns have no named groups
+     */
+    @Override
+    public Map<String, Integer> namedGroups() {
+        return Map.of();
+    }
+
+    @Override
+    public boolean hasMatch() {
+        return true;
+    }
+
+    private int checkGroup(int group) {
+        if (group < 0 || group > groupCount()) {
+            throw new IndexOutOfBoundsException("No group " + group);
+        }
+        return group;
+    }
+}
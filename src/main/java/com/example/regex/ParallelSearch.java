@@ -0,0 +1,110 @@
+package com.example.regex;
+
+import com.example.regex.matcher.Matching;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Finds the matches of a regular pattern in a large input with the threads of a pool,
+ * the same matches as a sequential search.
+ * <p>
+ * The input is split in chunks searched concurrently, each from its start with its own
+ * matcher, for the matches starting in the chunk. The match starting at
+ * a position doesn't depend on the matches before it, so the matches of a chunk are the
+ * sequential ones unless a match of the chunks before runs into it. The chunk is then
+ * searched again from the end of that match, until a match starts where the chunk's own
+ * search found one: from there both searches agree.
+ */
+final class ParallelSearch {
+    /**
+     * Fewer characters aren't worth a task
+     */
+    static final int MIN_CHUNK_SIZE = 1 << 20;
+    /**
+     * More chunks than threads, so a thread slowed down by a chunk full of matches doesn't
+     * hold the others back
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Regex regex;
+    private final CharSequence input;
+    private final int chunkCount;
+
+    ParallelSearch(Regex regex, CharSequence input, int chunkCount) {
+        this.regex = regex;
+        this.input = input;
+        this.chunkCount = chunkCount;
+    }
+
+    /**
+     * Returns how many chunks of at least {@code minChunkSize} to split an input of the
+     * length in for the pool
+     */
+    static int chunkCount(ForkJoinPool pool, long length, int minChunkSize) {
+        return (int) Math.min((long) pool.getParallelism() * CHUNKS_PER_THREAD, length / minChunkSize);
+    }
+
+    List<Regex.Match> matches(ForkJoinPool pool) {
+        List<ForkJoinTask<List<Regex.Match>>> tasks = new ArrayList<>(chunkCount);
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int start = chunkStart(chunk);
+            int end = chunkStart(chunk + 1);
+            tasks.add(pool.submit(() -> search(regex.matcher(input).inRegion(start, end - 1))));
+        }
+
+        List<Regex.Match> matches = new ArrayList<>();
+        int next = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            List<Regex.Match> found = tasks.get(chunk).join();
+            if (next <= chunkStart(chunk)) {
+                matches.addAll(found);
+            } else {
+                stitch(found, next, chunkStart(chunk + 1), matches);
+            }
+            if (!matches.isEmpty()) {
+                Regex.Match last = matches.getLast();
+                next = last.startIndex() == last.endIndex() ? last.endIndex() + 1 : last.endIndex();
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the first character of a chunk, the length of the input plus one past the
+     * last chunk so an empty match at the end belongs to it
+     */
+    private int chunkStart(int chunk) {
+        return chunk == chunkCount ? input.length() + 1 : (int) ((long) input.length() * chunk / chunkCount);
+    }
+
+    private static List<Regex.Match> search(Matching matcher) {
+        List<Regex.Match> matches = new ArrayList<>();
+        for (var match = matcher.nextMatch(); match.isPresent(); match = matcher.nextMatch()) {
+            matches.add(match.get());
+        }
+        return matches;
+    }
+
+    /**
+     * Adds the matches of a chunk found by a search from {@code from}, the end of a match
+     * of the chunks before, given the matches found from the start of the chunk
+     */
+    private void stitch(List<Regex.Match> found, int from, int end, List<Regex.Match> matches) {
+        Matching matcher = regex.matcher(input).inRegion(from, end - 1);
+        int i = 0;
+        for (var match = matcher.nextMatch(); match.isPresent(); match = matcher.nextMatch()) {
+            int start = match.get().startIndex();
+            while (i < found.size() && found.get(i).startIndex() < start) {
+                i++;
+            }
+            if (i < found.size() && found.get(i).startIndex() == start) {
+                matches.addAll(found.subList(i, found.size()));
+                return;
+            }
+            matches.add(match.get());
+        }
+    }
+}
@@ -1,36 +1,129 @@
 package com.example.regex;
 
 import com.example.regex.ast.AST;
+import com.example.regex.bytecode.BytecodeCompiler;
 import com.example.regex.compiler.CompiledRegex;
 import com.example.regex.compiler.CompiledState;
 import com.example.regex.compiler.Compiler;
+import com.example.regex.compiler.Program;
 import com.example.regex.fsm.Cursor;
 import com.example.regex.grammar.Grammar;
+import com.example.regex.matcher.AhoCorasick;
+import com.example.regex.matcher.AhoCorasickMatcher;
 import com.example.regex.matcher.BacktrackingMatcher;
+import com.example.regex.matcher.LazyDFA;
+import com.example.regex.matcher.MatchAccess;
+import com.example.regex.matcher.MatchEndSearch;
 import com.example.regex.matcher.Matching;
+import com.example.regex.matcher.OnePass;
 import com.example.regex.matcher.RegularMatcher;
+import com.example.regex.matcher.ResettableMatching;
 import com.example.regex.optimizer.Optimizer;
 import com.example.regex.parser.ParseException;
 import com.example.regex.parser.ParseResult;
 import com.example.regex.parser.Parser;
+import com.example.regex.util.ObjectPool;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.logging.Logger;
+import java.util.regex.MatchResult;
+import java.util.stream.Stream;
 
+/**
+ * A compiled pattern. Immutable and thread-safe: the state of a search lives in a
+ * {@link Matcher}, {@link #isMatch}, {@link #firstMatch} and {@link #matches} borrow a
+ * matcher from a pool of the pattern for the duration of the call.
+ */
 public class Regex {
     private static final Logger LOGGER = Logger.getLogger(Regex.class.getName());
     public static final boolean DEBUG_ENABLED = true;
     private final CompiledRegex regex;
     private final Options options;
+    /**
+     * Capture groups of the pattern as written, the compiler drops the ones which never match
+     */
+    private final int groupCount;
+    private final AhoCorasick ahoCorasick;
+    /**
+     * Engine resolving the capture groups of a one-pass regular pattern, shared by the
+     * matchers, {@code null} if the pattern isn't one
+     */
+    private final OnePass onePass;
+    /**
+     * Matchers of the calls searching a single string, emptied of it once done. Pooled
+     * rather than kept by the threads, which would keep the pattern and the last string
+     * alive for as long as they live.
+     */
+    private final ObjectPool<Matcher> matchers;
+    /**
+     * States of the regular pattern cached for the searches until it is compiled, lent
+     * to one search at a time
+     */
+    private final ObjectPool<LazyDFA> lazyDFAs;
+    /**
+     * States of the reversed regular pattern finding where the matches start
+     */
+    private final ObjectPool<LazyDFA> reverseDFAs;
+    /**
+     * Searches of a regular pattern until it is compiled
+     */
+    private final AtomicLong searchCount = new AtomicLong();
+    /**
+     * Class generated for the pattern once hot, shared by the matchers
+     */
+    private volatile MatchEndSearch compiledSearch;
+    /**
+     * Template of the last replacement, parsed once for the calls reusing it
+     */
+    private volatile Replacement replacement;
 
     public static class Options {
+        /**
+         * Default size of the bitmap remembering the (state, position) pairs already
+         * explored by the backtracking matcher, see {@link #withBacktrackingMemory(long)}
+         */
+        public static final long DEFAULT_BACKTRACKING_MEMORY = 256 * 1024;
+        /**
+         * Default number of searches after which a regular pattern is compiled to
+         * bytecode, see {@link #withCompilationThreshold(long)}
+         */
+        public static final long DEFAULT_COMPILATION_THRESHOLD = 10_000;
+
         private final HashSet<Option> optionSet;
+        private final long backtrackingMemory;
+        private final long stepLimit;
+        private final Duration timeout;
+        private final long compilationThreshold;
+
+        public Options(Option... options) {
+            this(new HashSet<>(List.of(options)), DEFAULT_BACKTRACKING_MEMORY, Long.MAX_VALUE, Duration.ZERO,
+                    DEFAULT_COMPILATION_THRESHOLD);
+        }
 
-        public Options() {
-            optionSet = new HashSet<>();
+        private Options(HashSet<Option> optionSet, long backtrackingMemory, long stepLimit, Duration timeout,
+                        long compilationThreshold) {
+            this.optionSet = optionSet;
+            this.backtrackingMemory = backtrackingMemory;
+            this.stepLimit = stepLimit;
+            this.timeout = timeout;
+            this.compilationThreshold = compilationThreshold;
         }
 
         public enum Option {
@@ -42,46 +135,488 @@ public class Regex {
         public boolean contains(Option option) {
             return optionSet.contains(option);
         }
+
+        /**
+         * Returns options where the backtracking matcher may use up to {@code bytes} to
+         * remember the (state, position) pairs it already explored. With the bitmap a
+         * pattern without back references is matched in {@code O(states * length)}, the
+         * searches needing a larger bitmap run on the Pike VM, as linear but slower.
+         * {@code 0} disables it.
+         * <p>
+         * Its stack of choice points may grow as large. A search needing more also runs
+         * on the Pike VM, or with back references fails with a
+         * {@link MatchLimitExceededException}.
+         */
+        public Options withBacktrackingMemory(long bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("Backtracking memory must not be negative");
+            }
+            return new Options(optionSet, bytes, stepLimit, timeout, compilationThreshold);
+        }
+
+        public long backtrackingMemory() {
+            return backtrackingMemory;
+        }
+
+        /**
+         * Returns options where looking for the next match gives up with a
+         * {@link MatchLimitExceededException} after {@code steps} steps, which bounds the
+         * work done on hostile inputs. A step is a character read by the DFA, a thread
+         * stepped by the Pike VM or a state tried by the backtracking matcher.
+         */
+        public Options withStepLimit(long steps) {
+            if (steps <= 0) {
+                throw new IllegalArgumentException("Step limit must be positive");
+            }
+            return new Options(optionSet, backtrackingMemory, steps, timeout, compilationThreshold);
+        }
+
+        public long stepLimit() {
+            return stepLimit;
+        }
+
+        /**
+         * Returns options where looking for the next match gives up with a
+         * {@link MatchLimitExceededException} once it ran for longer than {@code timeout}.
+         * The clock is only read every few thousand steps. {@link Duration#ZERO} disables it.
+         */
+        public Options withTimeout(Duration timeout) {
+            if (timeout.isNegative()) {
+                throw new IllegalArgumentException("Timeout must not be negative");
+            }
+            return new Options(optionSet, backtrackingMemory, stepLimit, timeout, compilationThreshold);
+        }
+
+        public Duration timeout() {
+            return timeout;
+        }
+
+        /**
+         * Returns options where a regular pattern is compiled to a JVM class after
+         * {@code searches} searches, trading a few milliseconds of code generation for
+         * faster scans. The code is generated in the background, the searches don't wait
+         * for it. {@code 0} compiles it upfront, a negative value never does. The
+         * generated code only checks the step limit and the timeout once a scan is over.
+         */
+        public Options withCompilationThreshold(long searches) {
+            return new Options(optionSet, backtrackingMemory, stepLimit, timeout, searches);
+        }
+
+        public long compilationThreshold() {
+            return compilationThreshold;
+        }
     }
 
+    // The pool only makes matchers once they are asked for, after the constructor
+    @SuppressWarnings("this-escape")
     public Regex(String pattern, Options options) {
         AST ast = parse(pattern);
-        AST optimizedAst = new Optimizer().optimize(ast);
-        this.regex = new Compiler(optimizedAst, options).compile();
+        this.regex = compile(ast, options);
         this.options = options;
+        this.groupCount = ast.captureGroupCount();
+        this.ahoCorasick = regex.literalAlternatives().map(AhoCorasick::new).orElse(null);
+        // Whether the search is compiled or not, the matches of a regular pattern are found by a
+        // single thread if it is one-pass
+        this.onePass = regex.isRegular() && !regex.captureGroups().isEmpty()
+                ? OnePass.of(regex.program()).orElse(null)
+                : null;
+        if (isCompilable() && options.compilationThreshold() == 0) {
+            compileSearch();
+        }
 
-        LOGGER.info(() -> "AST: \n" + ast.description());
-        LOGGER.info(() -> "AST (Optimized): \n" + optimizedAst.description());
-        LOGGER.info(() -> "Expression: \n" + regex.symbols().description(new CompiledState(0)));
+        Program program = regex.program();
+        this.lazyDFAs = new ObjectPool<>(() -> new LazyDFA(program));
+        this.reverseDFAs = new ObjectPool<>(() -> LazyDFA.longest(program.reverse()));
+        this.matchers = new ObjectPool<>(() -> new Matcher(this, ""));
     }
 
     public Regex(String pattern) {
         this(pattern, new Options());
     }
 
+    private static CompiledRegex compile(AST ast, Options options) {
+        AST optimizedAst = new Optimizer().optimize(ast);
+        CompiledRegex regex = new Compiler(optimizedAst, options).compile();
+
+        LOGGER.info(() -> "AST: \n" + ast.description());
+        LOGGER.info(() -> "AST (Optimized): \n" + optimizedAst.description());
+        LOGGER.info(() -> "Expression: \n" + regex.symbols().description(new CompiledState(0)));
+        return regex;
+    }
+
     static AST parse(String pattern) {
         Parser<AST> parser = Grammar.REGEX;
         Optional<ParseResult<AST>> parse = parser.parse(pattern);
         return  parse.orElseThrow(() -> new ParseException("Unexpected Error")).value();
     }
 
-    boolean isMatch(String string) {
-        var matcher = makeMatcher(string, true);
-        return matcher.nextMatch().isPresent();
+    /**
+     * Returns a new matcher of the string, to be reset to the next strings searched by
+     * the thread
+     */
+    public Matcher matcher(CharSequence string) {
+        return new Matcher(this, string);
+    }
+
+    public boolean isMatch(CharSequence string) {
+        return withMatcher(string, Matcher::isMatch);
+    }
+
+    /**
+     * Returns the leftmost match in the string
+     */
+    public Optional<Match> firstMatch(CharSequence string) {
+        return withMatcher(string, Matcher::find);
+    }
+
+    /**
+     * Returns all non-overlapping matches in the string, from left to right
+     */
+    public List<Match> matches(CharSequence string) {
+        return withMatcher(string, matcher -> {
+            List<Match> matches = new ArrayList<>();
+            for (var match = matcher.find(); match.isPresent(); match = matcher.find()) {
+                matches.add(match.get());
+            }
+            return matches;
+        });
+    }
+
+    /**
+     * Returns the matches in the string from left to right, found as the stream is
+     * consumed. Unlike {@link #matches(CharSequence)} a result only holds offsets, the
+     * strings of the match and of its groups are made when asked for.
+     *
+     * @see Matcher#results()
+     */
+    public Stream<MatchResult> findAll(CharSequence string) {
+        return matcher(string).results();
+    }
+
+    /**
+     * Returns the string with every match replaced by the template, where {@code $n} is
+     * the text of group {@code n} and {@code \} makes the next character literal. The
+     * string itself is returned when nothing matches.
+     *
+     * @throws IllegalArgumentException  if a {@code $} isn't followed by a group number
+     * @throws IndexOutOfBoundsException if the template refers to a group the pattern doesn't have
+     */
+    public String replaceAll(CharSequence string, String replacement) {
+        return replace(string, replacement, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #replaceAll(CharSequence, String)} for the leftmost match only
+     */
+    public String replaceFirst(CharSequence string, String replacement) {
+        return replace(string, replacement, 1);
+    }
+
+    /**
+     * Same as {@link #replaceAll(CharSequence, String)}, appending the string with the
+     * matches replaced to the sink
+     */
+    public void replaceAll(CharSequence string, String replacement, Appendable sink) throws IOException {
+        Replacement template = replacement(replacement);
+        Matcher matcher = matchers.acquire().reset(string);
+        try {
+            if (matcher.findOffsets()) {
+                appendReplaced(matcher, template, Integer.MAX_VALUE, sink);
+            } else {
+                sink.append(string);
+            }
+        } finally {
+            release(matcher);
+        }
+    }
+
+    /**
+     * Returns the string with every match replaced by what the function returns for it,
+     * appended as is. The string itself is returned when nothing matches.
+     */
+    public String replaceAll(CharSequence string, Function<MatchResult, String> replacer) {
+        // The function may call back into this pattern, which then borrows another matcher
+        // of the pool: the one of this call stays taken until the last match is replaced
+        return withMatcher(string, matcher -> {
+            if (!matcher.findOffsets()) return string.toString();
+
+            StringBuilder builder = new StringBuilder(string.length());
+            int last = 0;
+            do {
+                int[] offsets = matcher.offsets();
+                builder.append(string, last, offsets[0]);
+                builder.append(replacer.apply(new OffsetMatch(string, offsets.clone())));
+                last = offsets[1];
+            } while (matcher.findOffsets());
+            return builder.append(string, last, string.length()).toString();
+        });
+    }
+
+    /**
+     * Returns the parts of the string between the matches, as {@link String#split(String)}
+     * does: an empty match at the start doesn't make an empty first part and the empty
+     * parts at the end are dropped. The string is the only part when nothing matches.
+     */
+    public List<String> split(CharSequence string) {
+        List<String> parts = new ArrayList<>();
+        int last = withMatcher(string, matcher -> {
+            int end = 0;
+            while (matcher.findOffsets()) {
+                int[] offsets = matcher.offsets();
+                if (offsets[1] == 0) continue;
+                parts.add(string.subSequence(end, offsets[0]).toString());
+                end = offsets[1];
+            }
+            return end;
+        });
+        if (last == 0) {
+            parts.add(string.toString());
+            return parts;
+        }
+
+        parts.add(string.subSequence(last, string.length()).toString());
+        while (!parts.isEmpty() && parts.getLast().isEmpty()) {
+            parts.removeLast();
+        }
+        return parts;
+    }
+
+    private String replace(CharSequence string, String replacement, int limit) {
+        Replacement template = replacement(replacement);
+        return withMatcher(string, matcher -> {
+            if (!matcher.findOffsets()) return string.toString();
+
+            StringBuilder builder = new StringBuilder(string.length());
+            try {
+                appendReplaced(matcher, template, limit, builder);
+            } catch (IOException e) {
+                // A StringBuilder doesn't throw
+                throw new UncheckedIOException(e);
+            }
+            return builder.toString();
+        });
+    }
+
+    /**
+     * Runs the search on a matcher of the pool reset to the string
+     */
+    private <T> T withMatcher(CharSequence string, Function<Matcher, T> search) {
+        Matcher matcher = matchers.acquire().reset(string);
+        try {
+            return search.apply(matcher);
+        } finally {
+            release(matcher);
+        }
+    }
+
+    private void release(Matcher matcher) {
+        // A pooled matcher must not keep the string alive
+        matcher.clear();
+        matchers.release(matcher);
+    }
+
+    /**
+     * Appends the input of the matcher with up to {@code limit} matches replaced, from the
+     * match it just found
+     */
+    private static void appendReplaced(Matcher matcher, Replacement replacement, int limit, Appendable sink)
+            throws IOException {
+        CharSequence string = matcher.input();
+        int[] offsets = matcher.offsets();
+        int last = 0;
+        int count = 0;
+        do {
+            sink.append(string, last, offsets[0]);
+            replacement.appendTo(sink, string, offsets);
+            last = offsets[1];
+        } while (++count < limit && matcher.findOffsets());
+        sink.append(string, last, string.length());
+    }
+
+    /**
+     * Returns the parsed template, the last one is kept
+     */
+    private Replacement replacement(String template) {
+        Replacement cached = replacement;
+        if (cached == null || !cached.template().equals(template)) {
+            cached = Replacement.parse(template, groupCount());
+            replacement = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Same as {@link #matches(CharSequence)}, splitting a large string in chunks searched
+     * by the threads of the pool. The string must not change during the search. Patterns
+     * which aren't regular or are anchored to the start of the string are searched
+     * sequentially.
+     */
+    public List<Match> matches(CharSequence string, ForkJoinPool pool) {
+        return matches(string, pool, ParallelSearch.MIN_CHUNK_SIZE);
+    }
+
+    List<Match> matches(CharSequence string, ForkJoinPool pool, int minChunkSize) {
+        int chunkCount = ParallelSearch.chunkCount(pool, string.length(), minChunkSize);
+        if (chunkCount < 2 || !regex.isRegular() || regex.isFromStartOfString()) {
+            return matches(string);
+        }
+        return new ParallelSearch(this, string, chunkCount).matches(pool);
+    }
+
+    /**
+     * Returns a matcher finding the same matches as {@link #matches(CharSequence)} in the
+     * characters of the reader, without reading them all in memory. Only regular patterns
+     * (no lazy quantifiers, back references or {@code \G}) can be matched on a stream.
+     *
+     * @throws IllegalArgumentException if the pattern isn't regular
+     */
+    public StreamMatcher streamMatcher(Reader reader) {
+        return streamMatcher(reader, StreamMatcher.DEFAULT_CHUNK_SIZE, StreamMatcher.DEFAULT_MAX_BUFFERED);
     }
 
-    private Matching makeMatcher(String string, boolean isMatchOnly) {
-        if (regex.isRegular()) {
-            return new RegularMatcher(string, regex, options, isMatchOnly);
+    /**
+     * Same as {@link #streamMatcher(Reader)}, reading {@code chunkSize} characters at a
+     * time and keeping at most {@code maxBuffered} characters in memory
+     */
+    public StreamMatcher streamMatcher(Reader reader, int chunkSize, int maxBuffered) {
+        return new StreamMatcher(reader, regex, options, chunkSize, maxBuffered);
+    }
+
+    /**
+     * Same as {@link #streamMatcher(Reader)} on the bytes of the channel decoded with the
+     * charset, the matches are reported at character offsets
+     */
+    public StreamMatcher streamMatcher(ReadableByteChannel channel, Charset charset) {
+        return streamMatcher(Channels.newReader(channel, charset));
+    }
+
+    /**
+     * Returns the lines of the stream matching the pattern, tested by the threads of the
+     * pool, each reusing its matcher from one line to the next. The lines are in the
+     * order of the stream if {@code isOrdered}, otherwise in the order they were tested,
+     * which spares buffering them.
+     */
+    public List<String> filter(Stream<String> lines, ForkJoinPool pool, boolean isOrdered) {
+        return inParallel(lines, pool, isOrdered, line -> isMatch(line) ? line : null);
+    }
+
+    public List<String> filter(List<String> lines, ForkJoinPool pool, boolean isOrdered) {
+        return filter(lines.stream(), pool, isOrdered);
+    }
+
+    /**
+     * Same as {@link #filter(Stream, ForkJoinPool, boolean)}, returning the first match of
+     * each matching line, with its capture groups
+     */
+    public List<Match> firstMatches(Stream<String> lines, ForkJoinPool pool, boolean isOrdered) {
+        return inParallel(lines, pool, isOrdered, line -> firstMatch(line).orElse(null));
+    }
+
+    public List<Match> firstMatches(List<String> lines, ForkJoinPool pool, boolean isOrdered) {
+        return firstMatches(lines.stream(), pool, isOrdered);
+    }
+
+    /**
+     * Applies the function to the lines in the pool, keeping the results which aren't null
+     */
+    private <T> List<T> inParallel(Stream<String> lines, ForkJoinPool pool, boolean isOrdered,
+                                   Function<String, T> function) {
+        Stream<T> results = lines.parallel().map(function).filter(Objects::nonNull);
+        // A parallel stream runs in the pool of the task running its terminal operation
+        if (isOrdered) {
+            return pool.submit(() -> results.toList()).join();
+        }
+        Queue<T> found = new ConcurrentLinkedQueue<>();
+        pool.submit(() -> results.unordered().forEach(found::add)).join();
+        return List.copyOf(found);
+    }
+
+    /**
+     * Counts a search of a regular pattern, compiling it once hot. The class is generated
+     * in the common pool, the searches go on with the lazy DFAs until it is published.
+     */
+    void countSearch() {
+        if (compiledSearch == null && isCompilable() &&
+            searchCount.incrementAndGet() == options.compilationThreshold()) {
+            ForkJoinPool.commonPool().execute(this::compileSearch);
+        }
+    }
+
+    /**
+     * Returns the class generated for the pattern, {@code null} until there is one
+     */
+    MatchEndSearch compiledSearch() {
+        return compiledSearch;
+    }
+
+    /**
+     * Returns the number of capture groups of the pattern
+     */
+    int groupCount() {
+        return groupCount;
+    }
+
+    /**
+     * Returns the engine resolving the capture groups in one pass, {@code null} if the
+     * pattern isn't one-pass
+     */
+    OnePass onePass() {
+        return onePass;
+    }
+
+    /**
+     * Returns the lazy DFAs of the pattern. A search runs in a single call, it borrows
+     * one for that call so the matchers can interleave their searches.
+     */
+    ObjectPool<LazyDFA> lazyDFAs() {
+        return lazyDFAs;
+    }
+
+    /**
+     * Returns a matcher of the string running the regular patterns on the search
+     */
+    ResettableMatching newMatcher(CharSequence string, MatchEndSearch search, boolean isMatchOnly) {
+        if (ahoCorasick != null) {
+            return new AhoCorasickMatcher(string, regex, ahoCorasick, options, isMatchOnly);
+        } else if (regex.isRegular()) {
+            return new RegularMatcher(string, regex, search, reverseDFAs, onePass, options, isMatchOnly);
         } else {
             return new BacktrackingMatcher(string, regex, options, isMatchOnly);
         }
     }
 
+    /**
+     * Returns a matcher of the matches of a regular pattern starting from {@code from} up
+     * to {@code to} included
+     */
+    Matching newMatcher(CharSequence string, int from, int to, MatchEndSearch search) {
+        return new RegularMatcher(string, from, to, regex, search, reverseDFAs, onePass, options, false);
+    }
+
+    /**
+     * Whether the pattern runs on a {@link MatchEndSearch}, which can be generated
+     */
+    private boolean isCompilable() {
+        return regex.isRegular() && ahoCorasick == null;
+    }
+
+    /**
+     * Generates a class replacing the lazy DFAs, they stay if the pattern can't be compiled
+     */
+    private void compileSearch() {
+        BytecodeCompiler.compile(regex.program()).ifPresent(compiled -> compiledSearch = compiled);
+        LOGGER.info(() -> "Search compiled to bytecode: " + (compiledSearch != null));
+    }
+
     public static class Match {
-        String fullMatch;
-        List<String> groups;
-        int endIndex;
+        static {
+            MatchAccess.register(Match::new);
+        }
+
+        final String fullMatch;
+        final List<String> groups;
+        final int startIndex;
+        final int endIndex;
 
         Match(Cursor cursor, boolean hasCaptureGroups) {
             fullMatch = cursor.substring(cursor.startIndex(), cursor.index()).orElseThrow();
@@ -96,6 +631,7 @@ public class Regex {
             } else {
                 this.groups = List.of();
             }
+            this.startIndex = cursor.startIndex();
             this.endIndex = cursor.index();
         }
 
@@ -103,6 +639,10 @@ public class Regex {
             return fullMatch;
         }
 
+        public int startIndex() {
+            return startIndex;
+        }
+
         public int endIndex() {
             return endIndex;
         }
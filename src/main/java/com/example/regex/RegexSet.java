@@ -0,0 +1,117 @@
+package com.example.regex;
+
+import com.example.regex.compiler.Compiler;
+import com.example.regex.compiler.Program;
+import com.example.regex.compiler.Program.Instruction;
+import com.example.regex.fsm.Assertion;
+import com.example.regex.matcher.MatchBudget;
+import com.example.regex.matcher.MultiDFA;
+import com.example.regex.optimizer.Optimizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Many patterns matched against a string in a single pass, telling which of them match
+ * somewhere in it, as {@link Regex#isMatch(CharSequence)} would for each of them.
+ * <p>
+ * The patterns are compiled into one automaton ({@link MultiDFA}) whose accepting states
+ * are tagged with the index of their pattern. Patterns the automaton can't run, the
+ * ones with back references or {@code \G}, are matched one by one after it.
+ * <p>
+ * Not thread-safe.
+ */
+public class RegexSet {
+    private final List<String> patterns;
+    private final Regex.Options options;
+    private final MultiDFA dfa;
+    /**
+     * Index in the set of every program of the automaton
+     */
+    private final int[] indices;
+    private final List<Regex> others;
+    private final int[] otherIndices;
+
+    public RegexSet(List<String> patterns, Regex.Options options) {
+        this.patterns = List.copyOf(patterns);
+        this.options = options;
+
+        List<Program> programs = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        List<Regex> others = new ArrayList<>();
+        List<Integer> otherIndices = new ArrayList<>();
+        for (int index = 0; index < this.patterns.size(); index++) {
+            String pattern = this.patterns.get(index);
+            Program program = new Compiler(new Optimizer().optimize(Regex.parse(pattern)), options)
+                    .compile()
+                    .program();
+            if (isSupported(program)) {
+                programs.add(program);
+                indices.add(index);
+            } else {
+                others.add(new Regex(pattern, options));
+                otherIndices.add(index);
+            }
+        }
+        this.dfa = new MultiDFA(programs);
+        this.indices = indices.stream().mapToInt(Integer::intValue).toArray();
+        this.others = others;
+        this.otherIndices = otherIndices.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public RegexSet(String... patterns) {
+        this(List.of(patterns), new Regex.Options());
+    }
+
+    private static boolean isSupported(Program program) {
+        return !program.hasAssertion(Assertion.PREVIOUS_MATCH_END) &&
+               Arrays.stream(program.states())
+                       .flatMap(Arrays::stream)
+                       .noneMatch(instruction -> instruction.opcode() == Instruction.BACK_REFERENCE);
+    }
+
+    public List<String> patterns() {
+        return patterns;
+    }
+
+    public int size() {
+        return patterns.size();
+    }
+
+    /**
+     * Returns whether any of the patterns matches somewhere in the string
+     */
+    public boolean isMatch(String string) {
+        MatchBudget budget = new MatchBudget(options.stepLimit(), options.timeout()).start();
+        return !dfa.matches(string, true, budget).isEmpty() ||
+               others.stream().anyMatch(regex -> regex.isMatch(string));
+    }
+
+    /**
+     * Returns the indices of the patterns matching somewhere in the string
+     */
+    public BitSet matches(String string) {
+        MatchBudget budget = new MatchBudget(options.stepLimit(), options.timeout()).start();
+        BitSet found = dfa.matches(string, false, budget);
+
+        BitSet matches = new BitSet(patterns.size());
+        for (int program = found.nextSetBit(0); program >= 0; program = found.nextSetBit(program + 1)) {
+            matches.set(indices[program]);
+        }
+        for (int i = 0; i < others.size(); i++) {
+            if (others.get(i).isMatch(string)) {
+                matches.set(otherIndices[i]);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the indices of the patterns matching somewhere in the string, in increasing order
+     */
+    public int[] matchingIndices(String string) {
+        return matches(string).stream().toArray();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.regex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A replacement template parsed once, with the syntax of {@link java.util.regex.Matcher#appendReplacement}:
+ * {@code $n} is the text of group {@code n}, {@code \} makes the next character literal.
+ * The references are resolved against the groups of the pattern, the digits after
+ * {@code $} are read as long as they make an existing group.
+ * <p>
+ * The template is the literals between the references, the replacement of a match is
+ * appended from the offsets of its groups in the input.
+ */
+final class Replacement {
+    private final String template;
+    /**
+     * One more literal than there are references, a reference goes after each literal
+     * but the last
+     */
+    private final String[] literals;
+    private final int[] groups;
+
+    private Replacement(String template, String[] literals, int[] groups) {
+        this.template = template;
+        this.literals = literals;
+        this.groups = groups;
+    }
+
+    /**
+     * @throws IllegalArgumentException  if a {@code $} isn't followed by a group number
+     *                                   or the template ends with a {@code \}
+     * @throws IndexOutOfBoundsException if a reference is to a group the pattern doesn't have
+     */
+    static Replacement parse(String template, int groupCount) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> groups = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i++);
+            if (c == '\\') {
+                if (i == template.length()) {
+                    throw new IllegalArgumentException("Character to be escaped is missing");
+                }
+                literal.append(template.charAt(i++));
+            } else if (c == '$') {
+                if (i == template.length() || !isDigit(template.charAt(i))) {
+                    throw new IllegalArgumentException("Illegal group reference at " + (i - 1));
+                }
+                int group = template.charAt(i++) - '0';
+                if (group > groupCount) {
+                    throw new IndexOutOfBoundsException("No group " + group);
+                }
+                while (i < template.length() && isDigit(template.charAt(i)) &&
+                       group * 10 + template.charAt(i) - '0' <= groupCount) {
+                    group = group * 10 + template.charAt(i++) - '0';
+                }
+                literals.add(literal.toString());
+                groups.add(group);
+                literal.setLength(0);
+            } else {
+                literal.append(c);
+            }
+        }
+        literals.add(literal.toString());
+        return new Replacement(template, literals.toArray(String[]::new),
+                groups.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static boolean isDigit(char c) {
+        return '0' <= c && c <= '9';
+    }
+
+    String template() {
+        return template;
+    }
+
+    /**
+     * Appends the replacement of a match of the input given the offsets of its groups,
+     * a group which didn't participate is replaced by nothing
+     */
+    void appendTo(Appendable sink, CharSequence input, int[] offsets) throws IOException {
+        for (int i = 0; i < groups.length; i++) {
+            sink.append(literals[i]);
+            int start = offsets[2 * groups[i]];
+            if (start >= 0) {
+                sink.append(input, start, offsets[2 * groups[i] + 1]);
+            }
+        }
+        sink.append(literals[groups.length]);
+    }
+}
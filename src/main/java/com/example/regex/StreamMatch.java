@@ -0,0 +1,15 @@
+package com.example.regex;
+
+import java.util.List;
+
+/**
+ * A match found by a {@link StreamMatcher}, its bounds are offsets in characters from
+ * the beginning of the stream.
+ *
+ * @param groups the capture groups which participated in the match, in group order
+ */
+public record StreamMatch(long startIndex, long endIndex, String fullMatch, List<String> groups) {
+    public StreamMatch {
+        groups = List.copyOf(groups);
+    }
+}
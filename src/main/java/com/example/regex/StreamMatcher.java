@@ -0,0 +1,274 @@
+package com.example.regex;
+
+import com.example.regex.compiler.CompiledRegex;
+import com.example.regex.compiler.Program;
+import com.example.regex.fsm.Assertion;
+import com.example.regex.matcher.LazyDFA;
+import com.example.regex.matcher.MatchBudget;
+import com.example.regex.matcher.PikeVM;
+import com.example.regex.matcher.ReversedSequence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Matches of a regular pattern in a stream of characters, found without holding the
+ * whole stream in memory. The same matches as {@link Regex#matches(CharSequence)} on the
+ * content of the stream, at the same offsets.
+ * <p>
+ * The stream is read in chunks into a window. The {@link LazyDFA} scan looking for where
+ * the leftmost-first match ends is suspended at the end of the window and resumed once
+ * the next chunk is read, so the automaton state carries across chunk boundaries. As in
+ * {@link com.example.regex.matcher.RegularMatcher}, the {@link Program#reverse() reversed
+ * program} then reads the window backwards from there to find where the match starts.
+ * <p>
+ * The window only keeps the text a match can still start in: before the window grows,
+ * the {@link Program#reversePrefixes() reversed prefixes} of the pattern read it
+ * backwards to find the first attempt which may still be running, and the characters
+ * before it are dropped, except the last one which word boundaries and line anchors look
+ * at. The characters of a long match, or of a long failed attempt, are kept until it's
+ * over, up to {@code maxBuffered} characters.
+ * <p>
+ * Not thread-safe.
+ */
+public final class StreamMatcher implements Closeable {
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_BUFFERED = 64 * 1024 * 1024;
+
+    private final Reader reader;
+    private final LazyDFA dfa;
+    /**
+     * Longest match DFA of the reversed program, finds where a match starts
+     */
+    private final LazyDFA reverseDFA;
+    /**
+     * Longest match DFA of the reversed prefixes, finds where the running attempts start
+     */
+    private final LazyDFA prefixDFA;
+    /**
+     * Whether the reversed program misses the matches around a final '\n', see
+     * {@link Program#reverse()}
+     */
+    private final boolean hasEndOfString;
+    private final PikeVM pikeVM;
+    private final int[] captures;
+    private final MatchBudget budget;
+    private final int chunkSize;
+    private final int maxBuffered;
+
+    private char[] window;
+    private CharBuffer text;
+    /**
+     * Offset in the stream of the first character of the window
+     */
+    private long base;
+    private int length;
+    private boolean isEndOfStream;
+    /**
+     * First character which must stay in the window, the one before it is kept as well
+     */
+    private long keep;
+    private long index;
+    private boolean isDone;
+
+    StreamMatcher(Reader reader, CompiledRegex regex, Regex.Options options, int chunkSize, int maxBuffered) {
+        if (!regex.isRegular()) {
+            throw new IllegalArgumentException("Only regular patterns can be matched on a stream");
+        }
+        if (chunkSize <= 0 || maxBuffered < chunkSize) {
+            throw new IllegalArgumentException("Chunk size must be positive and at most the buffer limit");
+        }
+        this.reader = reader;
+        this.dfa = new LazyDFA(regex.program());
+        this.reverseDFA = LazyDFA.longest(regex.program().reverse());
+        this.prefixDFA = LazyDFA.longest(regex.program().reversePrefixes());
+        this.hasEndOfString = regex.program().hasAssertion(Assertion.END_OF_STRING);
+        this.budget = new MatchBudget(options.stepLimit(), options.timeout());
+        this.chunkSize = chunkSize;
+        this.maxBuffered = maxBuffered;
+        this.window = new char[chunkSize];
+        this.text = CharBuffer.wrap(window, 0, 0);
+
+        if (!regex.captureGroups().isEmpty()) {
+            this.pikeVM = new PikeVM(regex.program());
+            this.captures = new int[pikeVM.slotCount()];
+        } else {
+            this.pikeVM = null;
+            this.captures = null;
+        }
+    }
+
+    /**
+     * Returns the next match, reading the stream as far as needed to find it
+     *
+     * @throws MatchLimitExceededException when the search runs out of steps or time, or
+     *                                     would need to buffer more than {@code maxBuffered} characters
+     */
+    public Optional<StreamMatch> nextMatch() throws IOException {
+        if (isDone) return Optional.empty();
+        budget.start();
+        keep = index;
+        while (!isEndOfStream && index >= base + length) {
+            fill();
+        }
+        if (index > base + length) {
+            isDone = true;
+            return Optional.empty();
+        }
+
+        // Leftmost-first match end, every attempt before the restart position already failed
+        LazyDFA.Scan search = dfa.newScan(text, offset(index), true, false);
+        long position = index;
+        while (!dfa.advance(search, text, offset(position), scanned(), base, isEndOfStream, budget)) {
+            position = Math.max(position, base + scanned());
+            keep = Math.max(keep, search.restart());
+            if (window.length - length < chunkSize) {
+                keep = firstRunningStart(keep, position);
+            }
+            fill();
+        }
+        long end = search.matchEnd();
+        if (end < 0) {
+            isDone = true;
+            return Optional.empty();
+        }
+
+        keep = Math.max(keep, search.restart());
+        long start = isReversible(end) ? findStart(end) : findStartForward(end);
+        return Optional.of(makeMatch(start, end));
+    }
+
+    /**
+     * Returns the first position from {@code from} where a match attempt may still be
+     * running at {@code to}, the attempts starting before it failed. The search doesn't
+     * tell where its attempts started, this is only worth it when the window is full.
+     */
+    private long firstRunningStart(long from, long to) {
+        int reversedEnd = prefixDFA.anchoredMatchEnd(new ReversedSequence(text), length - offset(to),
+                length - offset(from), budget);
+        return reversedEnd < 0 ? to : base + length - reversedEnd;
+    }
+
+    /**
+     * Returns where the leftmost-first match ending at {@code end} starts, the longest
+     * reversed match read backwards from there which doesn't start before {@link #keep}.
+     * The window holds the character before it, which the anchors of the reversed
+     * program look at, and the one at {@code end} which the search read to find it.
+     */
+    private long findStart(long end) {
+        int reversedEnd = reverseDFA.anchoredMatchEnd(new ReversedSequence(text), length - offset(end),
+                length - offset(keep), budget);
+        if (reversedEnd < 0) {
+            throw new IllegalStateException("No match ends at " + end);
+        }
+        return base + length - reversedEnd;
+    }
+
+    /**
+     * Returns where the leftmost-first match ending at {@code end} starts, trying anchored
+     * matches from each position from {@link #keep}
+     */
+    private long findStartForward(long end) throws IOException {
+        for (long start = keep; start <= end; start++) {
+            keep = start;
+            if (anchoredMatchEnd(start) >= 0) {
+                return start;
+            }
+        }
+        throw new IllegalStateException("No match ends at " + end);
+    }
+
+    /**
+     * Whether the reversed program finds the matches ending at {@code end}, see
+     * {@link Program#reverse()}: not those reaching a final '\n' of a pattern which may
+     * match before it
+     */
+    private boolean isReversible(long end) {
+        return !hasEndOfString || !isEndOfStream || end < base + length - 1 || length == 0 ||
+               window[length - 1] != '\n';
+    }
+
+    private long anchoredMatchEnd(long start) throws IOException {
+        LazyDFA.Scan scan = dfa.newScan(text, offset(start), false);
+        long position = start;
+        while (!dfa.advance(scan, text, offset(position), scanned(), base, isEndOfStream, budget)) {
+            position = Math.max(position, base + scanned());
+            fill();
+        }
+        return scan.matchEnd();
+    }
+
+    /**
+     * Builds the match, the window holds it up to the character where the search was
+     * over, which is all the Pike VM needs to find the same match with its groups.
+     */
+    private StreamMatch makeMatch(long start, long end) {
+        List<String> groups = new ArrayList<>();
+        if (pikeVM != null) {
+            pikeVM.search(text, offset(start), 0, true, false, captures, budget);
+            for (int group = 1; 2 * group + 1 < captures.length; group++) {
+                int groupStart = captures[2 * group];
+                int groupEnd = captures[2 * group + 1];
+                if (groupStart >= 0 && groupEnd >= groupStart) {
+                    groups.add(new String(window, groupStart, groupEnd - groupStart));
+                }
+            }
+        }
+        index = start == end ? end + 1 : end;
+        return new StreamMatch(start, end, new String(window, offset(start), (int) (end - start)), groups);
+    }
+
+    /**
+     * Returns how far the window can be scanned: a final '\n' is a different symbol for
+     * the automaton, so the last character is only scanned once the next one is known.
+     */
+    private int scanned() {
+        return isEndOfStream ? length : length - 1;
+    }
+
+    private int offset(long position) {
+        return (int) (position - base);
+    }
+
+    /**
+     * Reads at least one more character, or reaches the end of the stream. The window is
+     * compacted when it's full, and only grows when it keeps more than a chunk.
+     */
+    private void fill() throws IOException {
+        if (window.length - length < chunkSize) {
+            int discarded = (int) Math.min(length, Math.max(0, keep - 1 - base));
+            System.arraycopy(window, discarded, window, 0, length - discarded);
+            base += discarded;
+            length -= discarded;
+        }
+        if (window.length - length < chunkSize && window.length < maxBuffered) {
+            int capacity = (int) Math.min(maxBuffered, Math.max(2L * window.length, (long) length + chunkSize));
+            window = Arrays.copyOf(window, capacity);
+        }
+        if (length == window.length) {
+            throw new MatchLimitExceededException(MatchLimitExceededException.Limit.BUFFER, budget.steps());
+        }
+
+        int read;
+        do {
+            read = reader.read(window, length, Math.min(chunkSize, window.length - length));
+        } while (read == 0);
+        if (read < 0) {
+            isEndOfStream = true;
+        } else {
+            length += read;
+        }
+        text = CharBuffer.wrap(window, 0, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
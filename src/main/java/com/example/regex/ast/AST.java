@@ -20,6 +20,20 @@ public record AST(boolean isFromStartOfString, Unit root) {
         return sb.toString();
     }
 
+    /**
+     * Returns the number of capturing groups, including the ones a quantifier such as
+     * {@code {0}} keeps from ever matching
+     */
+    public int captureGroupCount() {
+        int[] count = {0};
+        visit(root, 0, (unit, level) -> {
+            if (unit instanceof Group group && group.isCapturing()) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
     private void visit(Unit unit, int level, BiConsumer<Unit, Integer> visitor) {
         visitor.accept(unit, level);
         if (unit instanceof Composite composite) {
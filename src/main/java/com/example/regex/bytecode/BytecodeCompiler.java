@@ -0,0 +1,319 @@
+package com.example.regex.bytecode;
+
+import com.example.regex.bytecode.ClassWriter.Code;
+import com.example.regex.compiler.Program;
+import com.example.regex.compiler.Program.Instruction;
+import com.example.regex.matcher.MatchEndSearch;
+import com.example.regex.simd.CharScanner;
+import com.example.regex.simd.CharScanners;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.example.regex.bytecode.ClassWriter.Code.*;
+
+/**
+ * Compiles the program of a regular pattern to a hidden class implementing
+ * {@link MatchEndSearch}, for the patterns searched often enough to pay for it.
+ * <p>
+ * The searches are deterministic automata built upfront ({@link EagerDFA}), every
+ * state becomes a block of code which reads a character, looks up its class and
+ * jumps to the next state with a {@code tableswitch}. The JIT then compiles the
+ * automaton itself instead of a loop interpreting a transition table. States looping
+ * on themselves for all but a few ranges of characters, such as the ones of
+ * {@code \s*} or {@code [^"]*}, skip to the next character leaving them with the
+ * {@link CharScanner} first.
+ * <p>
+ * Only programs without assertions whose automata are small are compiled: methods
+ * above {@value #MAX_METHOD_SIZE} bytes aren't compiled by the JIT and would run slower
+ * than the {@link com.example.regex.matcher.LazyDFA}. The generated searches charge the
+ * budget once per search, when the scan is over, so the step limit and the timeout
+ * are only checked when a search ends.
+ */
+public final class BytecodeCompiler {
+    private static final int MAX_STATES = 256;
+    private static final int MAX_METHOD_SIZE = 8000;
+
+    private static final String NAME = "com/example/regex/bytecode/GeneratedSearch";
+    private static final String SEARCH = "com/example/regex/matcher/MatchEndSearch";
+    private static final String BUDGET = "com/example/regex/matcher/MatchBudget";
+    private static final String CHAR_SEQUENCE = "java/lang/CharSequence";
+    private static final String SCANNER = "com/example/regex/simd/CharScanner";
+    private static final String CONSTRUCTOR_DESCRIPTOR = "([C[[CL" + SCANNER + ";)V";
+    private static final String SEARCH_DESCRIPTOR = "(Ljava/lang/CharSequence;IL" + BUDGET + ";)I";
+
+    private static final int THIS = 0;
+    private static final int INPUT = 1;
+    private static final int FROM = 2;
+    private static final int BUDGET_LOCAL = 3;
+    private static final int LENGTH = 4;
+    private static final int INDEX = 5;
+    private static final int MATCH_END = 6;
+    private static final int CLASSES = 7;
+    private static final int CHARACTER = 8;
+    private static final int RANGES = 9;
+    private static final int SCANNER_LOCAL = 10;
+
+    private BytecodeCompiler() {
+    }
+
+    /**
+     * Returns whether the program only has instructions the generated code supports
+     */
+    public static boolean isSupported(Program program) {
+        return Arrays.stream(program.states())
+                .flatMap(Arrays::stream)
+                .allMatch(instruction -> instruction.opcode() == Instruction.EPSILON ||
+                                         instruction.opcode() == Instruction.CHARACTER);
+    }
+
+    /**
+     * Generates and loads the search of the program, nothing if the program isn't
+     * supported or its automata are too large.
+     */
+    public static Optional<MatchEndSearch> compile(Program program) {
+        if (!isSupported(program)) return Optional.empty();
+
+        CharacterClasses classes = CharacterClasses.of(EagerDFA.conditions(program));
+        Optional<EagerDFA> searching = EagerDFA.of(program, classes, EagerDFA.Mode.EARLIEST, MAX_STATES);
+        Optional<EagerDFA> anchored = EagerDFA.of(program, classes, EagerDFA.Mode.ANCHORED, MAX_STATES);
+        Optional<EagerDFA> leftmost = EagerDFA.of(program, classes, EagerDFA.Mode.LEFTMOST, MAX_STATES);
+        if (searching.isEmpty() || anchored.isEmpty() || leftmost.isEmpty()) return Optional.empty();
+
+        List<char[]> ranges = new ArrayList<>();
+        byte[] bytes;
+        try {
+            bytes = generate(searching.get(), anchored.get(), leftmost.get(), classes, ranges);
+        } catch (IllegalStateException e) {
+            return Optional.empty();
+        }
+        if (bytes == null) return Optional.empty();
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodType constructor = MethodType.methodType(void.class, char[].class, char[][].class, CharScanner.class);
+            Object search = lookup.findConstructor(lookup.lookupClass(), constructor)
+                    .invoke(classes.table(), ranges.toArray(char[][]::new), CharScanners.best());
+            return Optional.of((MatchEndSearch) search);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not load the generated search", e);
+        }
+    }
+
+    /**
+     * Returns the class file, {@code null} if a method is too large
+     */
+    private static byte[] generate(EagerDFA searching, EagerDFA anchored, EagerDFA leftmost, CharacterClasses classes,
+                                   List<char[]> ranges) {
+        ClassWriter writer = new ClassWriter(NAME, "java/lang/Object", SEARCH);
+        writer.field(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_FINAL, "classes", "[C");
+        writer.field(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_FINAL, "ranges", "[[C");
+        writer.field(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_FINAL, "scanner", "L" + SCANNER + ";");
+
+        Code constructor = new Code(writer, 2, 4);
+        constructor.local(ALOAD, THIS);
+        constructor.member(INVOKESPECIAL, writer.methodConstant("java/lang/Object", "<init>", "()V"));
+        constructor.local(ALOAD, THIS);
+        constructor.local(ALOAD, 1);
+        constructor.member(PUTFIELD, writer.fieldConstant(NAME, "classes", "[C"));
+        constructor.local(ALOAD, THIS);
+        constructor.local(ALOAD, 2);
+        constructor.member(PUTFIELD, writer.fieldConstant(NAME, "ranges", "[[C"));
+        constructor.local(ALOAD, THIS);
+        constructor.local(ALOAD, 3);
+        constructor.member(PUTFIELD, writer.fieldConstant(NAME, "scanner", "L" + SCANNER + ";"));
+        constructor.op(RETURN);
+        writer.method(ClassWriter.ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, constructor);
+
+        Code earliest = search(writer, searching, classes, true, ranges);
+        Code anchoredSearch = search(writer, anchored, classes, false, ranges);
+        // Like an anchored search, the leftmost one remembers its last match until it can't go further
+        Code leftmostSearch = search(writer, leftmost, classes, false, ranges);
+        if (earliest.size() > MAX_METHOD_SIZE || anchoredSearch.size() > MAX_METHOD_SIZE ||
+            leftmostSearch.size() > MAX_METHOD_SIZE) return null;
+
+        writer.method(ClassWriter.ACC_PUBLIC, "earliestMatchEnd", SEARCH_DESCRIPTOR, earliest);
+        writer.method(ClassWriter.ACC_PUBLIC, "anchoredMatchEnd", SEARCH_DESCRIPTOR, anchoredSearch);
+        writer.method(ClassWriter.ACC_PUBLIC, "leftmostMatchEnd", SEARCH_DESCRIPTOR, leftmostSearch);
+        return writer.toBytes();
+    }
+
+    /**
+     * Writes a search running the automaton from {@code from}. A searching automaton
+     * returns as soon as it reaches an accepting state, an anchored one remembers the
+     * last accepting state and returns once it can't go further.
+     */
+    private static Code search(ClassWriter writer, EagerDFA dfa, CharacterClasses classes, boolean isSearching,
+                               List<char[]> ranges) {
+        Code code = new Code(writer, 6, SCANNER_LOCAL + 1);
+        int exit = code.newLabel();
+        int[] states = new int[dfa.stateCount()];
+        for (int state = 0; state < states.length; state++) {
+            states[state] = code.newLabel();
+        }
+
+        code.local(ALOAD, INPUT);
+        code.invokeInterface(writer.interfaceMethodConstant(CHAR_SEQUENCE, "length", "()I"), 0);
+        code.local(ISTORE, LENGTH);
+        code.local(ILOAD, FROM);
+        code.local(ISTORE, INDEX);
+        code.pushInt(-1);
+        code.local(ISTORE, MATCH_END);
+        code.local(ALOAD, THIS);
+        code.member(GETFIELD, writer.fieldConstant(NAME, "classes", "[C"));
+        code.local(ASTORE, CLASSES);
+        code.local(ALOAD, THIS);
+        code.member(GETFIELD, writer.fieldConstant(NAME, "ranges", "[[C"));
+        code.local(ASTORE, RANGES);
+        code.local(ALOAD, THIS);
+        code.member(GETFIELD, writer.fieldConstant(NAME, "scanner", "L" + SCANNER + ";"));
+        code.local(ASTORE, SCANNER_LOCAL);
+
+        for (int state = 0; state < states.length; state++) {
+            code.bind(states[state]);
+            if (!(isSearching && dfa.accepting()[state])) {
+                Optional<char[]> exits = exits(dfa.transitions()[state], state, classes);
+                if (exits.isPresent()) {
+                    ranges.add(exits.get());
+                    skip(writer, code, ranges.size() - 1);
+                }
+            }
+            if (dfa.accepting()[state]) {
+                if (isSearching) {
+                    charge(writer, code);
+                    code.local(ILOAD, INDEX);
+                    code.op(IRETURN);
+                    continue;
+                }
+                code.local(ILOAD, INDEX);
+                code.local(ISTORE, MATCH_END);
+            }
+            transitions(writer, code, dfa.transitions()[state], states, exit, classes);
+        }
+
+        code.bind(exit);
+        charge(writer, code);
+        if (isSearching) {
+            code.pushInt(-1);
+        } else {
+            code.local(ILOAD, MATCH_END);
+        }
+        code.op(IRETURN);
+        return code;
+    }
+
+    /**
+     * Writes the code reading the next character and jumping to the next state
+     */
+    private static void transitions(ClassWriter writer, Code code, int[] next, int[] states, int exit,
+                                    CharacterClasses classes) {
+        int[] labels = new int[next.length];
+        for (int characterClass = 0; characterClass < next.length; characterClass++) {
+            labels[characterClass] = next[characterClass] == EagerDFA.DEAD ? exit : states[next[characterClass]];
+        }
+        if (Arrays.stream(labels).allMatch(label -> label == exit)) {
+            code.jump(GOTO, exit);
+            return;
+        }
+
+        code.local(ILOAD, INDEX);
+        code.local(ILOAD, LENGTH);
+        code.jump(IF_ICMPGE, exit);
+
+        // The most common next state is the default of the switch, which then only
+        // covers the range of classes going elsewhere
+        int defaultLabel = mostCommon(labels);
+        int low = 0;
+        while (low < labels.length && labels[low] == defaultLabel) low++;
+        if (low == labels.length) {
+            code.increment(INDEX, 1);
+            code.jump(GOTO, defaultLabel);
+            return;
+        }
+        int high = labels.length - 1;
+        while (labels[high] == defaultLabel) high--;
+
+        code.local(ALOAD, INPUT);
+        code.local(ILOAD, INDEX);
+        code.invokeInterface(writer.interfaceMethodConstant(CHAR_SEQUENCE, "charAt", "(I)C"), 1);
+        code.local(ISTORE, CHARACTER);
+        code.increment(INDEX, 1);
+
+        int other = code.newLabel();
+        int lookedUp = code.newLabel();
+        code.local(ILOAD, CHARACTER);
+        code.pushInt(classes.limit());
+        code.jump(IF_ICMPGE, other);
+        code.local(ALOAD, CLASSES);
+        code.local(ILOAD, CHARACTER);
+        code.op(CALOAD);
+        code.jump(GOTO, lookedUp);
+        code.bind(other);
+        code.pushInt(classes.otherClass());
+        code.bind(lookedUp);
+        code.tableSwitch(low, Arrays.copyOfRange(labels, low, high + 1), defaultLabel);
+    }
+
+    /**
+     * Returns the ranges of the characters leaving the state, nothing if the state
+     * doesn't loop on itself or they make too many ranges
+     */
+    private static Optional<char[]> exits(int[] next, int state, CharacterClasses classes) {
+        if (Arrays.stream(next).noneMatch(target -> target == state)) return Optional.empty();
+
+        BitSet exits = new BitSet(Character.MAX_VALUE + 1);
+        for (int character = 0; character < classes.limit(); character++) {
+            if (next[classes.table()[character]] != state) exits.set(character);
+        }
+        if (next[classes.otherClass()] != state) exits.set(classes.limit(), Character.MAX_VALUE + 1);
+        return CharScanner.ranges(exits);
+    }
+
+    /**
+     * Writes the code moving the index to the next character leaving the state, or to
+     * the end of the input
+     */
+    private static void skip(ClassWriter writer, Code code, int ranges) {
+        int found = code.newLabel();
+        code.local(ALOAD, SCANNER_LOCAL);
+        code.local(ALOAD, INPUT);
+        code.local(ILOAD, INDEX);
+        code.local(ILOAD, LENGTH);
+        code.local(ALOAD, RANGES);
+        code.pushInt(ranges);
+        code.op(AALOAD);
+        code.invokeInterface(writer.interfaceMethodConstant(SCANNER, "indexOfAny", "(Ljava/lang/CharSequence;II[C)I"), 4);
+        code.op(DUP);
+        code.jump(IFGE, found);
+        code.op(POP);
+        code.local(ILOAD, LENGTH);
+        code.bind(found);
+        code.local(ISTORE, INDEX);
+    }
+
+    private static void charge(ClassWriter writer, Code code) {
+        code.local(ALOAD, BUDGET_LOCAL);
+        code.local(ILOAD, INDEX);
+        code.local(ILOAD, FROM);
+        code.op(ISUB);
+        code.op(I2L);
+        code.member(INVOKEVIRTUAL, writer.methodConstant(BUDGET, "charge", "(J)V"));
+    }
+
+    private static int mostCommon(int[] labels) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        int best = labels[0];
+        for (int label : labels) {
+            int count = counts.merge(label, 1, Integer::sum);
+            if (count > counts.get(best)) best = label;
+        }
+        return best;
+    }
+}
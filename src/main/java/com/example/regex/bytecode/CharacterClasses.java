@@ -0,0 +1,84 @@
+package com.example.regex.bytecode;
+
+import com.example.regex.fsm.CharacterCondition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partition of the characters into classes no condition of a program tells apart, so
+ * the automaton only needs a transition per class instead of per character.
+ *
+ * @param table           class of the characters below {@code limit}
+ * @param limit           every character from this one on is in the class {@code otherClass}
+ * @param otherClass      class of the characters from {@code limit} on
+ * @param representatives a character of every class
+ */
+record CharacterClasses(char[] table, int limit, int otherClass, char[] representatives) {
+    private static final int CHARACTERS = Character.MAX_VALUE + 1;
+
+    int count() {
+        return representatives.length;
+    }
+
+    /**
+     * Splits the characters at the bounds of the ranges matched by the conditions, the
+     * characters between two bounds match the same conditions. The pieces are grouped by
+     * which conditions they match, numbered in the order of their first character, so the
+     * cost follows the number of ranges rather than the 65,536 characters.
+     */
+    static CharacterClasses of(List<CharacterCondition> conditions) {
+        List<BitSet> characters = conditions.stream().map(CharacterCondition::characters).toList();
+        BitSet bounds = new BitSet(CHARACTERS + 1);
+        bounds.set(0);
+        bounds.set(CHARACTERS);
+        for (BitSet matched : characters) {
+            for (int start = matched.nextSetBit(0); start >= 0; ) {
+                int end = matched.nextClearBit(start);
+                bounds.set(start);
+                bounds.set(end);
+                start = matched.nextSetBit(end);
+            }
+        }
+
+        int pieceCount = bounds.cardinality() - 1;
+        int[] starts = new int[pieceCount + 1];
+        for (int piece = 0, bound = 0; piece <= pieceCount; piece++, bound = bounds.nextSetBit(bound + 1)) {
+            starts[piece] = bound;
+        }
+        int[] pieceClasses = new int[pieceCount];
+        Map<BitSet, Integer> numbers = new HashMap<>();
+        List<Character> representatives = new ArrayList<>();
+        for (int piece = 0; piece < pieceCount; piece++) {
+            BitSet matching = new BitSet(characters.size());
+            for (int condition = 0; condition < characters.size(); condition++) {
+                matching.set(condition, characters.get(condition).get(starts[piece]));
+            }
+            char first = (char) starts[piece];
+            pieceClasses[piece] = numbers.computeIfAbsent(matching, _ignore -> {
+                representatives.add(first);
+                return representatives.size() - 1;
+            });
+        }
+
+        int otherClass = pieceClasses[pieceCount - 1];
+        int lastPiece = pieceCount;
+        while (lastPiece > 0 && pieceClasses[lastPiece - 1] == otherClass) {
+            lastPiece--;
+        }
+        int limit = starts[lastPiece];
+        char[] table = new char[limit];
+        for (int piece = 0; piece < lastPiece; piece++) {
+            Arrays.fill(table, starts[piece], starts[piece + 1], (char) pieceClasses[piece]);
+        }
+        char[] firsts = new char[representatives.size()];
+        for (int number = 0; number < firsts.length; number++) {
+            firsts[number] = representatives.get(number);
+        }
+        return new CharacterClasses(table, limit, otherClass, firsts);
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.regex.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the few class files the code generation needs: one class with fields and
+ * methods, no exception handlers and no attributes besides the code.
+ * <p>
+ * The classes target Java 5 (version 49), the last version verified by type inference,
+ * so the methods don't need a stack map table.
+ */
+final class ClassWriter {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private static final int VERSION = 49;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELD = 9;
+    private static final int CONSTANT_METHOD = 10;
+    private static final int CONSTANT_INTERFACE_METHOD = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream constants = new ByteArrayOutputStream();
+    private final DataOutputStream constantPool = new DataOutputStream(constants);
+    private final Map<String, Integer> constantIndices = new HashMap<>();
+    private int constantCount = 1;
+
+    private final int thisClass;
+    private final int superClass;
+    private final List<Integer> interfaces = new ArrayList<>();
+    private final ByteArrayOutputStream members = new ByteArrayOutputStream();
+    private int fieldCount;
+    private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+    private int methodCount;
+
+    /**
+     * @param name       internal name of the class, such as {@code com/example/Foo}
+     * @param superName  internal name of the super class
+     * @param interfaces internal names of the implemented interfaces
+     */
+    ClassWriter(String name, String superName, String... interfaces) {
+        thisClass = classConstant(name);
+        superClass = classConstant(superName);
+        for (String interfaceName : interfaces) {
+            this.interfaces.add(classConstant(interfaceName));
+        }
+    }
+
+    void field(int access, String name, String descriptor) {
+        write(members, access, utf8(name), utf8(descriptor), 0);
+        fieldCount++;
+    }
+
+    void method(int access, String name, String descriptor, Code code) {
+        byte[] bytes = code.bytes();
+        write(methods, access, utf8(name), utf8(descriptor), 1, utf8("Code"));
+        DataOutputStream out = new DataOutputStream(methods);
+        try {
+            out.writeInt(2 + 2 + 4 + bytes.length + 2 + 2);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeShort(0);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methodCount++;
+    }
+
+    byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(constantCount);
+            constants.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.size());
+            for (int index : interfaces) {
+                out.writeShort(index);
+            }
+            out.writeShort(fieldCount);
+            members.writeTo(out);
+            out.writeShort(methodCount);
+            methods.writeTo(out);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    int fieldConstant(String owner, String name, String descriptor) {
+        return memberConstant(CONSTANT_FIELD, owner, name, descriptor);
+    }
+
+    int methodConstant(String owner, String name, String descriptor) {
+        return memberConstant(CONSTANT_METHOD, owner, name, descriptor);
+    }
+
+    int interfaceMethodConstant(String owner, String name, String descriptor) {
+        return memberConstant(CONSTANT_INTERFACE_METHOD, owner, name, descriptor);
+    }
+
+    int integerConstant(int value) {
+        return constant("I" + value, out -> {
+            out.writeByte(CONSTANT_INTEGER);
+            out.writeInt(value);
+        });
+    }
+
+    private int classConstant(String name) {
+        int nameIndex = utf8(name);
+        return constant("C" + name, out -> {
+            out.writeByte(CONSTANT_CLASS);
+            out.writeShort(nameIndex);
+        });
+    }
+
+    private int memberConstant(int tag, String owner, String name, String descriptor) {
+        int classIndex = classConstant(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant("N" + name + ":" + descriptor, out -> {
+            out.writeByte(CONSTANT_NAME_AND_TYPE);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return constant(tag + owner + "." + name + ":" + descriptor, out -> {
+            out.writeByte(tag);
+            out.writeShort(classIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private int utf8(String value) {
+        return constant("U" + value, out -> {
+            out.writeByte(CONSTANT_UTF8);
+            out.writeUTF(value);
+        });
+    }
+
+    private int constant(String key, ConstantWriter writer) {
+        Integer index = constantIndices.get(key);
+        if (index != null) return index;
+
+        try {
+            writer.write(constantPool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        constantIndices.put(key, constantCount);
+        return constantCount++;
+    }
+
+    private static void write(ByteArrayOutputStream stream, int... shorts) {
+        for (int value : shorts) {
+            stream.write(value >>> 8);
+            stream.write(value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConstantWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Bytecode of a method, branches target labels which are resolved once the code is complete.
+     */
+    static final class Code {
+        static final int ICONST_0 = 0x03;
+        static final int BIPUSH = 0x10;
+        static final int SIPUSH = 0x11;
+        static final int LDC_W = 0x13;
+        static final int ILOAD = 0x15;
+        static final int ALOAD = 0x19;
+        static final int AALOAD = 0x32;
+        static final int CALOAD = 0x34;
+        static final int ISTORE = 0x36;
+        static final int ASTORE = 0x3A;
+        static final int POP = 0x57;
+        static final int DUP = 0x59;
+        static final int ISUB = 0x64;
+        static final int IINC = 0x84;
+        static final int I2L = 0x85;
+        static final int IFGE = 0x9C;
+        static final int IF_ICMPGE = 0xA2;
+        static final int GOTO = 0xA7;
+        static final int TABLESWITCH = 0xAA;
+        static final int IRETURN = 0xAC;
+        static final int RETURN = 0xB1;
+        static final int GETFIELD = 0xB4;
+        static final int PUTFIELD = 0xB5;
+        static final int INVOKEVIRTUAL = 0xB6;
+        static final int INVOKESPECIAL = 0xB7;
+        static final int INVOKEINTERFACE = 0xB9;
+
+        private final ClassWriter owner;
+        private final int maxStack;
+        private final int maxLocals;
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        private final List<Integer> labels = new ArrayList<>();
+        private final List<Branch> branches = new ArrayList<>();
+
+        Code(ClassWriter owner, int maxStack, int maxLocals) {
+            this.owner = owner;
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+        }
+
+        int size() {
+            return code.size();
+        }
+
+        int newLabel() {
+            labels.add(-1);
+            return labels.size() - 1;
+        }
+
+        void bind(int label) {
+            labels.set(label, code.size());
+        }
+
+        void op(int opcode) {
+            code.write(opcode);
+        }
+
+        void local(int opcode, int index) {
+            code.write(opcode);
+            code.write(index);
+        }
+
+        void increment(int index, int delta) {
+            code.write(IINC);
+            code.write(index);
+            code.write(delta);
+        }
+
+        void pushInt(int value) {
+            if (value >= -1 && value <= 5) {
+                code.write(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                code.write(BIPUSH);
+                code.write(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                code.write(SIPUSH);
+                write(code, value);
+            } else {
+                code.write(LDC_W);
+                write(code, owner.integerConstant(value));
+            }
+        }
+
+        /**
+         * Writes an instruction whose operand is a constant pool index
+         */
+        void member(int opcode, int constant) {
+            code.write(opcode);
+            write(code, constant);
+        }
+
+        void invokeInterface(int constant, int argumentSlots) {
+            member(INVOKEINTERFACE, constant);
+            code.write(argumentSlots + 1);
+            code.write(0);
+        }
+
+        void jump(int opcode, int label) {
+            int position = code.size();
+            code.write(opcode);
+            branches.add(new Branch(position, code.size(), label, false));
+            write(code, 0);
+        }
+
+        /**
+         * Writes a {@code tableswitch} on the classes {@code low} to {@code low + targets.length - 1}
+         */
+        void tableSwitch(int low, int[] targets, int defaultLabel) {
+            int position = code.size();
+            code.write(TABLESWITCH);
+            while (code.size() % 4 != 0) {
+                code.write(0);
+            }
+            branches.add(new Branch(position, code.size(), defaultLabel, true));
+            writeInt(0);
+            writeInt(low);
+            writeInt(low + targets.length - 1);
+            for (int label : targets) {
+                branches.add(new Branch(position, code.size(), label, true));
+                writeInt(0);
+            }
+        }
+
+        /**
+         * Returns the code with the branches resolved
+         *
+         * @throws IllegalStateException if a branch is too far for a 16 bits offset
+         */
+        byte[] bytes() {
+            byte[] bytes = code.toByteArray();
+            for (Branch branch : branches) {
+                int offset = labels.get(branch.label()) - branch.instruction();
+                int at = branch.operand();
+                if (branch.isWide()) {
+                    bytes[at] = (byte) (offset >>> 24);
+                    bytes[at + 1] = (byte) (offset >>> 16);
+                    bytes[at + 2] = (byte) (offset >>> 8);
+                    bytes[at + 3] = (byte) offset;
+                } else {
+                    if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                        throw new IllegalStateException("Branch offset out of range: " + offset);
+                    }
+                    bytes[at] = (byte) (offset >>> 8);
+                    bytes[at + 1] = (byte) offset;
+                }
+            }
+            return bytes;
+        }
+
+        private void writeInt(int value) {
+            write(code, value >>> 16, value);
+        }
+
+        private record Branch(int instruction, int operand, int label, boolean isWide) {
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.regex.bytecode;
+
+import com.example.regex.compiler.Program;
+import com.example.regex.compiler.Program.Instruction;
+import com.example.regex.fsm.CharacterCondition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Deterministic automaton of a program without assertions, fully built upfront over
+ * the character classes of the program, the input of the code generation.
+ * <p>
+ * A state is the list of character instructions reachable through epsilon transitions,
+ * in priority order, cut at the accepting state like in the lazy DFA, so the matches
+ * it finds are leftmost-first. A search adds the start of the program back after every
+ * character, with the lowest priority, until a match is found, see {@link Mode}.
+ *
+ * @param transitions next state of every state for every character class, {@link #DEAD} if none
+ * @param accepting   whether a match ends when a state is reached
+ */
+record EagerDFA(int[][] transitions, boolean[] accepting) {
+    static final int DEAD = -1;
+
+    /**
+     * What the automaton looks for from a position
+     */
+    enum Mode {
+        /**
+         * The end of the leftmost-first match starting there
+         */
+        ANCHORED,
+        /**
+         * The first end of a match starting there or later, its accepting states are final
+         */
+        EARLIEST,
+        /**
+         * The end of the leftmost-first match starting there or later, the automaton goes
+         * on after a match while the attempts started earlier can still match
+         */
+        LEFTMOST
+    }
+
+    int stateCount() {
+        return transitions.length;
+    }
+
+    /**
+     * Builds the automaton, nothing if it has more than {@code maxStates} states.
+     */
+    static Optional<EagerDFA> of(Program program, CharacterClasses classes, Mode mode, int maxStates) {
+        return new Builder(program, classes, mode, maxStates).build();
+    }
+
+    /**
+     * Character conditions of the program, in the order of the flattened instructions
+     */
+    static List<CharacterCondition> conditions(Program program) {
+        return Arrays.stream(program.states())
+                .flatMap(Arrays::stream)
+                .filter(instruction -> instruction.opcode() == Instruction.CHARACTER)
+                .map(Instruction::character)
+                .toList();
+    }
+
+    private static final class Builder {
+        private final Program program;
+        private final CharacterClasses classes;
+        private final Mode mode;
+        private final int maxStates;
+
+        /**
+         * Character instructions flattened, with their target state
+         */
+        private final List<CharacterCondition> conditions = new ArrayList<>();
+        private final List<Integer> targets = new ArrayList<>();
+        private final int[] offsets;
+
+        private final Map<Key, Integer> indices = new HashMap<>();
+        private final List<Key> states = new ArrayList<>();
+
+        Builder(Program program, CharacterClasses classes, Mode mode, int maxStates) {
+            this.program = program;
+            this.classes = classes;
+            this.mode = mode;
+            this.maxStates = maxStates;
+
+            offsets = new int[program.stateCount()];
+            for (int state = 0; state < program.stateCount(); state++) {
+                offsets[state] = conditions.size();
+                for (Instruction instruction : program.states()[state]) {
+                    if (instruction.opcode() == Instruction.CHARACTER) {
+                        conditions.add(instruction.character());
+                        targets.add(instruction.target());
+                    } else if (instruction.opcode() != Instruction.EPSILON) {
+                        throw new IllegalArgumentException("Unsupported instruction " + instruction);
+                    }
+                }
+            }
+        }
+
+        Optional<EagerDFA> build() {
+            index(closure(new int[]{Program.START}, mode != Mode.ANCHORED));
+
+            List<int[]> transitions = new ArrayList<>();
+            for (int state = 0; state < states.size(); state++) {
+                Key key = states.get(state);
+                int[] next = new int[classes.count()];
+                if (mode == Mode.EARLIEST && key.isAccepting()) {
+                    // A search stops at the first match, what follows doesn't matter
+                    Arrays.fill(next, DEAD);
+                    transitions.add(next);
+                    continue;
+                }
+                for (int characterClass = 0; characterClass < classes.count(); characterClass++) {
+                    Key target = step(key, classes.representatives()[characterClass]);
+                    next[characterClass] = isDead(target) ? DEAD : index(target);
+                }
+                transitions.add(next);
+                if (states.size() > maxStates) return Optional.empty();
+            }
+
+            boolean[] accepting = new boolean[states.size()];
+            for (int state = 0; state < states.size(); state++) {
+                accepting[state] = states.get(state).isAccepting();
+            }
+            return Optional.of(new EagerDFA(transitions.toArray(int[][]::new), accepting));
+        }
+
+        private boolean isDead(Key key) {
+            return key.instructions().length == 0 && !key.isAccepting() && !key.isSearching();
+        }
+
+        private int index(Key key) {
+            Integer index = indices.get(key);
+            if (index != null) return index;
+
+            indices.put(key, states.size());
+            states.add(key);
+            return states.size() - 1;
+        }
+
+        /**
+         * Consumes the character in every instruction of the state, in priority order
+         */
+        private Key step(Key from, char character) {
+            List<Integer> reached = new ArrayList<>();
+            for (int instruction : from.instructions()) {
+                if (conditions.get(instruction).matches(character)) {
+                    reached.add(targets.get(instruction));
+                }
+            }
+            // No attempt starts after a match
+            boolean isSearching = from.isSearching() && !from.isAccepting();
+            if (isSearching) {
+                reached.add(Program.START);
+            }
+            return closure(reached.stream().mapToInt(Integer::intValue).toArray(), isSearching);
+        }
+
+        /**
+         * Follows the epsilon transitions in priority order, collecting the character
+         * instructions until the accepting state is reached.
+         */
+        private Key closure(int[] from, boolean isSearching) {
+            BitSet visited = new BitSet(program.stateCount());
+            List<Integer> instructions = new ArrayList<>();
+            boolean isAccepting = false;
+
+            Deque<Integer> stack = new ArrayDeque<>();
+            for (int i = from.length - 1; i >= 0; i--) {
+                stack.push(from[i]);
+            }
+            while (!stack.isEmpty() && !isAccepting) {
+                int item = stack.pop();
+                if (item < 0) {
+                    instructions.add(~item);
+                    continue;
+                }
+                if (visited.get(item)) continue;
+                visited.set(item);
+                if (program.isAccepting(item)) {
+                    // Everything left on the stack has a lower priority than this match
+                    isAccepting = true;
+                    continue;
+                }
+
+                Instruction[] stateInstructions = program.states()[item];
+                int character = offsets[item] + characterCount(stateInstructions);
+                for (int i = stateInstructions.length - 1; i >= 0; i--) {
+                    Instruction instruction = stateInstructions[i];
+                    if (instruction.opcode() == Instruction.CHARACTER) {
+                        stack.push(~(--character));
+                    } else {
+                        stack.push(instruction.target());
+                    }
+                }
+            }
+            return new Key(instructions.stream().mapToInt(Integer::intValue).toArray(), isAccepting, isSearching);
+        }
+
+        private static int characterCount(Instruction[] instructions) {
+            int count = 0;
+            for (Instruction instruction : instructions) {
+                if (instruction.opcode() == Instruction.CHARACTER) count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * @param isSearching whether attempts still start at the next characters
+     */
+    private record Key(int[] instructions, boolean isAccepting, boolean isSearching) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && isAccepting == key.isAccepting && isSearching == key.isSearching &&
+                   Arrays.equals(instructions, key.instructions);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Arrays.hashCode(instructions) + Boolean.hashCode(isAccepting)) +
+                   Boolean.hashCode(isSearching);
+        }
+    }
+}
@@ -1,12 +1,33 @@
 package com.example.regex.compiler;
 
+import com.example.regex.prefilter.Prefilter;
+import com.example.regex.prefilter.RequiredLiteral;
+
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * A compiled pattern, immutable and shared by the threads matching it: the matchers keep
+ * their own state.
+ *
+ * @param isFromStartOfString whether every match starts at the start of the input
+ * @param isToEndOfString     whether every match ends at the end of the input, or before
+ *                            a '\n' ending it
+ */
 public record CompiledRegex(
         CompiledStateMachine fsm,
         List<CompiledCaptureGroup> captureGroups,
         boolean isRegular,
         boolean isFromStartOfString,
-        Symbols symbols
+        boolean isToEndOfString,
+        Symbols symbols,
+        Program program,
+        Prefilter prefilter,
+        Optional<RequiredLiteral> requiredLiteral,
+        Optional<List<String>> literalAlternatives
 ) {
+    public CompiledRegex {
+        captureGroups = List.copyOf(captureGroups);
+        literalAlternatives = literalAlternatives.map(List::copyOf);
+    }
 }
@@ -3,19 +3,36 @@ package com.example.regex.compiler;
 import com.example.regex.Regex;
 import com.example.regex.Regex.Options;
 import com.example.regex.ast.*;
+import com.example.regex.fsm.Assertion;
+import com.example.regex.fsm.Epsilon;
 import com.example.regex.fsm.FSM;
 import com.example.regex.fsm.State;
+import com.example.regex.fsm.Transition;
+import com.example.regex.optimizer.Optimizer;
+import com.example.regex.parser.ParseException;
+import com.example.regex.prefilter.LineStartPrefilter;
+import com.example.regex.prefilter.Literals;
+import com.example.regex.prefilter.Prefilter;
+import com.example.regex.prefilter.RequiredLiteral;
+import com.example.regex.util.CharacterSet;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static com.example.regex.Regex.Options.Option.CASE_INSENSITIVE;
 import static com.example.regex.Regex.Options.Option.DOT_MATCHES_LINE_SEPARATORS;
+import static com.example.regex.Regex.Options.Option.MULTILINE;
 
 public class Compiler {
     private final AST ast;
@@ -24,6 +41,7 @@ public class Compiler {
     private final List<IRCaptureGroup> captureGroups;
     private final List<BackReference> backReferences;
     private boolean containsLazyQuantifiers = false;
+    private boolean containsPreviousMatchEnd = false;
 
     public Compiler(AST ast, Options options) {
         this.ast = ast;
@@ -35,6 +53,9 @@ public class Compiler {
 
     public CompiledRegex compile() {
         FSM fsm = compile(ast.root());
+        if (ast.isFromStartOfString()) {
+            fsm = FSM.concatenate(startOfString(), fsm);
+        }
         optimize(fsm);
         validateBackreferences();
         return preprocess(fsm);
@@ -55,7 +76,7 @@ public class Compiler {
         List<List<CompiledTransition>> transitions = states.stream()
                 .map(state -> state.transition().stream()
                         .map(transition -> new CompiledTransition(
-                                new CompiledState(indices.get(state)), transition.condition()))
+                                new CompiledState(indices.get(transition.end())), transition.condition()))
                         .toList())
                 .toList();
 
@@ -72,20 +93,114 @@ public class Compiler {
             }
             symbols = new Symbols(ast, details);
         }
-        return new CompiledRegex(new CompiledStateMachine(transitions),
+        CompiledStateMachine stateMachine = new CompiledStateMachine(transitions);
+        Program program = Program.from(stateMachine, captureGroups);
+        boolean isRegular = !containsLazyQuantifiers && !containsPreviousMatchEnd && backReferences.isEmpty();
+        boolean isFromStartOfString = program.isAnchored(EnumSet.of(Assertion.START_OF_STRING));
+        return new CompiledRegex(stateMachine,
                 captureGroups,
-                !containsLazyQuantifiers && backReferences.isEmpty(),
-                ast.isFromStartOfString(),
-                symbols
+                isRegular,
+                isFromStartOfString,
+                isRegular && program.reverse().isAnchored(EnumSet.of(Assertion.START_OF_STRING)),
+                symbols,
+                program,
+                prefilter(program, isFromStartOfString),
+                RequiredLiteral.of(ast, options.contains(CASE_INSENSITIVE)),
+                options.contains(CASE_INSENSITIVE) ? Optional.empty() : Optimizer.literalAlternatives(ast)
         );
     }
 
+    /**
+     * Returns the prefilter of the literal prefixes, only keeping the candidates where an
+     * anchored pattern can start
+     */
+    private Prefilter prefilter(Program program, boolean isFromStartOfString) {
+        if (isFromStartOfString) return Prefilter.startOfString();
+
+        Prefilter prefixes = Literals.prefilter(ast, options.contains(CASE_INSENSITIVE));
+        if (program.isAnchored(EnumSet.of(Assertion.START_OF_STRING, Assertion.START_OF_LINE))) {
+            return new LineStartPrefilter(prefixes);
+        }
+        return prefixes;
+    }
+
     private void validateBackreferences() {
-        // TODO
+        for (BackReference backReference : backReferences) {
+            boolean exists = captureGroups.stream()
+                    .anyMatch(captureGroup -> captureGroup.index() == backReference.index());
+            if (!exists) {
+                throw new ParseException("The token '\\" + backReference.index() +
+                                         "' references a non-existent or invalid subpattern");
+            }
+        }
     }
 
+    /**
+     * Removes the unconditional epsilon transitions, every state reached by a character,
+     * an assertion or from the start directly transitions to what its epsilon closure
+     * reaches, in the same priority order.
+     * <p>
+     * The closure stops at the states which must still be entered: the boundaries of the
+     * capture groups, which record a slot, and the accepting state. Assertions are kept
+     * as they are since they depend on the position. A state reached twice in the same
+     * closure is only kept the first time, the second path can't do anything the first
+     * one couldn't (nothing it records changed in between), which also drops the empty
+     * loops. States which aren't the target of any remaining transition disappear.
+     */
     private void optimize(FSM fsm) {
-        // TODO
+        Set<State> boundaries = new HashSet<>();
+        for (IRCaptureGroup captureGroup : captureGroups) {
+            boundaries.add(captureGroup.start());
+            boundaries.add(captureGroup.end());
+        }
+
+        Map<State, List<Transition>> closures = new HashMap<>();
+        Deque<State> pending = new ArrayDeque<>();
+        pending.push(fsm.start());
+        while (!pending.isEmpty()) {
+            State state = pending.pop();
+            if (closures.containsKey(state)) continue;
+
+            List<Transition> closure = closure(state, boundaries);
+            closures.put(state, closure);
+            closure.forEach(transition -> pending.push(transition.end()));
+        }
+        // Only rewritten once every closure is known, they are computed on the original transitions
+        closures.forEach(State::setTransitions);
+    }
+
+    private static List<Transition> closure(State state, Set<State> boundaries) {
+        List<Transition> closure = new ArrayList<>();
+        Set<State> visited = new HashSet<>();
+        visited.add(state);
+
+        Deque<Transition> stack = new ArrayDeque<>();
+        pushReversed(stack, state);
+        while (!stack.isEmpty()) {
+            Transition transition = stack.pop();
+            State end = transition.end();
+            boolean isUnconditional = transition.condition() instanceof Epsilon epsilon && epsilon.predicate() == null;
+            if (!isUnconditional) {
+                closure.add(transition);
+            } else if (visited.add(end)) {
+                if (boundaries.contains(end) || end.transition().isEmpty()) {
+                    closure.add(transition);
+                } else {
+                    pushReversed(stack, end);
+                }
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * Pushes the transitions of the state so the first one is popped first
+     */
+    private static void pushReversed(Deque<Transition> stack, State state) {
+        List<Transition> transitions = state.transition();
+        for (int i = transitions.size() - 1; i >= 0; i--) {
+            stack.push(transitions.get(i));
+        }
     }
 
     private FSM compile(Unit unit) {
@@ -134,27 +249,86 @@ public class Compiler {
     }
 
     private FSM compile(Alternation alternation) {
-        throw new UnsupportedOperationException();
+        return FSM.alternation(alternation.children().stream().map(this::compile).toList());
     }
 
     private FSM compile(Anchor anchor) {
-        throw new UnsupportedOperationException();
+        boolean multiline = options.contains(MULTILINE);
+
+        return switch (anchor) {
+            case START_OF_STRING -> startOfString();
+            case END_OF_STRING -> multiline ? FSM.endOfString() : FSM.endOfStringOnly();
+            case WORD_BOUNDARY -> FSM.wordBoundary();
+            case NON_WORD_BOUNDARY -> FSM.nonWordBoundary();
+            case START_OF_STRING_ONLY -> FSM.startOfStringOnly();
+            case END_OF_STRING_ONLY -> FSM.endOfStringOnly();
+            case END_OF_STRING_ONLY_NOT_NEWLINE -> FSM.endOfStringOnlyNotNewLine();
+            case PREVIOUS_MATCH_END -> {
+                // The automata don't know where the previous match ended
+                containsPreviousMatchEnd = true;
+                yield FSM.previousMatchEnd();
+            }
+        };
+    }
+
+    private FSM startOfString() {
+        return options.contains(MULTILINE) ? FSM.startOfString() : FSM.startOfStringOnly();
     }
 
     private FSM compile(QuantifiedExpression quantifiedExpression) {
-        throw new UnsupportedOperationException();
+        Unit expression = quantifiedExpression.expression();
+        boolean isLazy = quantifiedExpression.quantifier().isLazy();
+        if (isLazy) {
+            containsLazyQuantifiers = true;
+        }
+
+        return switch (quantifiedExpression.quantifier().type()) {
+            case Quantifier.Type.zeroOrMore zeroOrMore -> FSM.zeroOrMore(compile(expression), isLazy);
+            case Quantifier.Type.oneOrMore oneOrMore -> FSM.oneOrMore(compile(expression), isLazy);
+            case Quantifier.Type.zeroOrOne zeroOrOne -> FSM.zeroOrOne(compile(expression), isLazy);
+            case Quantifier.Type.range(int lowerBound, Optional<Integer> upperBound) ->
+                    compile(expression, lowerBound, upperBound, isLazy);
+        };
+    }
+
+    /**
+     * Expands {@code x{n,m}} into {@code n} copies of {@code x} followed by nested
+     * optional copies {@code (x(x)?)?}, or by {@code x*} when there is no upper bound.
+     * Every copy is compiled separately so each one gets its own states.
+     */
+    private FSM compile(Unit expression, int lowerBound, Optional<Integer> upperBound, boolean isLazy) {
+        if (upperBound.isPresent() && upperBound.get() < lowerBound) {
+            throw new ParseException("Invalid range quantifier {" + lowerBound + "," + upperBound.get() + "}");
+        }
+
+        List<FSM> fsms = new ArrayList<>();
+        for (int i = 0; i < lowerBound; i++) {
+            fsms.add(compile(expression));
+        }
+
+        if (upperBound.isEmpty()) {
+            fsms.add(FSM.zeroOrMore(compile(expression), isLazy));
+        } else if (upperBound.get() > lowerBound) {
+            FSM optional = FSM.zeroOrOne(compile(expression), isLazy);
+            for (int i = lowerBound + 1; i < upperBound.get(); i++) {
+                optional = FSM.zeroOrOne(FSM.concatenate(compile(expression), optional), isLazy);
+            }
+            fsms.add(optional);
+        }
+
+        return FSM.concatenate(fsms);
     }
 
     private FSM compile(Match match) {
-        boolean ignoreCase = !options.contains(CASE_INSENSITIVE);
+        boolean ignoreCase = options.contains(CASE_INSENSITIVE);
         boolean dotMatchesLineSeparator = options.contains(DOT_MATCHES_LINE_SEPARATORS);
 
         return switch (match) {
             case Match.character(char c) -> FSM.character(c, ignoreCase);
-            case Match.string string -> throw new UnsupportedOperationException();
-            case Match.anyCharacter anyCharacter -> throw new UnsupportedOperationException();
-            case Match.set set -> throw new UnsupportedOperationException();
-            case Match.group group -> throw new UnsupportedOperationException();
+            case Match.string(String string) -> FSM.string(string, ignoreCase);
+            case Match.anyCharacter anyCharacter -> FSM.anyCharacter(dotMatchesLineSeparator);
+            case Match.set(CharacterSet set) -> FSM.characterSet(set, ignoreCase);
+            case Match.group(CharacterGroup group) -> FSM.characterGroup(group, ignoreCase);
         };
     }
 }
@@ -0,0 +1,244 @@
+package com.example.regex.compiler;
+
+import com.example.regex.fsm.Assertion;
+import com.example.regex.fsm.BackReferenceCondition;
+import com.example.regex.fsm.CharacterCondition;
+import com.example.regex.fsm.Condition;
+import com.example.regex.fsm.Epsilon;
+import com.example.regex.fsm.StringCondition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Flat view of a {@link CompiledStateMachine} for the automata based matchers.
+ * <p>
+ * States keep their indices, string conditions are expanded into chains of
+ * single character instructions appended after the original states, so every
+ * consuming instruction reads exactly one character. A state without
+ * instructions is the accepting state.
+ *
+ * @param states    instructions of each state in priority order
+ * @param slots     capture slot recorded when a state is entered, {@code -1} if none.
+ *                  Group {@code n} uses slots {@code 2n} (start) and {@code 2n + 1} (end).
+ * @param slotCount number of capture slots including the slots of the whole match (0 and 1)
+ */
+public record Program(Instruction[][] states, int[] slots, int slotCount) {
+    public static final int START = 0;
+
+    public record Instruction(int opcode, int target, CharacterCondition character, Assertion assertion, int group) {
+        public static final int EPSILON = 0;
+        public static final int ASSERTION = 1;
+        public static final int CHARACTER = 2;
+        public static final int BACK_REFERENCE = 3;
+
+        static Instruction epsilon(int target) {
+            return new Instruction(EPSILON, target, null, null, 0);
+        }
+
+        static Instruction assertion(int target, Assertion assertion) {
+            return new Instruction(ASSERTION, target, null, assertion, 0);
+        }
+
+        static Instruction character(int target, CharacterCondition character) {
+            return new Instruction(CHARACTER, target, character, null, 0);
+        }
+
+        static Instruction backReference(int target, int group) {
+            return new Instruction(BACK_REFERENCE, target, null, null, group);
+        }
+    }
+
+    public int stateCount() {
+        return states.length;
+    }
+
+    public boolean isAccepting(int state) {
+        return states[state].length == 0;
+    }
+
+    public boolean hasAssertion(Assertion assertion) {
+        return Arrays.stream(states)
+                .flatMap(Arrays::stream)
+                .anyMatch(instruction -> instruction.assertion() == assertion);
+    }
+
+    /**
+     * Returns whether every match starts with one of the assertions: every path from the
+     * start state goes through one of them before consuming a character or accepting.
+     */
+    public boolean isAnchored(Set<Assertion> assertions) {
+        boolean[] visited = new boolean[states.length];
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(START);
+        while (!pending.isEmpty()) {
+            int state = pending.pop();
+            if (visited[state]) continue;
+            visited[state] = true;
+            if (isAccepting(state)) return false;
+
+            for (Instruction instruction : states[state]) {
+                switch (instruction.opcode()) {
+                    case Instruction.EPSILON -> pending.push(instruction.target());
+                    case Instruction.ASSERTION -> {
+                        if (!assertions.contains(instruction.assertion())) {
+                            pending.push(instruction.target());
+                        }
+                    }
+                    default -> {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the program matching the matches of this one read backwards, from their
+     * end to their start, without capture slots. Its anchors see the input mirrored, the
+     * start of a line is the end of a line of the reversed input and so on. Only the end
+     * of the input before a final '\n' ({@link Assertion#END_OF_STRING}) has no mirror,
+     * it becomes the start of the reversed input: the reversed program doesn't hold on
+     * inputs ending with '\n' if this one has the assertion.
+     * <p>
+     * State {@code s} of this program is state {@code s + 1} of the reversed one, which
+     * starts at the accepting states of this one and accepts past its start state.
+     *
+     * @throws IllegalArgumentException if the program has back references or previous
+     *                                  match anchors
+     */
+    public Program reverse() {
+        return reverse(false);
+    }
+
+    /**
+     * Same as {@link #reverse()} for the prefixes of the matches of this one, the text
+     * read by the match attempts not over yet: the reversed program starts at any state
+     * of this one. Read backwards from a position, its longest match finds the earliest
+     * attempt which may still be running there.
+     *
+     * @throws IllegalArgumentException if the program has back references or previous
+     *                                  match anchors
+     */
+    public Program reversePrefixes() {
+        return reverse(true);
+    }
+
+    private Program reverse(boolean isPrefixes) {
+        int accepting = states.length + 1;
+        List<List<Instruction>> reversed = new ArrayList<>();
+        for (int state = 0; state <= accepting; state++) {
+            reversed.add(new ArrayList<>());
+        }
+
+        // The transitions of unreachable states would lead nowhere once reversed
+        boolean[] isReachable = reachable();
+        for (int state = 0; state < states.length; state++) {
+            if (!isReachable[state]) continue;
+            if (isPrefixes || isAccepting(state)) {
+                reversed.get(START).add(Instruction.epsilon(state + 1));
+            }
+            for (Instruction instruction : states[state]) {
+                reversed.get(instruction.target() + 1).add(switch (instruction.opcode()) {
+                    case Instruction.EPSILON -> Instruction.epsilon(state + 1);
+                    case Instruction.ASSERTION -> Instruction.assertion(state + 1, mirror(instruction.assertion()));
+                    case Instruction.CHARACTER -> Instruction.character(state + 1, instruction.character());
+                    default -> throw new IllegalArgumentException("Can't reverse " + instruction);
+                });
+            }
+        }
+        reversed.get(START + 1).add(Instruction.epsilon(accepting));
+
+        int[] slots = new int[accepting + 1];
+        Arrays.fill(slots, -1);
+        return new Program(reversed.stream().map(instructions -> instructions.toArray(Instruction[]::new))
+                .toArray(Instruction[][]::new), slots, 2);
+    }
+
+    private boolean[] reachable() {
+        boolean[] isReachable = new boolean[states.length];
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(START);
+        while (!pending.isEmpty()) {
+            int state = pending.pop();
+            if (isReachable[state]) continue;
+            isReachable[state] = true;
+            for (Instruction instruction : states[state]) {
+                pending.push(instruction.target());
+            }
+        }
+        return isReachable;
+    }
+
+    private static Assertion mirror(Assertion assertion) {
+        return switch (assertion) {
+            case START_OF_LINE -> Assertion.END_OF_LINE;
+            case END_OF_LINE -> Assertion.START_OF_LINE;
+            case START_OF_STRING -> Assertion.END_OF_STRING_NOT_NEWLINE;
+            case END_OF_STRING, END_OF_STRING_NOT_NEWLINE -> Assertion.START_OF_STRING;
+            case WORD_BOUNDARY, NON_WORD_BOUNDARY -> assertion;
+            case PREVIOUS_MATCH_END -> throw new IllegalArgumentException("Can't reverse " + assertion);
+        };
+    }
+
+    static Program from(CompiledStateMachine fsm, List<CompiledCaptureGroup> captureGroups) {
+        List<List<CompiledTransition>> transitions = fsm.transitions();
+        List<Instruction[]> states = new ArrayList<>();
+        for (int i = 0; i < transitions.size(); i++) {
+            states.add(null);
+        }
+
+        for (int state = 0; state < transitions.size(); state++) {
+            List<CompiledTransition> stateTransitions = transitions.get(state);
+            Instruction[] instructions = new Instruction[stateTransitions.size()];
+            for (int i = 0; i < instructions.length; i++) {
+                CompiledTransition transition = stateTransitions.get(i);
+                instructions[i] = lower(transition.condition(), transition.end().state(), states);
+            }
+            states.set(state, instructions);
+        }
+
+        int groupCount = captureGroups.stream().mapToInt(CompiledCaptureGroup::index).max().orElse(0);
+        int[] slots = new int[states.size()];
+        Arrays.fill(slots, -1);
+        for (CompiledCaptureGroup captureGroup : captureGroups) {
+            slots[captureGroup.start().state()] = 2 * captureGroup.index();
+            slots[captureGroup.end().state()] = 2 * captureGroup.index() + 1;
+        }
+
+        return new Program(states.toArray(Instruction[][]::new), slots, 2 * (groupCount + 1));
+    }
+
+    private static Instruction lower(Condition condition, int target, List<Instruction[]> states) {
+        return switch (condition) {
+            case Epsilon(var predicate) when predicate == null -> Instruction.epsilon(target);
+            case Epsilon(var predicate) when predicate instanceof Assertion assertion ->
+                    Instruction.assertion(target, assertion);
+            case CharacterCondition character -> Instruction.character(target, character);
+            case StringCondition string -> expand(string, target, states);
+            case BackReferenceCondition backReference -> Instruction.backReference(target, backReference.groupIndex());
+            default -> throw new IllegalArgumentException("Unsupported condition " + condition);
+        };
+    }
+
+    /**
+     * Appends a state for every character of the string except the first one,
+     * returns the instruction matching the first character.
+     */
+    private static Instruction expand(StringCondition condition, int target, List<Instruction[]> states) {
+        String string = condition.string();
+        int next = target;
+        for (int i = string.length() - 1; i > 0; i--) {
+            states.add(new Instruction[]{
+                    Instruction.character(next, CharacterCondition.character(string.charAt(i), condition.ignoreCase()))
+            });
+            next = states.size() - 1;
+        }
+        return Instruction.character(next, CharacterCondition.character(string.charAt(0), condition.ignoreCase()));
+    }
+}
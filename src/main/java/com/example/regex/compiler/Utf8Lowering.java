@@ -0,0 +1,166 @@
+package com.example.regex.compiler;
+
+import com.example.regex.compiler.Program.Instruction;
+import com.example.regex.fsm.CharacterCondition;
+import com.example.regex.util.ByteSequence;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lowers a {@link Program} over characters into a program over the bytes of their UTF-8
+ * encoding, so the automata based matchers run on raw bytes through a
+ * {@link ByteSequence#utf8(java.nio.ByteBuffer, int, int)} view.
+ * <p>
+ * Each character instruction becomes the alternation of the byte sequences encoding the
+ * code points it matches, sequences ending the same way share their states. Surrogates
+ * are not code points: a supplementary character is matched by the conditions which
+ * match lone surrogates, {@code .} or {@code [^a]}, as a single character.
+ */
+public final class Utf8Lowering {
+    private static final int MAX_ONE_BYTE = 0x7F;
+    private static final int MAX_TWO_BYTES = 0x7FF;
+    private static final int MAX_THREE_BYTES = 0xFFFF;
+    private static final int MAX_CODE_POINT = 0x10FFFF;
+
+    private final List<Instruction[]> states;
+    private final Map<CharacterCondition, List<byte[][]>> sequences = new HashMap<>();
+    /**
+     * State matching the rest of a sequence then going to a target, by the ranges left
+     * and the target
+     */
+    private final Map<Suffix, Integer> suffixes = new HashMap<>();
+
+    private Utf8Lowering(Program program) {
+        this.states = new ArrayList<>(Arrays.asList(program.states()));
+    }
+
+    public static Program lower(Program program) {
+        Utf8Lowering lowering = new Utf8Lowering(program);
+        int stateCount = program.stateCount();
+        for (int state = 0; state < stateCount; state++) {
+            List<Instruction> instructions = new ArrayList<>();
+            for (Instruction instruction : program.states()[state]) {
+                if (instruction.opcode() == Instruction.CHARACTER) {
+                    lowering.lower(instruction, instructions);
+                } else {
+                    instructions.add(instruction);
+                }
+            }
+            lowering.states.set(state, instructions.toArray(Instruction[]::new));
+        }
+
+        int[] slots = Arrays.copyOf(program.slots(), lowering.states.size());
+        Arrays.fill(slots, stateCount, slots.length, -1);
+        return new Program(lowering.states.toArray(Instruction[][]::new), slots, program.slotCount());
+    }
+
+    private void lower(Instruction instruction, List<Instruction> instructions) {
+        for (byte[][] sequence : sequences.computeIfAbsent(instruction.character(), Utf8Lowering::sequences)) {
+            int next = suffix(sequence, 1, instruction.target());
+            instructions.add(Instruction.character(next, new UnitRange(sequence[0][0], sequence[0][1])));
+        }
+    }
+
+    private int suffix(byte[][] sequence, int from, int target) {
+        if (from == sequence.length) return target;
+        int next = suffix(sequence, from + 1, target);
+        return suffixes.computeIfAbsent(new Suffix(sequence[from][0], sequence[from][1], next), suffix -> {
+            states.add(new Instruction[]{Instruction.character(next, new UnitRange(suffix.low(), suffix.high()))});
+            return states.size() - 1;
+        });
+    }
+
+    /**
+     * Returns the byte sequences, as {@code [low, high]} ranges of each byte, encoding the
+     * code points matched by the condition
+     */
+    static List<byte[][]> sequences(CharacterCondition condition) {
+        List<byte[][]> sequences = new ArrayList<>();
+        BitSet characters = condition.characters();
+        characters.clear(Character.MIN_SURROGATE, Character.MAX_SURROGATE + 1);
+        for (int start = characters.nextSetBit(0); start >= 0; ) {
+            int end = characters.nextClearBit(start);
+            addSequences(start, end - 1, sequences);
+            start = characters.nextSetBit(end);
+        }
+        if (condition.matches(Character.MIN_HIGH_SURROGATE) && condition.matches(Character.MIN_LOW_SURROGATE)) {
+            addSequences(MAX_THREE_BYTES + 1, MAX_CODE_POINT, sequences);
+        }
+        return sequences;
+    }
+
+    /**
+     * Splits a range of code points until the first and last code point of each piece
+     * are encoded with as many bytes and only differ by whole continuation bytes, then
+     * each piece is a sequence of byte ranges.
+     */
+    private static void addSequences(int start, int end, List<byte[][]> sequences) {
+        if (start < Character.MIN_SURROGATE && end > Character.MAX_SURROGATE) {
+            addSequences(start, Character.MIN_SURROGATE - 1, sequences);
+            addSequences(Character.MAX_SURROGATE + 1, end, sequences);
+            return;
+        }
+        for (int max : new int[]{MAX_ONE_BYTE, MAX_TWO_BYTES, MAX_THREE_BYTES}) {
+            if (start <= max && end > max) {
+                addSequences(start, max, sequences);
+                addSequences(max + 1, end, sequences);
+                return;
+            }
+        }
+        if (end > MAX_ONE_BYTE) {
+            for (int bits = 6; bits < 24; bits += 6) {
+                int mask = (1 << bits) - 1;
+                if ((start & ~mask) == (end & ~mask)) continue;
+                if ((start & mask) != 0) {
+                    addSequences(start, start | mask, sequences);
+                    addSequences((start | mask) + 1, end, sequences);
+                    return;
+                }
+                if ((end & mask) != mask) {
+                    addSequences(start, (end & ~mask) - 1, sequences);
+                    addSequences(end & ~mask, end, sequences);
+                    return;
+                }
+            }
+        }
+
+        byte[] low = Character.toString(start).getBytes(StandardCharsets.UTF_8);
+        byte[] high = Character.toString(end).getBytes(StandardCharsets.UTF_8);
+        byte[][] sequence = new byte[low.length][];
+        for (int i = 0; i < low.length; i++) {
+            sequence[i] = new byte[]{low[i], high[i]};
+        }
+        sequences.add(sequence);
+    }
+
+    private record Suffix(byte low, byte high, int target) {
+    }
+
+    /**
+     * Matches the code units of {@link ByteSequence#utf8} views of the bytes from
+     * {@code low} to {@code high}
+     */
+    private record UnitRange(char low, char high) implements CharacterCondition {
+        UnitRange(byte low, byte high) {
+            this(ByteSequence.utf8Unit(low), ByteSequence.utf8Unit(high));
+        }
+
+        @Override
+        public boolean matches(char character) {
+            return low <= character && character <= high;
+        }
+
+        @Override
+        public BitSet characters() {
+            BitSet characters = new BitSet();
+            characters.set(low, high + 1);
+            return characters;
+        }
+    }
+}
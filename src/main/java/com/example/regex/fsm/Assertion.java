@@ -0,0 +1,70 @@
+package com.example.regex.fsm;
+
+import com.example.regex.util.CharacterSet;
+
+import java.util.function.Predicate;
+
+/**
+ * Zero-width conditions used by anchors. Each assertion only looks at the
+ * characters around the current position, so matchers can evaluate them
+ * without a {@link Cursor}.
+ */
+public enum Assertion implements Predicate<Cursor> {
+    /**
+     * The beginning of the input or the position right after a '\n'
+     */
+    START_OF_LINE,
+    /**
+     * The beginning of the input
+     */
+    START_OF_STRING,
+    /**
+     * The end of the input or the position right before a '\n'
+     */
+    END_OF_LINE,
+    /**
+     * The end of the input or the position right before a '\n' which ends the input
+     */
+    END_OF_STRING,
+    /**
+     * The end of the input
+     */
+    END_OF_STRING_NOT_NEWLINE,
+    /**
+     * The position where the previous match ended
+     */
+    PREVIOUS_MATCH_END,
+    WORD_BOUNDARY,
+    NON_WORD_BOUNDARY;
+
+    @Override
+    public boolean test(Cursor cursor) {
+        return test(cursor.string(), cursor.index(), cursor.getPreviousMatchIndex().orElse(0));
+    }
+
+    public boolean test(CharSequence input, int index, int previousMatchIndex) {
+        int length = input.length();
+        return switch (this) {
+            case START_OF_LINE -> index == 0 || input.charAt(index - 1) == '\n';
+            case START_OF_STRING -> index == 0;
+            case END_OF_LINE -> index == length || input.charAt(index) == '\n';
+            case END_OF_STRING -> index == length || (index == length - 1 && input.charAt(index) == '\n');
+            case END_OF_STRING_NOT_NEWLINE -> index == length;
+            case PREVIOUS_MATCH_END -> index == previousMatchIndex;
+            case WORD_BOUNDARY -> isWordBefore(input, index) != isWordAt(input, index);
+            case NON_WORD_BOUNDARY -> isWordBefore(input, index) == isWordAt(input, index);
+        };
+    }
+
+    private static boolean isWordBefore(CharSequence input, int index) {
+        return index > 0 && isWord(input.charAt(index - 1));
+    }
+
+    private static boolean isWordAt(CharSequence input, int index) {
+        return index < input.length() && isWord(input.charAt(index));
+    }
+
+    public static boolean isWord(char character) {
+        return CharacterSet.word.contains(character);
+    }
+}
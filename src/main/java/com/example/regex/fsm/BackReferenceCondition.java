@@ -0,0 +1,9 @@
+package com.example.regex.fsm;
+
+/**
+ * A condition which consumes the text previously captured by the group
+ * {@link #groupIndex()}.
+ */
+public interface BackReferenceCondition extends Condition {
+    int groupIndex();
+}
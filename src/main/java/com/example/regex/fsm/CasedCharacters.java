@@ -0,0 +1,25 @@
+package com.example.regex.fsm;
+
+import java.util.BitSet;
+
+import static java.lang.Character.toLowerCase;
+import static java.lang.Character.toUpperCase;
+
+/**
+ * The characters with another lower or upper case, the only ones matched differently
+ * when the case is ignored
+ */
+final class CasedCharacters {
+    static final BitSet ALL = new BitSet();
+
+    static {
+        for (int character = 0; character <= Character.MAX_VALUE; character++) {
+            if (toLowerCase((char) character) != character || toUpperCase((char) character) != character) {
+                ALL.set(character);
+            }
+        }
+    }
+
+    private CasedCharacters() {
+    }
+}
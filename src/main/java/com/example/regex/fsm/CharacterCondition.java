@@ -0,0 +1,39 @@
+package com.example.regex.fsm;
+
+import com.example.regex.fsm.ConditionResult.accepted;
+import com.example.regex.fsm.ConditionResult.rejected;
+
+import java.util.BitSet;
+
+/**
+ * A condition which consumes exactly one character. Automata based matchers
+ * test characters directly instead of going through a {@link Cursor}.
+ */
+public interface CharacterCondition extends Condition {
+    boolean matches(char character);
+
+    @Override
+    default ConditionResult apply(Cursor cursor) {
+        return cursor.character()
+                .filter(this::matches)
+                .map(_ignore -> (ConditionResult) new accepted())
+                .orElse(new rejected());
+    }
+
+    /**
+     * Returns a new set of the characters matched, for the checks comparing conditions
+     */
+    default BitSet characters() {
+        BitSet characters = new BitSet(Character.MAX_VALUE + 1);
+        for (int character = 0; character <= Character.MAX_VALUE; character++) {
+            if (matches((char) character)) {
+                characters.set(character);
+            }
+        }
+        return characters;
+    }
+
+    static CharacterCondition character(char character, boolean ignoreCase) {
+        return new MatchCharacter(character, ignoreCase);
+    }
+}
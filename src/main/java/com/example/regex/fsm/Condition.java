@@ -2,8 +2,10 @@ package com.example.regex.fsm;
 
 import com.example.regex.fsm.ConditionResult.accepted;
 import com.example.regex.fsm.ConditionResult.rejected;
+import com.example.regex.simd.CharScanners;
 import com.example.regex.util.CharacterSet;
 
+import java.util.BitSet;
 import java.util.function.Function;
 
 import static java.lang.Character.toLowerCase;
@@ -16,70 +18,81 @@ public interface Condition extends Function<Cursor, ConditionResult> {
     }
 }
 
-record MatchCharacter(char character, boolean ignoreCase) implements Condition {
+record MatchString(String string, int count, boolean ignoreCase) implements StringCondition {
 
     @Override
     public ConditionResult apply(Cursor cursor) {
-        return cursor.character()
-                .filter(this::matches)
-                .map(_ignore -> (ConditionResult) new accepted())
-                .orElse(new rejected());
+        return matches(cursor.string(), cursor.index())
+                ? new accepted(count)
+                : new rejected();
     }
 
-    private boolean matches(Character inputChr) {
-        return ignoreCase
-                ? toLowerCase(inputChr) == toLowerCase(character)
-                : inputChr == character;
+    private boolean matches(CharSequence input, int index) {
+        if (!ignoreCase) return CharScanners.best().regionMatches(input, index, string);
+        if (input instanceof String inputString) return inputString.regionMatches(true, index, string, 0, count);
+        if (index < 0 || index + count > input.length()) return false;
+        for (int i = 0; i < count; i++) {
+            char inputChr = input.charAt(index + i);
+            char character = string.charAt(i);
+            if (inputChr != character && toUpperCase(inputChr) != toUpperCase(character) &&
+                toLowerCase(inputChr) != toLowerCase(character)) {
+                return false;
+            }
+        }
+        return true;
     }
 }
 
-record MatchString(String string, int count, boolean ignoreCase) implements Condition {
+record MatchCharacterSet(CharacterSet set, boolean ignoreCase, boolean isNegative) implements CharacterCondition {
 
     @Override
-    public ConditionResult apply(Cursor cursor) {
-        return cursor.substring(count)
-                .filter(this::matches)
-                .map(_ignore -> (ConditionResult) new accepted(count))
-                .orElse(new rejected());
+    public boolean matches(char inputChr) {
+        boolean contains = ignoreCase
+                ? set.contains(toLowerCase(inputChr)) || set.contains(toUpperCase(inputChr))
+                : set.contains(inputChr);
+        return contains != isNegative;
     }
 
-    private boolean matches(String inputStr) {
-        return ignoreCase
-                ? inputStr.equalsIgnoreCase(string)
-                : inputStr.equals(string);
+    @Override
+    public BitSet characters() {
+        BitSet characters = set.characters();
+        if (ignoreCase) {
+            // The others are their own lower and upper case
+            CasedCharacters.ALL.stream().forEach(cased -> characters.set(cased,
+                    set.contains(toLowerCase((char) cased)) || set.contains(toUpperCase((char) cased))));
+        }
+        if (isNegative) {
+            characters.flip(0, Character.MAX_VALUE + 1);
+        }
+        return characters;
     }
 }
 
-record MatchCharacterSet(CharacterSet set, boolean ignoreCase, boolean isNegative) implements Condition {
-    @Override
-    public ConditionResult apply(Cursor cursor) {
-        return cursor.character()
-                .filter(this::matches)
-                .map(_ignore -> (ConditionResult) new accepted())
-                .orElse(new rejected());
-    }
+record MatchAnyCharacter(boolean includingNewLine) implements CharacterCondition {
 
-    private boolean matches(Character inputChr) {
-        return isNegative != ignoreCase
-                ? set.contains(toLowerCase(inputChr)) || set.contains(toUpperCase(inputChr))
-                : set.contains(inputChr);
+    @Override
+    public boolean matches(char inputChr) {
+        return includingNewLine || inputChr != '\n';
     }
-}
 
-record MatchAnyCharacter(boolean includingNewLine) implements Condition {
     @Override
-    public ConditionResult apply(Cursor cursor) {
-        return cursor.character()
-                .filter(ch -> includingNewLine || ch != '\n')
-                .map(_ignore -> (ConditionResult) new accepted())
-                .orElse(new rejected());
+    public BitSet characters() {
+        BitSet characters = new BitSet();
+        characters.set(0, Character.MAX_VALUE + 1);
+        characters.set('\n', includingNewLine);
+        return characters;
     }
 }
 
-record BackReference(int groupIndex) implements Condition {
+record BackReference(int groupIndex) implements BackReferenceCondition {
 
     @Override
     public ConditionResult apply(Cursor cursor) {
-        throw new UnsupportedOperationException();
+        return cursor.groups().containsKey(groupIndex)
+                ? cursor.substring(cursor.groups().get(groupIndex))
+                        .flatMap(group -> cursor.substring(group.length()).filter(group::equals))
+                        .map(group -> (ConditionResult) new accepted(group.length()))
+                        .orElse(new rejected())
+                : new rejected();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,5 @@
 package com.example.regex.fsm;
 
-import com.example.regex.util.CharacterSet;
 import com.example.regex.util.Range;
 
 import java.util.HashMap;
@@ -15,8 +14,8 @@ public class Cursor {
     /**
      * The entire input string
      */
-    private final String string;
-    private final int endIndex;
+    private CharSequence string;
+    private int endIndex;
     /**
      * Captured groups
      */
@@ -26,15 +25,31 @@ public class Cursor {
      * The current index of the cursor
      */
     private int index;
-    private OptionalInt previousMatchIndex;
+    /**
+     * Where the previous match ended, {@code -1} before the first one
+     */
+    private int previousMatchIndex;
 
-    public Cursor(String string) {
+    public Cursor(CharSequence string) {
         this.string = string;
         this.startIndex = 0;
         this.endIndex = string.length();
         this.group = new HashMap<>();
         this.index = 0;
-        this.previousMatchIndex = OptionalInt.empty();
+        this.previousMatchIndex = -1;
+    }
+
+    /**
+     * Moves the cursor to the start of another string, forgetting the groups and the
+     * previous match
+     */
+    public void reset(CharSequence string) {
+        this.string = string;
+        this.startIndex = 0;
+        this.endIndex = string.length();
+        this.group.clear();
+        this.index = 0;
+        this.previousMatchIndex = -1;
     }
 
     public Optional<Character> character() {
@@ -42,7 +57,7 @@ public class Cursor {
     }
 
     public Optional<Character> charAt(int index) {
-        return index < endIndex ? Optional.of(string.charAt(index)) : Optional.empty();
+        return 0 <= index && index < endIndex ? Optional.of(string.charAt(index)) : Optional.empty();
     }
 
     public Optional<Character> charOffsetBy(int offset) {
@@ -51,10 +66,20 @@ public class Cursor {
 
     public Optional<String> substring(int offset) {
         return index + offset <= endIndex
-                ? Optional.of(string.substring(index, index + offset))
+                ? Optional.of(string.subSequence(index, index + offset).toString())
                 : Optional.empty();
     }
 
+    public Optional<String> substring(int from, int to) {
+        return 0 <= from && from <= to && to <= endIndex
+                ? Optional.of(string.subSequence(from, to).toString())
+                : Optional.empty();
+    }
+
+    public Optional<String> substring(Range<Integer> range) {
+        return substring(range.lowerBound(), range.upperBound());
+    }
+
     public boolean isAtStart() {
         return index == startIndex;
     }
@@ -68,25 +93,54 @@ public class Cursor {
     }
 
     public boolean isAtWordBoundary() {
-        if (character().isEmpty()) return true;
-        char chr = character().get();
-        char lhs = charOffsetBy(-1).orElse(' ');
-        char rhs = charOffsetBy(1).orElse(' ');
-
-        return isWord(chr)
-                ? !isWord(lhs)
-                : isWord(lhs) || !isWord(rhs);
+        return Assertion.WORD_BOUNDARY.test(this);
     }
 
     public OptionalInt getPreviousMatchIndex() {
-        return previousMatchIndex;
+        return previousMatchIndex < 0 ? OptionalInt.empty() : OptionalInt.of(previousMatchIndex);
     }
 
     public int getIndex() {
         return index;
     }
 
+    public int index() {
+        return index;
+    }
+
+    public int startIndex() {
+        return startIndex;
+    }
+
+    public Map<Integer, Range<Integer>> groups() {
+        return group;
+    }
+
+    public CharSequence string() {
+        return string;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public void setStartIndex(int startIndex) {
+        this.startIndex = startIndex;
+    }
+
+    public void setPreviousMatchIndex(int previousMatchIndex) {
+        this.previousMatchIndex = previousMatchIndex;
+    }
+
+    public void setGroup(int index, Range<Integer> range) {
+        group.put(index, range);
+    }
+
+    public void clearGroups() {
+        group.clear();
+    }
+
     boolean isWord(char c) {
-        return CharacterSet.word.contains(c);
+        return Assertion.isWord(c);
     }
 }
@@ -88,6 +88,10 @@ public final class FSM {
         return new FSM(new MatchCharacterSet(set, ignoreCase, group.isInverted()));
     }
 
+    public static FSM characterSet(CharacterSet set, boolean ignoreCase) {
+        return new FSM(new MatchCharacterSet(set, ignoreCase, false));
+    }
+
     public static FSM anyCharacter(boolean includingNewLine) {
         return new FSM(new MatchAnyCharacter(includingNewLine));
     }
@@ -100,28 +104,32 @@ public final class FSM {
         quantifier  => qs -> qe
 
         qs ---eps---> cs
-        cs ---eps---> qe
+        qs ---eps---> qe
+        ce ---eps---> cs
+        ce ---eps---> qe
 
         effectively
-                   |------------v
-            qs -> cs (...) ce   qe
-                   ^------–-|
+            |--------------------------v
+            qs -> cs (...) ce -------> qe
+                   ^-------|
 
-        if lazy
-            first skip the quantifier hence reverse child.start transition
+        The exit is taken from qs and ce rather than from cs, so when the child is
+        a capture group its start is only recorded for iterations which happen.
 
-        ce ---eps---> cs
+        if lazy
+            first skip the quantifier hence reverse qs and ce transitions
          */
         FSM quantifier = new FSM();
 
         quantifier.start.setTransitions(List.of(
-                epsilon(child.start)));
-        child.start.addTransition(epsilon(quantifier.end));
-        // TODO should it be add Transition or set Transition?
+                epsilon(child.start),
+                epsilon(quantifier.end)));
         child.end.setTransitions(List.of(
-                epsilon(child.start)));
+                epsilon(child.start),
+                epsilon(quantifier.end)));
         if (isLazy) {
-            child.start.reverseTransition();
+            quantifier.start.reverseTransition();
+            child.end.reverseTransition();
         }
 
         return quantifier;
@@ -174,10 +182,10 @@ public final class FSM {
     }
 
     // Anchors
-    private static FSM anchor(Predicate<Cursor> condition) {
+    private static FSM anchor(Assertion assertion) {
         FSM anchor = new FSM();
         anchor.start.setTransitions(List.of(
-                epsilon(anchor.end, condition))
+                epsilon(anchor.end, assertion))
         );
         return anchor;
     }
@@ -186,16 +194,14 @@ public final class FSM {
      * Matches the beginning of the line
      */
     public static FSM startOfString() {
-        LOGGER.info("Copied the logic from swift code, please check");
-        return anchor(cursor -> cursor.isFromStart() ||
-                                cursor.character().isEmpty() || cursor.character().get() == '\n');
+        return anchor(Assertion.START_OF_LINE);
     }
 
     /**
      * Matches the beginning of the string (ignore '.multiline' option)
      */
     public static FSM startOfStringOnly() {
-        return anchor(Cursor::isFromStart);
+        return anchor(Assertion.START_OF_STRING);
     }
 
     /**
@@ -203,22 +209,21 @@ public final class FSM {
      * (end of the line in '.multiline' mode)
      */
     public static FSM endOfString() {
-        return anchor(cursor -> cursor.character().isEmpty() || cursor.character().get() == '\n');
+        return anchor(Assertion.END_OF_LINE);
     }
 
     /**
      * Matches the end of the string or '\n' at the end of the string
      */
     public static FSM endOfStringOnly() {
-        return anchor(cursor -> cursor.character().isEmpty() ||
-                                (cursor.isAtLastIndex() && cursor.character().get() == '\n'));
+        return anchor(Assertion.END_OF_STRING);
     }
 
     /**
-     * Matches the end of the string or '\n' at the end of the string (ignores '.multiline' option).
+     * Matches the end of the string (ignores '.multiline' option).
      */
     public static FSM endOfStringOnlyNotNewLine() {
-        return anchor(cursor -> cursor.character().isEmpty());
+        return anchor(Assertion.END_OF_STRING_NOT_NEWLINE);
     }
 
     /**
@@ -226,23 +231,21 @@ public final class FSM {
      * Ensures that all matches are contiguous.
      */
     public static FSM previousMatchEnd() {
-        return anchor(cursor -> cursor.isAtStart() ||       // There couldn't be any matches before the start
-                                cursor.getPreviousMatchIndex().isPresent() ||
-                                cursor.getPreviousMatchIndex().getAsInt() == cursor.getIndex());
+        return anchor(Assertion.PREVIOUS_MATCH_END);
     }
 
     /**
      * The match must occur on a word boundary
      */
     public static FSM wordBoundary() {
-        return anchor(Cursor::isAtWordBoundary);
+        return anchor(Assertion.WORD_BOUNDARY);
     }
 
     /**
      * The match must occur on a non-word boundary
      */
     public static FSM nonWordBoundary() {
-        return anchor(Predicate.not(Cursor::isAtWordBoundary));
+        return anchor(Assertion.NON_WORD_BOUNDARY);
     }
 
     public static FSM concatenate(List<FSM> fsms) {
@@ -257,6 +260,18 @@ public final class FSM {
         return new FSM(lhs.start, rhs.end);
     }
 
+    /**
+     * Tries the children in order, the first one has the highest priority
+     */
+    public static FSM alternation(List<FSM> children) {
+        FSM alternation = new FSM();
+        for (FSM child : children) {
+            alternation.start.addTransition(epsilon(child.start));
+            child.end.setTransitions(List.of(epsilon(alternation.end)));
+        }
+        return alternation;
+    }
+
     public static FSM group(FSM child) {
         FSM group = new FSM();
         group.start.addTransition(epsilon(child.start));
@@ -0,0 +1,31 @@
+package com.example.regex.fsm;
+
+import java.util.BitSet;
+
+import static java.lang.Character.toLowerCase;
+
+record MatchCharacter(char character, boolean ignoreCase) implements CharacterCondition {
+
+    @Override
+    public boolean matches(char inputChr) {
+        return ignoreCase
+                ? toLowerCase(inputChr) == toLowerCase(character)
+                : inputChr == character;
+    }
+
+    @Override
+    public BitSet characters() {
+        BitSet characters = new BitSet();
+        if (!ignoreCase) {
+            characters.set(character);
+            return characters;
+        }
+        // A character of a single case only matches its own lower case
+        char lowerCase = toLowerCase(character);
+        if (!CasedCharacters.ALL.get(lowerCase)) {
+            characters.set(lowerCase);
+        }
+        CasedCharacters.ALL.stream().filter(cased -> matches((char) cased)).forEach(characters::set);
+        return characters;
+    }
+}
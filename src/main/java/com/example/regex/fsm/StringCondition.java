@@ -0,0 +1,10 @@
+package com.example.regex.fsm;
+
+/**
+ * A condition which consumes a literal string in a single transition.
+ */
+public interface StringCondition extends Condition {
+    String string();
+
+    boolean ignoreCase();
+}
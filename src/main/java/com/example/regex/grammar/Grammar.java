@@ -7,6 +7,7 @@ import com.example.regex.util.CharacterSet;
 import com.example.regex.util.Range;
 import com.example.regex.util.Util;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -189,17 +190,22 @@ public interface Grammar {
             .orThrow("Pattern must not be empty")
             .map(Grammar::flatten);
 
+    /**
+     * The alternatives are parsed in a loop rather than recursively, so patterns with
+     * thousands of them don't overflow the stack.
+     */
     Parser<Unit> EXPRESSION = zip(
             SUB_EXPRESSION,
-            optional(
-                    second(string("|"),
-                            lazy(() -> Grammar.EXPRESSION))))
+            second(string("|"), SUB_EXPRESSION).zeroOrMore())
             .map(result -> {
                 Unit lhs = result.firstValue();
-                Optional<Unit> rhs = result.secondValue();
+                List<Unit> rhs = result.secondValue();
+                if (rhs.isEmpty()) return lhs;
 
-                return rhs.map(value -> (Unit) new Alternation(List.of(lhs, value)))
-                        .orElse(lhs);
+                List<Unit> alternatives = new ArrayList<>();
+                alternatives.add(lhs);
+                alternatives.addAll(rhs);
+                return new Alternation(alternatives);
             });
 
     Parser<Unit> GROUP = zip(
@@ -210,7 +216,7 @@ public interface Grammar {
                     EXPRESSION,
                     string(")").orThrow("Unmatched opening parenthesis")))
             .map(result -> {
-                boolean isCapturing = result.firstValue();
+                boolean isCapturing = !result.firstValue();
                 return new Group(Optional.empty(), isCapturing, List.of(result.secondValue()));
             });
 
@@ -218,7 +224,35 @@ public interface Grammar {
             optionalb(string("^")),
             first(Grammar.EXPRESSION, Grammar.END_OF_PATTERN))
             .map(result -> new AST(result.firstValue(),
-                    result.secondValue()));
+                    indexCaptureGroups(result.secondValue(), new int[]{0})));
+
+    /**
+     * Numbers capturing groups from 1 in the order of their opening parenthesis
+     */
+    static Unit indexCaptureGroups(Unit unit, int[] counter) {
+        return switch (unit) {
+            case Group group -> {
+                Optional<Integer> index = group.isCapturing()
+                        ? Optional.of(++counter[0])
+                        : Optional.empty();
+                yield new Group(index, group.isCapturing(), indexCaptureGroups(group.children(), counter));
+            }
+            case ImplicitGroup group -> new ImplicitGroup(indexCaptureGroups(group.children(), counter));
+            case Alternation alternation -> new Alternation(indexCaptureGroups(alternation.children(), counter));
+            case QuantifiedExpression quantified -> new QuantifiedExpression(
+                    indexCaptureGroups(quantified.expression(), counter), quantified.quantifier());
+            case Anchor anchor -> anchor;
+            case BackReference backReference -> backReference;
+            case CharacterGroup characterGroup -> characterGroup;
+            case Match match -> match;
+        };
+    }
+
+    private static List<Unit> indexCaptureGroups(List<Unit> children, int[] counter) {
+        return children.stream()
+                .map(child -> indexCaptureGroups(child, counter))
+                .toList();
+    }
 
 
 }
@@ -0,0 +1,205 @@
+package com.example.regex.matcher;
+
+import com.example.regex.simd.CharScanner;
+import com.example.regex.simd.CharScanners;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton searching for many literals at once, used for the patterns
+ * which are only an alternation of literals such as {@code foo|bar|baz}.
+ * <p>
+ * The literals are stored in a trie, every node knows the longest proper suffix of its
+ * string which is also in the trie (failure link) and the longest one ending a literal
+ * (output link). A search reads every character once whatever the number of literals.
+ * <p>
+ * The automaton reports every literal ending at a position, the leftmost-first match is
+ * the one starting first, the earliest literal of the alternation among those starting
+ * at the same position. Once a match is found, the search only goes on while a literal
+ * starting at the same position could still end.
+ * <p>
+ * At the root, when the first characters of the literals make a few ranges, the
+ * search skips to the next of them with the {@link CharScanner}.
+ * <p>
+ * Immutable, a search doesn't allocate.
+ */
+public final class AhoCorasick {
+    private static final int ROOT = 0;
+
+    /**
+     * Sorted labels of the children of every node and the matching children
+     */
+    private final char[][] labels;
+    private final int[][] children;
+    private final int[] failures;
+    /**
+     * Index of the literal ending at every node, {@code -1} if none
+     */
+    private final int[] outputs;
+    /**
+     * Closest node on the failure chain which ends a literal, {@code -1} if none
+     */
+    private final int[] outputLinks;
+    private final int[] lengths;
+    private final int maxLength;
+    private final BitSet firstCharacters;
+    /**
+     * Ranges of the first characters, {@code null} if there are too many
+     */
+    private final char[] firstRanges;
+    private final CharScanner scanner = CharScanners.best();
+
+    public AhoCorasick(List<String> literals) {
+        if (literals.isEmpty() || literals.stream().anyMatch(String::isEmpty)) {
+            throw new IllegalArgumentException("Literals must not be empty");
+        }
+
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        ends.add(-1);
+        lengths = new int[literals.size()];
+        firstCharacters = new BitSet();
+        for (int literal = 0; literal < literals.size(); literal++) {
+            String string = literals.get(literal);
+            int node = ROOT;
+            for (int i = 0; i < string.length(); i++) {
+                Integer child = trie.get(node).get(string.charAt(i));
+                if (child == null) {
+                    child = trie.size();
+                    trie.get(node).put(string.charAt(i), child);
+                    trie.add(new TreeMap<>());
+                    ends.add(-1);
+                }
+                node = child;
+            }
+            // A duplicate never wins over the first occurrence of the literal
+            if (ends.get(node) < 0) {
+                ends.set(node, literal);
+            }
+            lengths[literal] = string.length();
+            firstCharacters.set(string.charAt(0));
+        }
+        maxLength = Arrays.stream(lengths).max().orElseThrow();
+        firstRanges = CharScanner.ranges(firstCharacters).orElse(null);
+
+        int size = trie.size();
+        labels = new char[size][];
+        children = new int[size][];
+        outputs = new int[size];
+        for (int node = 0; node < size; node++) {
+            TreeMap<Character, Integer> transitions = trie.get(node);
+            labels[node] = new char[transitions.size()];
+            children[node] = new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                labels[node][i] = transition.getKey();
+                children[node][i] = transition.getValue();
+                i++;
+            }
+            outputs[node] = ends.get(node);
+        }
+
+        failures = new int[size];
+        outputLinks = new int[size];
+        outputLinks[ROOT] = -1;
+        linkNodes();
+    }
+
+    /**
+     * Sets the failure and output links in breadth first order, the links of a node
+     * only point to shallower nodes.
+     */
+    private void linkNodes() {
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : children[ROOT]) {
+            failures[child] = ROOT;
+            outputLinks[child] = -1;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < labels[node].length; i++) {
+                char label = labels[node][i];
+                int child = children[node][i];
+
+                int failure = failures[node];
+                while (failure != ROOT && child(failure, label) < 0) {
+                    failure = failures[failure];
+                }
+                int target = child(failure, label);
+                failures[child] = target >= 0 ? target : ROOT;
+                outputLinks[child] = outputs[failures[child]] >= 0 ? failures[child] : outputLinks[failures[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Looks for the leftmost-first literal starting at or after {@code from}.
+     *
+     * @param bounds filled with the start and the end of the match
+     * @param isMatchOnly stop at the first literal found, the bounds are then the ones
+     *                    of this literal
+     */
+    public boolean search(CharSequence input, int from, boolean isMatchOnly, int[] bounds, MatchBudget budget) {
+        int length = input.length();
+        int node = ROOT;
+        int bestStart = -1;
+        int bestLiteral = -1;
+
+        for (int index = Math.max(from, 0); index < length; index++) {
+            // Nothing starting where the match does can end from here
+            if (bestStart >= 0 && index >= bestStart + maxLength) break;
+            if (node == ROOT && firstRanges != null) {
+                int next = scanner.indexOfAny(input, index, length, firstRanges);
+                budget.charge((next < 0 ? length : next) - index);
+                if (next < 0) break;
+                index = next;
+                if (bestStart >= 0 && index >= bestStart + maxLength) break;
+            }
+            budget.charge(1);
+
+            char character = input.charAt(index);
+            if (node == ROOT && !firstCharacters.get(character)) continue;
+            node = next(node, character);
+
+            int output = outputs[node] >= 0 ? node : outputLinks[node];
+            for (; output >= 0; output = outputLinks[output]) {
+                int literal = outputs[output];
+                int start = index + 1 - lengths[literal];
+                if (bestStart < 0 || start < bestStart || (start == bestStart && literal < bestLiteral)) {
+                    bestStart = start;
+                    bestLiteral = literal;
+                }
+            }
+            if (isMatchOnly && bestStart >= 0) break;
+        }
+
+        if (bestStart < 0) return false;
+        bounds[0] = bestStart;
+        bounds[1] = bestStart + lengths[bestLiteral];
+        return true;
+    }
+
+    private int next(int node, char character) {
+        while (true) {
+            int child = child(node, character);
+            if (child >= 0) return child;
+            if (node == ROOT) return ROOT;
+            node = failures[node];
+        }
+    }
+
+    private int child(int node, char character) {
+        int i = Arrays.binarySearch(labels[node], character);
+        return i >= 0 ? children[node][i] : -1;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.regex.matcher;
+
+import com.example.regex.Regex;
+import com.example.regex.compiler.CompiledRegex;
+import com.example.regex.fsm.Cursor;
+import com.example.regex.util.Range;
+
+import java.util.Optional;
+
+/**
+ * Matcher for the patterns which are only an alternation of literals, running on an
+ * {@link AhoCorasick} automaton. The alternation can be in a capture group, which then
+ * spans the whole match.
+ */
+public class AhoCorasickMatcher implements ResettableMatching {
+    private CharSequence string;
+    private final AhoCorasick automaton;
+    private final boolean hasCaptureGroups;
+    private final boolean isMatchOnly;
+    private final int[] bounds;
+    private final Cursor cursor;
+    private final MatchBudget budget;
+    private int index;
+
+    public AhoCorasickMatcher(CharSequence string, CompiledRegex regex, AhoCorasick automaton, Regex.Options options,
+                              boolean isMatchOnly) {
+        this.string = string;
+        this.automaton = automaton;
+        this.hasCaptureGroups = !isMatchOnly && !regex.captureGroups().isEmpty();
+        this.isMatchOnly = isMatchOnly;
+        this.bounds = new int[2];
+        this.cursor = new Cursor(string);
+        this.budget = new MatchBudget(options.stepLimit(), options.timeout());
+        this.index = 0;
+    }
+
+    @Override
+    public void reset(CharSequence string) {
+        this.string = string;
+        this.cursor.reset(string);
+        this.index = 0;
+    }
+
+    @Override
+    public Optional<Regex.Match> nextMatch() {
+        if (!find()) return Optional.empty();
+
+        cursor.clearGroups();
+        if (hasCaptureGroups) {
+            cursor.setGroup(1, new Range<>(cursor.startIndex(), cursor.index()));
+        }
+        return Optional.of(MatchAccess.of(cursor, hasCaptureGroups));
+    }
+
+    @Override
+    public boolean find() {
+        if (index >= string.length() || !automaton.search(string, index, isMatchOnly, bounds, budget.start())) {
+            index = string.length() + 1;
+            return false;
+        }
+
+        int end = bounds[1];
+        cursor.setStartIndex(bounds[0]);
+        cursor.setIndex(end);
+        cursor.setPreviousMatchIndex(end);
+        // Literals aren't empty, the next match can start where this one ends
+        index = end;
+        return true;
+    }
+
+    @Override
+    public void offsets(int[] offsets) {
+        offsets[0] = cursor.startIndex();
+        offsets[1] = cursor.index();
+        if (offsets.length > 2) {
+            // The only group spans the whole match
+            offsets[2] = hasCaptureGroups ? offsets[0] : -1;
+            offsets[3] = hasCaptureGroups ? offsets[1] : -1;
+        }
+    }
+}
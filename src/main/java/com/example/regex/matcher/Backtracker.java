@@ -0,0 +1,353 @@
+package com.example.regex.matcher;
+
+import com.example.regex.MatchLimitExceededException;
+import com.example.regex.MatchLimitExceededException.Limit;
+import com.example.regex.compiler.Program;
+import com.example.regex.compiler.Program.Instruction;
+import com.example.regex.prefilter.Prefilter;
+
+import java.util.Arrays;
+
+/**
+ * Backtracking interpreter of a {@link Program}, used for the patterns the automata
+ * can't run (lazy quantifiers, back references, previous match anchors).
+ * <p>
+ * Instead of recursing, alternatives left to try are pushed as choice points onto an
+ * explicit stack of ints, next to the frames restoring capture slots, so deep inputs
+ * only grow the heap and never overflow the Java stack. The last alternative of a state
+ * leaves no choice point, and a slot is only restored if it was changed. The stack is
+ * kept between searches and only grows, a search doesn't allocate once it is large
+ * enough. It grows up to {@code memoryBudget} bytes.
+ * <p>
+ * A group only gets its capture once it is exited: its start slot is kept aside while
+ * the group runs, so a back reference from inside the group, or to a group entered
+ * again, sees its previous capture rather than a new start with an old end.
+ * <p>
+ * Epsilon loops are cut by remembering at which position every branching state was
+ * entered on the current path: entering it again at the same position can only repeat
+ * what was already tried. The bitmap below already does it when there is one.
+ * <p>
+ * Without back references, what happens after entering a state only depends on the
+ * state and the position, so a pair which was already explored can only fail again.
+ * When {@code states * positions} bits fit in {@code memoryBudget} bytes, every pair
+ * explored by a search is remembered in a bitmap (BitState) and never explored twice,
+ * which bounds the search to {@code O(states * length)} whatever the pattern. The pairs
+ * are shared by all the start positions of a search. When the bitmap doesn't fit, or the
+ * stack outgrows the budget, the search runs on a {@link PikeVM} instead, as linear and
+ * finding the same match. With back references there is no such bound: a search which
+ * outgrows the budget fails with a {@link MatchLimitExceededException}.
+ * <p>
+ * Not thread-safe.
+ */
+public final class Backtracker {
+    private static final int INITIAL_STACK_SIZE = 256;
+
+    private final Program program;
+    private final Prefilter prefilter;
+    private final int[] entries;
+    /**
+     * Start slots of the groups entered and not exited yet, indexed like the captures
+     */
+    private final int[] starts;
+    private int[] stack;
+    private int size;
+    private final int stackLimit;
+    private MatchBudget budget;
+
+    private final long memoryBudget;
+    private final boolean canMemoize;
+    private long[] visited;
+    private boolean isMemoizing;
+    private int from;
+    private int width;
+    /**
+     * Runs the searches not fitting the memory budget, made for the first one
+     */
+    private PikeVM pikeVM;
+
+    public Backtracker(Program program, long memoryBudget) {
+        this(program, memoryBudget, Prefilter.none());
+    }
+
+    /**
+     * @param prefilter positions where a match can start, unanchored searches only try those
+     */
+    public Backtracker(Program program, long memoryBudget, Prefilter prefilter) {
+        this.program = program;
+        this.prefilter = prefilter;
+        this.entries = new int[program.stateCount()];
+        this.starts = new int[program.slotCount()];
+        this.stack = new int[INITIAL_STACK_SIZE];
+        this.stackLimit = (int) Math.min(Integer.MAX_VALUE - 8,
+                Math.max(INITIAL_STACK_SIZE, memoryBudget / Integer.BYTES));
+        this.memoryBudget = memoryBudget;
+        this.canMemoize = Arrays.stream(program.states())
+                .flatMap(Arrays::stream)
+                .noneMatch(instruction -> instruction.opcode() == Instruction.BACK_REFERENCE);
+        this.visited = new long[0];
+    }
+
+    /**
+     * Returns whether the last search remembered the explored (state, position) pairs
+     */
+    public boolean isMemoizing() {
+        return isMemoizing;
+    }
+
+    public int slotCount() {
+        return program.slotCount();
+    }
+
+    /**
+     * Looks for the leftmost-first match starting at or after {@code from}, or exactly
+     * at {@code from} when {@code isAnchored} is set.
+     *
+     * @param captures filled with the capture slots of the match, {@code -1} for the
+     *                 groups which didn't participate. Slots 0 and 1 are the bounds of
+     *                 the whole match.
+     */
+    public boolean search(CharSequence input, int from, int previousMatchIndex, boolean isAnchored,
+                          int[] captures) {
+        return search(input, from, previousMatchIndex, isAnchored, captures, MatchBudget.unlimited().start());
+    }
+
+    /**
+     * Same as {@link #search(CharSequence, int, int, boolean, int[])}, charging the
+     * budget a step for every state tried.
+     *
+     * @throws MatchLimitExceededException if the budget runs out, or with back references
+     *                                     if the stack would outgrow the memory budget
+     */
+    public boolean search(CharSequence input, int from, int previousMatchIndex, boolean isAnchored,
+                          int[] captures, MatchBudget budget) {
+        // A failed attempt restores every entry, only a match leaves them behind
+        Arrays.fill(entries, -1);
+        this.budget = budget;
+        startMemoizing(from, input.length());
+        if (canMemoize && !isMemoizing) {
+            return pikeVM().search(input, from, previousMatchIndex, isAnchored, false, captures, budget);
+        }
+
+        try {
+            int last = isAnchored ? from : input.length();
+            for (int start = from; start <= last; start++) {
+                if (!isAnchored) {
+                    start = prefilter.find(input, start);
+                    if (start < 0) break;
+                }
+                if (matchAt(input, start, previousMatchIndex, captures, budget)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (MatchLimitExceededException e) {
+            if (!canMemoize || e.limit() != Limit.MEMORY) throw e;
+            // Too deep for the stack, the Pike VM doesn't need one
+            return pikeVM().search(input, from, previousMatchIndex, isAnchored, false, captures, budget);
+        }
+    }
+
+    private PikeVM pikeVM() {
+        if (pikeVM == null) {
+            pikeVM = new PikeVM(program, prefilter);
+        }
+        return pikeVM;
+    }
+
+    private boolean matchAt(CharSequence input, int start, int previousMatchIndex, int[] captures,
+                            MatchBudget budget) {
+        Instruction[][] states = program.states();
+        int[] slots = program.slots();
+        int slotCount = program.slotCount();
+        int length = input.length();
+
+        Arrays.fill(captures, -1);
+        Arrays.fill(starts, -1);
+        captures[0] = start;
+        size = 0;
+
+        int state = Program.START;
+        int index = start;
+        int next = 0;
+        int entry = -1;
+        boolean isEntering = true;
+
+        while (true) {
+            budget.charge(1);
+            Instruction[] instructions = states[state];
+            boolean isBranching = instructions.length > 1;
+            boolean isPruned = false;
+
+            if (isEntering && isMemoizing && !visit(state, index)) {
+                // Already explored from another path, it failed there
+                isPruned = true;
+            } else if (isEntering) {
+                int slot = slots[state];
+                if (slot >= 0 && slot % 2 == 0) {
+                    set(starts, slot, slotCount + slot, index);
+                } else if (slot >= 0) {
+                    set(captures, slot - 1, slot - 1, starts[slot - 1]);
+                    set(captures, slot, slot, index);
+                }
+                if (instructions.length == 0) {
+                    captures[1] = index;
+                    return true;
+                }
+
+                next = 0;
+                if (isBranching && !isMemoizing) {
+                    // Back in the same state without consuming anything, nothing new can happen
+                    isPruned = entries[state] == index;
+                    if (!isPruned) {
+                        entry = entries[state];
+                        entries[state] = index;
+                    }
+                }
+            }
+
+            if (!isPruned) {
+                int taken = -1;
+                int consumed = -1;
+                for (int i = next; i < instructions.length && taken < 0; i++) {
+                    consumed = consumed(instructions[i], input, index, length, previousMatchIndex, captures);
+                    if (consumed >= 0) taken = i;
+                }
+
+                if (taken >= 0) {
+                    if (isBranching && taken + 1 < instructions.length) {
+                        pushChoice(state, taken + 1, index, entry);
+                    } else if (isBranching && !isMemoizing) {
+                        // Nothing left to try here, backtracking past the state only restores its entry
+                        pushRestore(2 * slotCount + state, entry);
+                    }
+                    state = instructions[taken].target();
+                    index += consumed;
+                    isEntering = true;
+                    continue;
+                }
+                if (isBranching && !isMemoizing) {
+                    entries[state] = entry;
+                }
+            }
+
+            // Backtrack to the latest choice point
+            while (true) {
+                if (size == 0) return false;
+                int top = stack[size - 1];
+                if (top < 0) {
+                    int slot = ~top;
+                    if (slot < slotCount) {
+                        captures[slot] = stack[size - 2];
+                    } else if (slot < 2 * slotCount) {
+                        starts[slot - slotCount] = stack[size - 2];
+                    } else {
+                        entries[slot - 2 * slotCount] = stack[size - 2];
+                    }
+                    size -= 2;
+                    continue;
+                }
+                state = top;
+                next = stack[size - 2];
+                entry = stack[size - 3];
+                index = stack[size - 4];
+                size -= 4;
+                isEntering = false;
+                break;
+            }
+        }
+    }
+
+    private void startMemoizing(int from, int length) {
+        this.from = from;
+        this.width = length - from + 1;
+        long bits = (long) program.stateCount() * width;
+        isMemoizing = canMemoize && bits <= 8 * memoryBudget;
+        if (!isMemoizing) return;
+
+        int words = (int) ((bits + 63) >>> 6);
+        if (visited.length < words) {
+            visited = new long[words];
+        } else {
+            Arrays.fill(visited, 0, words, 0L);
+        }
+    }
+
+    /**
+     * Marks the pair as explored, returns {@code false} if it already was
+     */
+    private boolean visit(int state, int index) {
+        long bit = (long) state * width + (index - from);
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        if ((visited[word] & mask) != 0) return false;
+        visited[word] |= mask;
+        return true;
+    }
+
+    /**
+     * Returns the number of characters consumed by the instruction or {@code -1} if it can't be taken.
+     */
+    private static int consumed(Instruction instruction, CharSequence input, int index, int length,
+                                int previousMatchIndex, int[] captures) {
+        return switch (instruction.opcode()) {
+            case Instruction.EPSILON -> 0;
+            case Instruction.ASSERTION -> instruction.assertion().test(input, index, previousMatchIndex) ? 0 : -1;
+            case Instruction.CHARACTER ->
+                    index < length && instruction.character().matches(input.charAt(index)) ? 1 : -1;
+            case Instruction.BACK_REFERENCE -> {
+                int groupStart = captures[2 * instruction.group()];
+                int groupEnd = captures[2 * instruction.group() + 1];
+                if (groupStart < 0 || groupEnd < groupStart) yield -1;
+
+                int groupLength = groupEnd - groupStart;
+                if (index + groupLength > length) yield -1;
+                for (int i = 0; i < groupLength; i++) {
+                    if (input.charAt(groupStart + i) != input.charAt(index + i)) yield -1;
+                }
+                yield groupLength;
+            }
+            default -> throw new IllegalStateException("Unsupported instruction " + instruction);
+        };
+    }
+
+    /**
+     * Pushes {@code [index, entry, next, state]}, the state on top identifies a choice point
+     */
+    private void pushChoice(int state, int next, int index, int entry) {
+        ensureCapacity(4);
+        stack[size++] = index;
+        stack[size++] = entry;
+        stack[size++] = next;
+        stack[size++] = state;
+    }
+
+    /**
+     * Sets {@code values[index]}, pushing a frame restoring it to the given slot if it changes
+     */
+    private void set(int[] values, int index, int slot, int value) {
+        if (values[index] != value) {
+            pushRestore(slot, values[index]);
+            values[index] = value;
+        }
+    }
+
+    /**
+     * Pushes {@code [value, ~slot]}, the negative value on top identifies a restore frame.
+     * The slots from {@link #slotCount()} on are the pending {@link #starts}, the ones from
+     * twice the slot count on the {@link #entries}.
+     */
+    private void pushRestore(int slot, int value) {
+        ensureCapacity(2);
+        stack[size++] = value;
+        stack[size++] = ~slot;
+    }
+
+    private void ensureCapacity(int count) {
+        if (size + count > stack.length) {
+            if (size + count > stackLimit) {
+                throw new MatchLimitExceededException(Limit.MEMORY, budget.steps());
+            }
+            stack = Arrays.copyOf(stack, (int) Math.min(stackLimit, 2L * stack.length));
+        }
+    }
+}
@@ -2,16 +2,89 @@ package com.example.regex.matcher;
 
 import com.example.regex.Regex;
 import com.example.regex.compiler.CompiledRegex;
+import com.example.regex.fsm.Cursor;
+import com.example.regex.util.Range;
 
-import java.util.List;
 import java.util.Optional;
 
-public class BacktrackingMatcher implements Matching {
-    public BacktrackingMatcher(String string, CompiledRegex regex, Regex.Options options, boolean isMatchOnly) {
+/**
+ * Matcher for the patterns which aren't regular (lazy quantifiers, back references),
+ * running on a {@link Backtracker}.
+ */
+public class BacktrackingMatcher implements ResettableMatching {
+    private CharSequence string;
+    private final Backtracker backtracker;
+    private final int[] captures;
+    private final boolean hasCaptureGroups;
+    private final Cursor cursor;
+    private final MatchBudget budget;
+    private final LiteralFilter literalFilter;
+    private int index;
+
+    public BacktrackingMatcher(CharSequence string, CompiledRegex regex, Regex.Options options, boolean isMatchOnly) {
+        this.string = string;
+        this.backtracker = new Backtracker(regex.program(), options.backtrackingMemory(), regex.prefilter());
+        this.captures = new int[backtracker.slotCount()];
+        this.hasCaptureGroups = !isMatchOnly && !regex.captureGroups().isEmpty();
+        this.cursor = new Cursor(string);
+        this.budget = new MatchBudget(options.stepLimit(), options.timeout());
+        this.literalFilter = new LiteralFilter(regex.requiredLiteral());
+        this.index = 0;
+    }
+
+    @Override
+    public void reset(CharSequence string) {
+        this.string = string;
+        this.cursor.reset(string);
+        this.literalFilter.reset();
+        this.index = 0;
     }
 
     @Override
     public Optional<Regex.Match> nextMatch() {
-        throw new UnsupportedOperationException();
+        if (!find()) return Optional.empty();
+
+        cursor.clearGroups();
+        if (hasCaptureGroups) {
+            for (int group = 1; 2 * group + 1 < captures.length; group++) {
+                if (captures[2 * group] >= 0 && captures[2 * group + 1] >= captures[2 * group]) {
+                    cursor.setGroup(group, new Range<>(captures[2 * group], captures[2 * group + 1]));
+                }
+            }
+        }
+        return Optional.of(MatchAccess.of(cursor, hasCaptureGroups));
+    }
+
+    @Override
+    public boolean find() {
+        if (index > string.length()) return false;
+
+        int from = literalFilter.searchStart(string, index);
+        int previousMatchIndex = cursor.getPreviousMatchIndex().orElse(0);
+        if (from < 0 || !backtracker.search(string, from, previousMatchIndex, false, captures, budget.start())) {
+            index = string.length() + 1;
+            return false;
+        }
+
+        int start = captures[0];
+        int end = captures[1];
+        cursor.setStartIndex(start);
+        cursor.setIndex(end);
+        cursor.setPreviousMatchIndex(end);
+        index = start == end ? end + 1 : end;
+        return true;
+    }
+
+    @Override
+    public void offsets(int[] offsets) {
+        offsets[0] = cursor.startIndex();
+        offsets[1] = cursor.index();
+        for (int group = 1; 2 * group + 1 < offsets.length; group++) {
+            // The groups dropped by the compiler have no slots
+            boolean isCaptured = hasCaptureGroups && 2 * group + 1 < captures.length && captures[2 * group] >= 0 &&
+                                 captures[2 * group + 1] >= captures[2 * group];
+            offsets[2 * group] = isCaptured ? captures[2 * group] : -1;
+            offsets[2 * group + 1] = isCaptured ? captures[2 * group + 1] : -1;
+        }
     }
 }
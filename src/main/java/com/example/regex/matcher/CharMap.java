@@ -0,0 +1,65 @@
+package com.example.regex.matcher;
+
+/**
+ * A map from characters to values without boxing, by open addressing with linear
+ * probing, for the transitions of the DFA states on the characters outside ASCII.
+ * A lookup is a mask and usually a single comparison.
+ */
+final class CharMap<V> {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private char[] keys = new char[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Returns the value of the character, {@code null} if none
+     */
+    @SuppressWarnings("unchecked")
+    V get(char key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            Object value = values[slot];
+            if (value == null || keys[slot] == key) return (V) value;
+        }
+    }
+
+    void put(char key, V value) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == null) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // Kept at most half full, so the probes stay short
+        if (2 * size > keys.length) {
+            grow();
+        }
+    }
+
+    private void grow() {
+        char[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new char[2 * oldKeys.length];
+        values = new Object[2 * oldValues.length];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = slot(oldKeys[i], mask);
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static int slot(char key, int mask) {
+        // The characters of a script are neighbours, they don't collide
+        return key & mask;
+    }
+}
@@ -0,0 +1,597 @@
+package com.example.regex.matcher;
+
+import com.example.regex.compiler.Program;
+import com.example.regex.compiler.Program.Instruction;
+import com.example.regex.fsm.Assertion;
+import com.example.regex.fsm.CharacterCondition;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Deterministic automaton built from a {@link Program} while the input is consumed
+ * (on-the-fly subset construction).
+ * <p>
+ * A DFA state is the list of NFA states reached right after consuming a character,
+ * in priority order, plus a few flags describing the consumed character. The epsilon
+ * closure is computed when the next character is known, so anchors and word boundaries
+ * can look at both sides of the position. Matches are reported one character late:
+ * a state carrying the match flag means a match ended right before the character that
+ * led to it. When the closure reaches the accepting state all lower priority threads
+ * are dropped, which gives leftmost-first (backtracking compatible) match ends.
+ * <p>
+ * States live in a cache capped at {@code cacheCapacity} bytes. A full cache is cleared
+ * and rebuilt. If it keeps being cleared while consuming only a few characters per
+ * state, the search stops caching and keeps computing states on the fly, which is a
+ * plain NFA simulation.
+ * <p>
+ * Not thread-safe, the cache is shared by every search running on this instance.
+ */
+public final class LazyDFA implements MatchEndSearch {
+    public static final long DEFAULT_CACHE_CAPACITY = 2 * 1024 * 1024;
+
+    /**
+     * Symbol consumed at the end of the input
+     */
+    static final int END = -1;
+    /**
+     * Symbol used for a '\n' which is the last character of the input, see {@link Assertion#END_OF_STRING}
+     */
+    static final int FINAL_NEW_LINE = -2;
+
+    static final int FLAG_START = 1;
+    static final int FLAG_NEW_LINE = 1 << 1;
+    static final int FLAG_WORD = 1 << 2;
+    private static final int FLAG_SEARCHING = 1 << 3;
+    private static final int FLAG_MATCH = 1 << 4;
+
+    private static final int ASCII = 128;
+    private static final int STATE_OVERHEAD = 96 + ASCII * 8;
+    private static final int TRANSITION_OVERHEAD = 48;
+    private static final int MIN_CLEARS_BEFORE_GIVING_UP = 3;
+    private static final int MIN_CHARACTERS_PER_STATE = 10;
+
+    private final Program program;
+    private final long cacheCapacity;
+    /**
+     * Whether the threads of lower priority than a match keep going, see {@link #longest}
+     */
+    private final boolean isLongest;
+    private final Map<Key, DState> cache;
+
+    /**
+     * Every instruction of the program flattened, the instruction {@code i} of the state
+     * {@code s} is at {@code offsets[s] + i}
+     */
+    private final int[] offsets;
+    private final int[] targets;
+    private final CharacterCondition[] conditions;
+    private final boolean isStartTargeted;
+
+    private final SparseSet visited;
+    private final SparseSet reached;
+    private final int[] stack;
+    /**
+     * Scan of the searches on a whole input, one at a time
+     */
+    private final Scan scan = new Scan();
+
+    private long cacheSize;
+    private int cacheClears;
+    private long charactersSinceClear;
+    private boolean isCaching;
+
+    public LazyDFA(Program program) {
+        this(program, DEFAULT_CACHE_CAPACITY);
+    }
+
+    public LazyDFA(Program program, long cacheCapacity) {
+        this(program, cacheCapacity, false);
+    }
+
+    private LazyDFA(Program program, long cacheCapacity, boolean isLongest) {
+        if (program.hasAssertion(Assertion.PREVIOUS_MATCH_END)) {
+            throw new IllegalArgumentException("The DFA doesn't support the previous match end anchor");
+        }
+        this.program = program;
+        this.cacheCapacity = cacheCapacity;
+        this.isLongest = isLongest;
+        this.cache = new HashMap<>();
+
+        int stateCount = program.stateCount();
+        offsets = new int[stateCount + 1];
+        for (int state = 0; state < stateCount; state++) {
+            offsets[state + 1] = offsets[state] + program.states()[state].length;
+        }
+        targets = new int[offsets[stateCount]];
+        conditions = new CharacterCondition[offsets[stateCount]];
+        for (int state = 0; state < stateCount; state++) {
+            Instruction[] instructions = program.states()[state];
+            for (int i = 0; i < instructions.length; i++) {
+                targets[offsets[state] + i] = instructions[i].target();
+                conditions[offsets[state] + i] = instructions[i].character();
+            }
+        }
+
+        isStartTargeted = Arrays.stream(program.states())
+                .flatMap(Arrays::stream)
+                .anyMatch(instruction -> instruction.target() == Program.START);
+
+        visited = new SparseSet(stateCount);
+        reached = new SparseSet(stateCount);
+        stack = new int[offsets[stateCount] + stateCount + 1];
+    }
+
+    /**
+     * Returns a DFA whose anchored scans report the end of the longest match starting at
+     * their start rather than of the leftmost-first one. Run on a reversed input with a
+     * {@link Program#reverse() reversed program}, it finds where the leftmost match
+     * ending at a position starts.
+     */
+    public static LazyDFA longest(Program program) {
+        return new LazyDFA(program, DEFAULT_CACHE_CAPACITY, true);
+    }
+
+    /**
+     * Returns whether a match ends somewhere after {@code from}.
+     */
+    public boolean isMatch(CharSequence input, int from) {
+        return earliestMatchEnd(input, from) >= 0;
+    }
+
+    public boolean isMatch(CharSequence input, int from, MatchBudget budget) {
+        return earliestMatchEnd(input, from, budget) >= 0;
+    }
+
+    /**
+     * Returns the first position where any match starting at or after {@code from}
+     * ends or {@code -1}. Leftmost-first matches can end later than this position,
+     * but can't start after it.
+     */
+    public int earliestMatchEnd(CharSequence input, int from) {
+        return earliestMatchEnd(input, from, MatchBudget.unlimited().start());
+    }
+
+    /**
+     * Same as {@link #earliestMatchEnd(CharSequence, int)}, charging the budget a step
+     * for every character read.
+     */
+    @Override
+    public int earliestMatchEnd(CharSequence input, int from, MatchBudget budget) {
+        return scan(input, from, true, budget);
+    }
+
+    /**
+     * Same as {@link #earliestMatchEnd(CharSequence, int, MatchBudget)} for the matches
+     * starting up to {@code to} included: no attempt starts after it, and the scan is over
+     * once the attempts started before have failed.
+     */
+    @Override
+    public int earliestMatchEnd(CharSequence input, int from, int to, MatchBudget budget) {
+        return searchRegion(input, from, to, true, budget);
+    }
+
+    /**
+     * Returns where the leftmost-first match starting at or after {@code from} ends or
+     * {@code -1}, in a single scan: once a match is found no attempt starts anymore, and
+     * the scan goes on while the attempts of higher priority, which started earlier, can
+     * still match.
+     */
+    @Override
+    public int leftmostMatchEnd(CharSequence input, int from, MatchBudget budget) {
+        Scan scan = startScan(input, from, true, false);
+        advance(scan, input, from, input.length(), 0, true, budget);
+        return (int) scan.matchEnd;
+    }
+
+    /**
+     * Same as {@link #leftmostMatchEnd(CharSequence, int, MatchBudget)} for the matches
+     * starting up to {@code to} included.
+     */
+    @Override
+    public int leftmostMatchEnd(CharSequence input, int from, int to, MatchBudget budget) {
+        return searchRegion(input, from, to, false, budget);
+    }
+
+    private int searchRegion(CharSequence input, int from, int to, boolean isEarliest, MatchBudget budget) {
+        int limit = Math.max(from, Math.min(to, input.length()));
+        Scan scan = startScan(input, from, true, isEarliest);
+        if (!advance(scan, input, from, limit, 0, limit == input.length(), budget)) {
+            scan.state = cached(scan.state.states, scan.state.flags & ~FLAG_SEARCHING);
+            advance(scan, input, limit, input.length(), 0, true, budget);
+        }
+        return (int) scan.matchEnd;
+    }
+
+    /**
+     * Returns where the leftmost-first match starting exactly at {@code from} ends or {@code -1}.
+     */
+    public int anchoredMatchEnd(CharSequence input, int from) {
+        return anchoredMatchEnd(input, from, MatchBudget.unlimited().start());
+    }
+
+    /**
+     * Same as {@link #anchoredMatchEnd(CharSequence, int)}, charging the budget a step
+     * for every character read.
+     */
+    @Override
+    public int anchoredMatchEnd(CharSequence input, int from, MatchBudget budget) {
+        return scan(input, from, false, budget);
+    }
+
+    /**
+     * Same as {@link #anchoredMatchEnd(CharSequence, int, MatchBudget)} for the matches
+     * ending up to {@code to} included, the scan doesn't read further than the character
+     * at {@code to}.
+     */
+    public int anchoredMatchEnd(CharSequence input, int from, int to, MatchBudget budget) {
+        if (to >= input.length()) return anchoredMatchEnd(input, from, budget);
+        Scan scan = startScan(input, from, false, false);
+        // A match ending at to is only reported once the character there is read
+        advance(scan, input, from, to + 1, 0, false, budget);
+        return (int) scan.matchEnd;
+    }
+
+    private int scan(CharSequence input, int from, boolean isSearching, MatchBudget budget) {
+        Scan scan = startScan(input, from, isSearching, isSearching);
+        advance(scan, input, from, input.length(), 0, true, budget);
+        return (int) scan.matchEnd;
+    }
+
+    /**
+     * Starts a scan from {@code from} which is fed the input piece by piece with
+     * {@link #advance}, for inputs which are not held in memory at once. The character
+     * before {@code from}, if any, must be in {@code input}.
+     *
+     * @param isSearching look for the earliest match end of a match starting at or after
+     *                    {@code from}, otherwise for the end of the leftmost-first match
+     *                    starting exactly there
+     */
+    public Scan newScan(CharSequence input, int from, boolean isSearching) {
+        return newScan(input, from, isSearching, isSearching);
+    }
+
+    /**
+     * Same as {@link #newScan(CharSequence, int, boolean)}, a searching scan looks for the
+     * end of the leftmost-first match unless {@code isEarliest} is set
+     */
+    public Scan newScan(CharSequence input, int from, boolean isSearching, boolean isEarliest) {
+        return new Scan().start(newState(input, from, isSearching), isEarliest);
+    }
+
+    /**
+     * Same as {@link #newScan}, reusing the scan of the previous searches on the whole input
+     *
+     * @param isEarliest stop at the first match end found
+     */
+    private Scan startScan(CharSequence input, int from, boolean isSearching, boolean isEarliest) {
+        return scan.start(newState(input, from, isSearching), isEarliest);
+    }
+
+    /**
+     * Returns the start state of a new scan, which starts with the caching heuristics reset
+     */
+    private DState newState(CharSequence input, int from, boolean isSearching) {
+        cacheClears = 0;
+        charactersSinceClear = 0;
+        isCaching = true;
+        return startState(input, from, isSearching);
+    }
+
+    /**
+     * Feeds the characters of {@code input} from {@code from} to {@code to} to the scan,
+     * charging the budget a step for every character read. Positions reported by the scan
+     * are the indices in {@code input} plus {@code offset}.
+     *
+     * @param isLast whether the input ends at {@code to}
+     * @return whether the scan is over, its result doesn't depend on the rest of the input
+     */
+    public boolean advance(Scan scan, CharSequence input, int from, int to, long offset, boolean isLast,
+                           MatchBudget budget) {
+        if (scan.isDone) return true;
+        DState state = scan.state;
+        long restart = scan.restart;
+
+        for (int index = from; index < to; index++) {
+            budget.charge(1);
+            char character = input.charAt(index);
+            int symbol = character == '\n' && isLast && index == to - 1 ? FINAL_NEW_LINE : character;
+            DState next = symbol >= 0 && symbol < ASCII && state.ascii != null ? state.ascii[symbol] : null;
+            state = next != null ? next : next(state, symbol);
+            charactersSinceClear++;
+
+            if (state.isMatch()) {
+                scan.matchEnd = offset + index;
+                if (scan.isEarliest) return scan.finish(state, restart);
+            }
+            if (state.isDead()) return scan.finish(state, restart);
+            if (state.isRestart) restart = offset + index + 1;
+        }
+
+        scan.state = state;
+        scan.restart = restart;
+        if (!isLast) return false;
+
+        state = next(state, END);
+        if (state.isMatch()) {
+            scan.matchEnd = offset + to;
+        }
+        return scan.finish(state, restart);
+    }
+
+    /**
+     * State of a scan between two pieces of input, see {@link #newScan}
+     */
+    public static final class Scan {
+        private boolean isEarliest;
+        private DState state;
+        private long matchEnd;
+        private long restart;
+        private boolean isDone;
+
+        private Scan start(DState state, boolean isEarliest) {
+            this.isEarliest = isEarliest;
+            this.state = state;
+            this.matchEnd = -1;
+            this.restart = -1;
+            this.isDone = false;
+            return this;
+        }
+
+        private boolean finish(DState state, long restart) {
+            this.state = state;
+            this.restart = restart;
+            this.isDone = true;
+            return true;
+        }
+
+        /**
+         * Returns the earliest match end found by a scan stopping there, or the end of the
+         * leftmost-first match found so far by the others, the longest one for a
+         * {@link #longest} DFA, {@code -1} if none
+         */
+        public long matchEnd() {
+            return matchEnd;
+        }
+
+        public boolean isDone() {
+            return isDone;
+        }
+
+        /**
+         * Returns a position no match found by a searching scan can start before: every
+         * match attempt started earlier already failed. {@code -1} until one is known.
+         */
+        public long restart() {
+            return restart;
+        }
+    }
+
+    private DState startState(CharSequence input, int from, boolean isSearching) {
+        int flags = isSearching ? FLAG_SEARCHING : 0;
+        if (from == 0) {
+            flags |= FLAG_START;
+        } else {
+            flags |= flagsAfter(input.charAt(from - 1));
+        }
+        return cached(new int[]{Program.START}, flags);
+    }
+
+    private DState next(DState from, int symbol) {
+        DState cached = from.transition(symbol);
+        if (cached != null) return cached;
+
+        int clears = cacheClears;
+        DState next = step(from, symbol);
+        if (clears != cacheClears && isCaching) {
+            // The cache was cleared to make room for the next state, keep the current one
+            // but forget its transitions, so the discarded states can be collected
+            from.clearTransitions();
+            cache.put(new Key(from.states, from.flags), from);
+            cacheSize += STATE_OVERHEAD + 4L * from.states.length;
+        }
+        if (isCaching) {
+            from.setTransition(symbol, next);
+            cacheSize += symbol >= ASCII ? TRANSITION_OVERHEAD : 0;
+        }
+        return next;
+    }
+
+    /**
+     * Computes the epsilon closure of {@code from} in front of {@code symbol} and
+     * consumes the symbol, the key step of the subset construction.
+     */
+    private DState step(DState from, int symbol) {
+        visited.clear();
+        reached.clear();
+        boolean isMatch = false;
+
+        int size = 0;
+        for (int i = from.states.length - 1; i >= 0; i--) {
+            stack[size++] = from.states[i];
+        }
+
+        Instruction[][] states = program.states();
+        while (size > 0) {
+            int item = stack[--size];
+            if (item < 0) {
+                // A character instruction, ~item is its index in the flattened program
+                int instruction = ~item;
+                if (symbol != END && conditions[instruction].matches(symbol == FINAL_NEW_LINE ? '\n' : (char) symbol)) {
+                    reached.add(targets[instruction]);
+                }
+                continue;
+            }
+
+            if (!visited.add(item)) continue;
+            if (program.isAccepting(item)) {
+                isMatch = true;
+                if (isLongest) continue;
+                // Everything left on the stack has a lower priority than this match
+                break;
+            }
+
+            Instruction[] instructions = states[item];
+            for (int i = instructions.length - 1; i >= 0; i--) {
+                Instruction instruction = instructions[i];
+                switch (instruction.opcode()) {
+                    case Instruction.EPSILON -> stack[size++] = instruction.target();
+                    case Instruction.ASSERTION -> {
+                        if (holds(instruction.assertion(), from.flags, symbol)) {
+                            stack[size++] = instruction.target();
+                        }
+                    }
+                    case Instruction.CHARACTER -> stack[size++] = ~(offsets[item] + i);
+                    default -> throw new IllegalStateException("Unsupported instruction " + instruction);
+                }
+            }
+        }
+
+        boolean isSearching = (from.flags & FLAG_SEARCHING) != 0 && !isMatch && symbol != END;
+        if (isSearching) {
+            reached.add(Program.START);
+        }
+
+        int flags = (isSearching ? FLAG_SEARCHING : 0) | (isMatch ? FLAG_MATCH : 0);
+        if (symbol >= 0) {
+            flags |= flagsAfter((char) symbol);
+        } else if (symbol == FINAL_NEW_LINE) {
+            flags |= FLAG_NEW_LINE;
+        }
+
+        int[] next = reached.toArray();
+        return isCaching ? cached(next, flags) : new DState(next, flags, isRestart(next, flags));
+    }
+
+    private DState cached(int[] states, int flags) {
+        Key key = new Key(states, flags);
+        DState state = cache.get(key);
+        if (state != null) return state;
+
+        long size = STATE_OVERHEAD + 4L * states.length;
+        if (cacheSize + size > cacheCapacity) {
+            clearCache();
+        }
+
+        state = new DState(states, flags, isRestart(states, flags));
+        if (isCaching) {
+            state.ascii = new DState[ASCII];
+            cache.put(key, state);
+            cacheSize += size;
+        }
+        return state;
+    }
+
+    /**
+     * Returns whether the only thread left in a search is the attempt starting at the
+     * next character. Not when the program loops back to its start, a thread there can
+     * also be an earlier attempt.
+     */
+    private boolean isRestart(int[] states, int flags) {
+        return (flags & FLAG_SEARCHING) != 0 && !isStartTargeted &&
+               states.length == 1 && states[0] == Program.START;
+    }
+
+    private void clearCache() {
+        int stateCount = cache.size();
+        cache.clear();
+        cacheSize = 0;
+        cacheClears++;
+
+        if (cacheClears >= MIN_CLEARS_BEFORE_GIVING_UP &&
+            charactersSinceClear < (long) MIN_CHARACTERS_PER_STATE * stateCount) {
+            // The cache is thrashing, don't bother caching for the rest of the search
+            isCaching = false;
+        }
+        charactersSinceClear = 0;
+    }
+
+    static int flagsAfter(char character) {
+        return (character == '\n' ? FLAG_NEW_LINE : 0) | (Assertion.isWord(character) ? FLAG_WORD : 0);
+    }
+
+    static boolean holds(Assertion assertion, int flags, int symbol) {
+        boolean isAtEnd = symbol == END;
+        boolean isBeforeNewLine = symbol == '\n' || symbol == FINAL_NEW_LINE;
+        boolean isAfterWord = (flags & FLAG_WORD) != 0;
+        boolean isBeforeWord = symbol >= 0 && Assertion.isWord((char) symbol);
+
+        return switch (assertion) {
+            case START_OF_LINE -> (flags & (FLAG_START | FLAG_NEW_LINE)) != 0;
+            case START_OF_STRING -> (flags & FLAG_START) != 0;
+            case END_OF_LINE -> isAtEnd || isBeforeNewLine;
+            case END_OF_STRING -> isAtEnd || symbol == FINAL_NEW_LINE;
+            case END_OF_STRING_NOT_NEWLINE -> isAtEnd;
+            case WORD_BOUNDARY -> isAfterWord != isBeforeWord;
+            case NON_WORD_BOUNDARY -> isAfterWord == isBeforeWord;
+            case PREVIOUS_MATCH_END -> throw new IllegalStateException("Unsupported assertion " + assertion);
+        };
+    }
+
+    private static final class DState {
+        final int[] states;
+        final int flags;
+        DState[] ascii;
+        DState end;
+        DState finalNewLine;
+        CharMap<DState> other;
+        /**
+         * Whether only the attempt starting at the next character is left in a search
+         */
+        final boolean isRestart;
+
+        DState(int[] states, int flags, boolean isRestart) {
+            this.states = states;
+            this.flags = flags;
+            this.isRestart = isRestart;
+        }
+
+        boolean isMatch() {
+            return (flags & FLAG_MATCH) != 0;
+        }
+
+        boolean isDead() {
+            return states.length == 0 && (flags & FLAG_SEARCHING) == 0;
+        }
+
+        DState transition(int symbol) {
+            if (symbol >= 0 && symbol < ASCII) return ascii != null ? ascii[symbol] : null;
+            if (symbol == END) return end;
+            if (symbol == FINAL_NEW_LINE) return finalNewLine;
+            return other != null ? other.get((char) symbol) : null;
+        }
+
+        void clearTransitions() {
+            ascii = new DState[ASCII];
+            end = null;
+            finalNewLine = null;
+            other = null;
+        }
+
+        void setTransition(int symbol, DState state) {
+            if (symbol >= 0 && symbol < ASCII) {
+                if (ascii != null) ascii[symbol] = state;
+            } else if (symbol == END) {
+                end = state;
+            } else if (symbol == FINAL_NEW_LINE) {
+                finalNewLine = state;
+            } else {
+                if (other == null) other = new CharMap<>();
+                other.put((char) symbol, state);
+            }
+        }
+    }
+
+    private record Key(int[] states, int flags) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && flags == key.flags && Arrays.equals(states, key.states);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(states) + flags;
+        }
+    }
+}
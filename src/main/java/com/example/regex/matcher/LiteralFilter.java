@@ -0,0 +1,34 @@
+package com.example.regex.matcher;
+
+import com.example.regex.prefilter.RequiredLiteral;
+
+import java.util.Optional;
+
+/**
+ * Moves the searches of a matcher forward to where the required literal of the pattern
+ * allows a match, remembering the last occurrence found so the input is scanned once.
+ */
+final class LiteralFilter {
+    private final RequiredLiteral literal;
+    private int hit = -1;
+
+    LiteralFilter(Optional<RequiredLiteral> literal) {
+        this.literal = literal.orElse(null);
+    }
+
+    void reset() {
+        hit = -1;
+    }
+
+    /**
+     * Returns where a search from {@code index} can start, {@code -1} if it can't match
+     */
+    int searchStart(CharSequence input, int index) {
+        if (literal == null) return index;
+        if (hit < index) {
+            hit = literal.find(input, index);
+            if (hit < 0) return -1;
+        }
+        return literal.searchStart(index, hit);
+    }
+}
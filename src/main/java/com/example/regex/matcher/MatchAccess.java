@@ -0,0 +1,42 @@
+package com.example.regex.matcher;
+
+import com.example.regex.Regex;
+import com.example.regex.fsm.Cursor;
+
+/**
+ * Makes the {@link Regex.Match} of a matcher from its cursor. The constructor of the
+ * match isn't public, it would put the {@link Cursor} in the exported API: the class of
+ * the match hands it over here once initialized.
+ */
+public final class MatchAccess {
+    @FunctionalInterface
+    public interface Factory {
+        Regex.Match of(Cursor cursor, boolean hasCaptureGroups);
+    }
+
+    private static volatile Factory factory;
+
+    private MatchAccess() {
+    }
+
+    public static void register(Factory matchFactory) {
+        factory = matchFactory;
+    }
+
+    static Regex.Match of(Cursor cursor, boolean hasCaptureGroups) {
+        Factory current = factory;
+        if (current == null) {
+            initialize(Regex.Match.class);
+            current = factory;
+        }
+        return current.of(cursor, hasCaptureGroups);
+    }
+
+    private static void initialize(Class<?> type) {
+        try {
+            Class.forName(type.getName(), true, type.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.regex.matcher;
+
+import com.example.regex.MatchLimitExceededException;
+import com.example.regex.MatchLimitExceededException.Limit;
+
+import java.time.Duration;
+
+/**
+ * Counts the steps of a search and stops it once it runs out of steps or time.
+ * <p>
+ * What a step is depends on the engine: a character for the DFA and the one-pass
+ * engine, a thread for the Pike VM, a state for the backtracker. The clock is only
+ * read every {@value #CLOCK_INTERVAL} steps, so charging a step costs an addition
+ * and two comparisons.
+ */
+public final class MatchBudget {
+    private static final int CLOCK_INTERVAL = 4096;
+
+    private final long stepLimit;
+    private final long timeoutNanos;
+    private long steps;
+    private long nextClockCheck;
+    private long deadline;
+
+    /**
+     * @param stepLimit maximum number of steps of a search
+     * @param timeout   maximum duration of a search, {@link Duration#ZERO} for none
+     */
+    public MatchBudget(long stepLimit, Duration timeout) {
+        this.stepLimit = stepLimit;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    public static MatchBudget unlimited() {
+        return new MatchBudget(Long.MAX_VALUE, Duration.ZERO);
+    }
+
+    /**
+     * Starts counting a new search
+     */
+    public MatchBudget start() {
+        steps = 0;
+        nextClockCheck = CLOCK_INTERVAL;
+        deadline = timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : 0;
+        return this;
+    }
+
+    public void charge(long count) {
+        steps += count;
+        if (steps > stepLimit) {
+            throw new MatchLimitExceededException(Limit.STEPS, steps);
+        }
+        if (steps >= nextClockCheck) {
+            nextClockCheck = steps + CLOCK_INTERVAL;
+            if (deadline != 0 && System.nanoTime() - deadline > 0) {
+                throw new MatchLimitExceededException(Limit.DEADLINE, steps);
+            }
+        }
+    }
+
+    public long steps() {
+        return steps;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.regex.matcher;
+
+/**
+ * Finds where the matches of a pattern end without tracking capture groups, what
+ * {@link RegularMatcher} needs to find the bounds of the leftmost-first matches.
+ */
+public interface MatchEndSearch {
+    /**
+     * Returns the first position where any match starting at or after {@code from}
+     * ends or {@code -1}. Leftmost-first matches can end later than this position,
+     * but can't start after it.
+     */
+    int earliestMatchEnd(CharSequence input, int from, MatchBudget budget);
+
+    /**
+     * Same as {@link #earliestMatchEnd(CharSequence, int, MatchBudget)} for the matches
+     * starting up to {@code to} included, the search can then stop before the end of the
+     * input. By default it doesn't and also finds the matches starting later.
+     */
+    default int earliestMatchEnd(CharSequence input, int from, int to, MatchBudget budget) {
+        return earliestMatchEnd(input, from, budget);
+    }
+
+    /**
+     * Returns where the leftmost-first match starting exactly at {@code from} ends or {@code -1}.
+     */
+    int anchoredMatchEnd(CharSequence input, int from, MatchBudget budget);
+
+    /**
+     * Returns where the leftmost-first match starting at or after {@code from} ends or
+     * {@code -1}, which bounds the match where the earliest match end doesn't.
+     */
+    int leftmostMatchEnd(CharSequence input, int from, MatchBudget budget);
+
+    /**
+     * Same as {@link #leftmostMatchEnd(CharSequence, int, MatchBudget)} for the matches
+     * starting up to {@code to} included, the search can then stop before the end of the
+     * input. By default it doesn't and also finds the matches starting later.
+     */
+    default int leftmostMatchEnd(CharSequence input, int from, int to, MatchBudget budget) {
+        return leftmostMatchEnd(input, from, budget);
+    }
+}
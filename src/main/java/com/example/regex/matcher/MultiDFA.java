@@ -0,0 +1,304 @@
+package com.example.regex.matcher;
+
+import com.example.regex.compiler.Program;
+import com.example.regex.compiler.Program.Instruction;
+import com.example.regex.fsm.Assertion;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deterministic automaton telling which of many programs match somewhere in the input,
+ * in a single pass.
+ * <p>
+ * The programs are laid out side by side in one NFA, the accepting state of every
+ * program is tagged with its index. States are built while the input is consumed like
+ * in {@link LazyDFA}, but the epsilon closure doesn't stop at the first accepting state:
+ * every program reached is reported, and since only the existence of a match matters
+ * the NFA states of a DFA state are kept sorted instead of in priority order.
+ * <p>
+ * States live in a cache capped at {@code cacheCapacity} bytes, a full cache is cleared
+ * and rebuilt. Not thread-safe.
+ */
+public final class MultiDFA {
+    public static final long DEFAULT_CACHE_CAPACITY = 8 * 1024 * 1024;
+
+    private static final int ASCII = 128;
+    private static final int STATE_OVERHEAD = 96 + ASCII * 8;
+    private static final int TRANSITION_OVERHEAD = 48;
+
+    private final Instruction[][] states;
+    /**
+     * Program accepted by every state, {@code -1} if the state isn't accepting
+     */
+    private final int[] accepts;
+    private final int[] starts;
+    private final int programCount;
+    private final long cacheCapacity;
+    private final Map<Key, DState> cache;
+
+    private final SparseSet visited;
+    private final SparseSet reached;
+    private final SparseSet matched;
+    private final int[] stack;
+
+    private long cacheSize;
+    private int cacheClears;
+
+    public MultiDFA(List<Program> programs) {
+        this(programs, DEFAULT_CACHE_CAPACITY);
+    }
+
+    public MultiDFA(List<Program> programs, long cacheCapacity) {
+        this.programCount = programs.size();
+        this.cacheCapacity = cacheCapacity;
+        this.cache = new HashMap<>();
+
+        int stateCount = programs.stream().mapToInt(Program::stateCount).sum();
+        states = new Instruction[stateCount][];
+        accepts = new int[stateCount];
+        starts = new int[programCount];
+        int instructionCount = 0;
+        int base = 0;
+        for (int index = 0; index < programCount; index++) {
+            Program program = programs.get(index);
+            if (program.hasAssertion(Assertion.PREVIOUS_MATCH_END)) {
+                throw new IllegalArgumentException("The DFA doesn't support the previous match end anchor");
+            }
+
+            starts[index] = base + Program.START;
+            for (int state = 0; state < program.stateCount(); state++) {
+                states[base + state] = relocate(program.states()[state], base);
+                accepts[base + state] = program.isAccepting(state) ? index : -1;
+                instructionCount += program.states()[state].length;
+            }
+            base += program.stateCount();
+        }
+
+        visited = new SparseSet(stateCount);
+        reached = new SparseSet(stateCount);
+        matched = new SparseSet(Math.max(programCount, 1));
+        stack = new int[2 * instructionCount + stateCount + 1];
+    }
+
+    private static Instruction[] relocate(Instruction[] instructions, int base) {
+        Instruction[] relocated = new Instruction[instructions.length];
+        for (int i = 0; i < instructions.length; i++) {
+            Instruction instruction = instructions[i];
+            if (instruction.opcode() == Instruction.BACK_REFERENCE) {
+                throw new IllegalArgumentException("The DFA doesn't support back references");
+            }
+            relocated[i] = new Instruction(instruction.opcode(), base + instruction.target(),
+                    instruction.character(), instruction.assertion(), instruction.group());
+        }
+        return relocated;
+    }
+
+    public int programCount() {
+        return programCount;
+    }
+
+    /**
+     * Returns the indices of the programs matching somewhere in the input.
+     *
+     * @param stopAtFirstMatch stop once any program matches, only that one is returned
+     */
+    public BitSet matches(CharSequence input, boolean stopAtFirstMatch, MatchBudget budget) {
+        BitSet found = new BitSet(programCount);
+        int remaining = programCount;
+
+        int length = input.length();
+        DState state = cached(starts.clone(), LazyDFA.FLAG_START, new int[0]);
+        for (int index = 0; index <= length && remaining > 0; index++) {
+            int symbol;
+            if (index == length) {
+                symbol = LazyDFA.END;
+            } else {
+                budget.charge(1);
+                char character = input.charAt(index);
+                symbol = character == '\n' && index == length - 1 ? LazyDFA.FINAL_NEW_LINE : character;
+            }
+            state = next(state, symbol);
+
+            for (int program : state.matches) {
+                if (!found.get(program)) {
+                    found.set(program);
+                    remaining--;
+                }
+            }
+            if (stopAtFirstMatch && !found.isEmpty()) break;
+        }
+        return found;
+    }
+
+    private DState next(DState from, int symbol) {
+        DState cached = from.transition(symbol);
+        if (cached != null) return cached;
+
+        int clears = cacheClears;
+        DState next = step(from, symbol);
+        if (clears != cacheClears) {
+            // The cache was cleared to make room for the next state, keep the current one
+            // but forget its transitions, so the discarded states can be collected
+            from.clearTransitions();
+            cache.put(new Key(from.states, from.flags, from.matches), from);
+            cacheSize += STATE_OVERHEAD + 4L * (from.states.length + from.matches.length);
+        }
+        from.setTransition(symbol, next);
+        cacheSize += symbol >= ASCII ? TRANSITION_OVERHEAD : 0;
+        return next;
+    }
+
+    /**
+     * Computes the epsilon closure of {@code from} in front of {@code symbol}, noting every
+     * accepting state on the way, and consumes the symbol.
+     */
+    private DState step(DState from, int symbol) {
+        visited.clear();
+        reached.clear();
+        matched.clear();
+
+        int size = 0;
+        for (int state : from.states) {
+            stack[size++] = state;
+        }
+        while (size > 0) {
+            int item = stack[--size];
+            if (item < 0) {
+                // A character instruction, ~item is the state it belongs to and the
+                // index of the instruction is on the stack below it
+                int instruction = stack[--size];
+                Instruction character = states[~item][instruction];
+                if (symbol != LazyDFA.END &&
+                    character.character().matches(symbol == LazyDFA.FINAL_NEW_LINE ? '\n' : (char) symbol)) {
+                    reached.add(character.target());
+                }
+                continue;
+            }
+
+            if (!visited.add(item)) continue;
+            if (accepts[item] >= 0) {
+                matched.add(accepts[item]);
+                continue;
+            }
+
+            Instruction[] instructions = states[item];
+            for (int i = 0; i < instructions.length; i++) {
+                Instruction instruction = instructions[i];
+                switch (instruction.opcode()) {
+                    case Instruction.EPSILON -> stack[size++] = instruction.target();
+                    case Instruction.ASSERTION -> {
+                        if (LazyDFA.holds(instruction.assertion(), from.flags, symbol)) {
+                            stack[size++] = instruction.target();
+                        }
+                    }
+                    case Instruction.CHARACTER -> {
+                        stack[size++] = i;
+                        stack[size++] = ~item;
+                    }
+                    default -> throw new IllegalStateException("Unsupported instruction " + instruction);
+                }
+            }
+        }
+
+        if (symbol != LazyDFA.END) {
+            // Matches can start anywhere
+            for (int start : starts) {
+                reached.add(start);
+            }
+        }
+
+        int flags = 0;
+        if (symbol >= 0) {
+            flags = LazyDFA.flagsAfter((char) symbol);
+        } else if (symbol == LazyDFA.FINAL_NEW_LINE) {
+            flags = LazyDFA.FLAG_NEW_LINE;
+        }
+
+        int[] next = reached.toArray();
+        int[] matches = matched.toArray();
+        Arrays.sort(next);
+        Arrays.sort(matches);
+        return cached(next, flags, matches);
+    }
+
+    private DState cached(int[] states, int flags, int[] matches) {
+        Key key = new Key(states, flags, matches);
+        DState state = cache.get(key);
+        if (state != null) return state;
+
+        long size = STATE_OVERHEAD + 4L * (states.length + matches.length);
+        if (cacheSize + size > cacheCapacity) {
+            cache.clear();
+            cacheSize = 0;
+            cacheClears++;
+        }
+
+        state = new DState(states, flags, matches);
+        cache.put(key, state);
+        cacheSize += size;
+        return state;
+    }
+
+    private static final class DState {
+        final int[] states;
+        final int flags;
+        /**
+         * Programs whose match ended right before the symbol leading to this state
+         */
+        final int[] matches;
+        DState[] ascii = new DState[ASCII];
+        DState end;
+        DState finalNewLine;
+        CharMap<DState> other;
+
+        DState(int[] states, int flags, int[] matches) {
+            this.states = states;
+            this.flags = flags;
+            this.matches = matches;
+        }
+
+        DState transition(int symbol) {
+            if (symbol >= 0 && symbol < ASCII) return ascii[symbol];
+            if (symbol == LazyDFA.END) return end;
+            if (symbol == LazyDFA.FINAL_NEW_LINE) return finalNewLine;
+            return other != null ? other.get((char) symbol) : null;
+        }
+
+        void clearTransitions() {
+            ascii = new DState[ASCII];
+            end = null;
+            finalNewLine = null;
+            other = null;
+        }
+
+        void setTransition(int symbol, DState state) {
+            if (symbol >= 0 && symbol < ASCII) {
+                ascii[symbol] = state;
+            } else if (symbol == LazyDFA.END) {
+                end = state;
+            } else if (symbol == LazyDFA.FINAL_NEW_LINE) {
+                finalNewLine = state;
+            } else {
+                if (other == null) other = new CharMap<>();
+                other.put((char) symbol, state);
+            }
+        }
+    }
+
+    private record Key(int[] states, int flags, int[] matches) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && flags == key.flags &&
+                   Arrays.equals(states, key.states) && Arrays.equals(matches, key.matches);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Arrays.hashCode(states) + Arrays.hashCode(matches)) + flags;
+        }
+    }
+}
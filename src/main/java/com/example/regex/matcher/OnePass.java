@@ -0,0 +1,261 @@
+package com.example.regex.matcher;
+
+import com.example.regex.compiler.Program;
+import com.example.regex.compiler.Program.Instruction;
+import com.example.regex.fsm.Assertion;
+import com.example.regex.fsm.CharacterCondition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Engine for the one-pass programs, such as the ones of {@code (\d+)-(\d+)} or
+ * {@code key=([^;]*);}: from wherever an anchored match got to, at most one character
+ * instruction can consume the next character. A search then follows a single thread
+ * with a single array of capture slots, instead of the thread lists of the
+ * {@link PikeVM}, and finds the same leftmost-first match.
+ * <p>
+ * The program is turned into nodes upfront, one for the start and one for every state
+ * a character leads to. A node lists the character instructions reachable through
+ * epsilon transitions, with the assertions and capture slots on the way to them, and
+ * the way to the accepting state if any, in priority order. A program isn't one-pass
+ * when a node reaches a state twice, or when the character sets of two of its
+ * instructions intersect.
+ * <p>
+ * Immutable and thread-safe, the callers provide the capture arrays.
+ */
+public final class OnePass {
+    private static final int ASCII = 128;
+    private static final int NONE = -1;
+    /**
+     * Nodes above which a program isn't checked, each one compares the characters of
+     * its conditions two by two
+     */
+    private static final int MAX_NODES = 128;
+
+    private final Node[] nodes;
+    private final int slotCount;
+
+    private OnePass(Node[] nodes, int slotCount) {
+        this.nodes = nodes;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * Returns the engine of the program, nothing if the program isn't one-pass, has back
+     * references or previous match anchors, or is too large to be checked.
+     */
+    public static Optional<OnePass> of(Program program) {
+        boolean isSupported = Arrays.stream(program.states())
+                .flatMap(Arrays::stream)
+                .noneMatch(instruction -> instruction.opcode() == Instruction.BACK_REFERENCE ||
+                                          instruction.assertion() == Assertion.PREVIOUS_MATCH_END);
+        if (!isSupported) return Optional.empty();
+        return new Builder(program).build().map(nodes -> new OnePass(nodes, program.slotCount()));
+    }
+
+    public int slotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Looks for the leftmost-first match starting exactly at {@code from}.
+     *
+     * @param captures filled with the capture slots of the match, {@code -1} for the
+     *                 groups which didn't participate. Slots 0 and 1 are the bounds of
+     *                 the whole match.
+     * @param slots    the slots of the thread while it runs, {@link #slotCount()} of them
+     */
+    public boolean search(CharSequence input, int from, int[] captures, int[] slots, MatchBudget budget) {
+        int length = input.length();
+        Arrays.fill(slots, -1);
+        slots[0] = from;
+        boolean isMatched = false;
+
+        Node node = nodes[0];
+        for (int index = from; ; index++) {
+            boolean isAccepting = node.accept != NONE && holds(node.acceptAssertions, input, index);
+            int next = NONE;
+            if (index < length) {
+                char character = input.charAt(index);
+                next = character < ASCII ? node.ascii[character] : node.find(character);
+                // A match of a higher priority wins over the instructions after it
+                if (next != NONE && (isAccepting && next >= node.accept || !holds(node.assertions[next], input, index))) {
+                    next = NONE;
+                }
+            }
+            if (isAccepting) {
+                // Kept unless the thread, of a higher priority, goes on to match
+                isMatched = true;
+                System.arraycopy(slots, 0, captures, 0, slotCount);
+                record(node.acceptSlots, captures, index);
+                captures[1] = index;
+            }
+            if (next == NONE) return isMatched;
+
+            // A step per character, like the DFAs, so a long match is stopped as it runs
+            budget.charge(1);
+            record(node.slots[next], slots, index);
+            node = nodes[node.targets[next]];
+        }
+    }
+
+    private static boolean holds(Assertion[] assertions, CharSequence input, int index) {
+        for (Assertion assertion : assertions) {
+            if (!assertion.test(input, index, 0)) return false;
+        }
+        return true;
+    }
+
+    private static void record(int[] path, int[] slots, int index) {
+        for (int slot : path) {
+            slots[slot] = index;
+        }
+    }
+
+    /**
+     * The choices from a state reached after a character, in priority order: the
+     * character instructions, then the way to the accepting state at {@code accept}
+     * among them.
+     *
+     * @param ascii      the instruction consuming each ASCII character, {@link #NONE} if none
+     * @param targets    the node of the state each instruction leads to
+     * @param slots      the capture slots entered on the way to each instruction
+     * @param assertions the assertions on the way to each instruction
+     * @param accept     how many instructions have a higher priority than the accepting
+     *                   state, {@link #NONE} if it can't be reached
+     */
+    private record Node(int[] ascii, CharacterCondition[] conditions, int[] targets, int[][] slots,
+                        Assertion[][] assertions, int accept, int[] acceptSlots, Assertion[] acceptAssertions) {
+        /**
+         * Returns the instruction consuming the character, {@link #NONE} if none
+         */
+        int find(char character) {
+            for (int i = 0; i < conditions.length; i++) {
+                if (conditions[i].matches(character)) return i;
+            }
+            return NONE;
+        }
+    }
+
+    private static final class Builder {
+        private final Program program;
+        private final Map<Integer, Integer> indices = new HashMap<>();
+        private final List<Integer> states = new ArrayList<>();
+        /**
+         * The characters of each condition, which are shared by the nodes
+         */
+        private final Map<CharacterCondition, BitSet> characters = new HashMap<>();
+
+        private final List<CharacterCondition> conditions = new ArrayList<>();
+        private final List<Integer> targets = new ArrayList<>();
+        private final List<int[]> slots = new ArrayList<>();
+        private final List<Assertion[]> assertions = new ArrayList<>();
+        private final boolean[] visited;
+        private int accept;
+        private int[] acceptSlots;
+        private Assertion[] acceptAssertions;
+
+        Builder(Program program) {
+            this.program = program;
+            this.visited = new boolean[program.stateCount()];
+        }
+
+        Optional<Node[]> build() {
+            index(Program.START);
+            List<Node> nodes = new ArrayList<>();
+            for (int node = 0; node < states.size(); node++) {
+                if (states.size() > MAX_NODES) return Optional.empty();
+                Optional<Node> built = node(states.get(node));
+                if (built.isEmpty()) return Optional.empty();
+                nodes.add(built.get());
+            }
+            return Optional.of(nodes.toArray(Node[]::new));
+        }
+
+        private int index(int state) {
+            return indices.computeIfAbsent(state, _ignore -> {
+                states.add(state);
+                return states.size() - 1;
+            });
+        }
+
+        /**
+         * Collects the choices from the state, nothing if they are ambiguous
+         */
+        private Optional<Node> node(int state) {
+            conditions.clear();
+            targets.clear();
+            slots.clear();
+            assertions.clear();
+            Arrays.fill(visited, false);
+            accept = NONE;
+            if (!explore(state, new ArrayList<>(), new ArrayList<>())) return Optional.empty();
+
+            int[] ascii = new int[ASCII];
+            Arrays.fill(ascii, NONE);
+            BitSet[] sets = conditions.stream()
+                    .map(condition -> characters.computeIfAbsent(condition, CharacterCondition::characters))
+                    .toArray(BitSet[]::new);
+            for (int i = 0; i < sets.length; i++) {
+                for (int j = 0; j < i; j++) {
+                    if (sets[i].intersects(sets[j])) return Optional.empty();
+                }
+                for (int character = sets[i].nextSetBit(0); character >= 0 && character < ASCII;
+                     character = sets[i].nextSetBit(character + 1)) {
+                    ascii[character] = i;
+                }
+            }
+
+            int[] nodeTargets = targets.stream().mapToInt(this::index).toArray();
+            return Optional.of(new Node(ascii, conditions.toArray(CharacterCondition[]::new), nodeTargets,
+                    slots.toArray(int[][]::new), assertions.toArray(Assertion[][]::new),
+                    accept, acceptSlots, acceptAssertions));
+        }
+
+        /**
+         * Follows the epsilon transitions and the assertions in priority order, returns
+         * false if a state is reached twice
+         */
+        private boolean explore(int state, List<Integer> path, List<Assertion> pathAssertions) {
+            if (visited[state]) return false;
+            visited[state] = true;
+
+            int slot = program.slots()[state];
+            if (slot >= 0) path.add(slot);
+            if (program.isAccepting(state)) {
+                accept = conditions.size();
+                acceptSlots = path.stream().mapToInt(Integer::intValue).toArray();
+                acceptAssertions = pathAssertions.toArray(Assertion[]::new);
+            }
+
+            for (Instruction instruction : program.states()[state]) {
+                switch (instruction.opcode()) {
+                    case Instruction.EPSILON -> {
+                        if (!explore(instruction.target(), new ArrayList<>(path), new ArrayList<>(pathAssertions))) {
+                            return false;
+                        }
+                    }
+                    case Instruction.ASSERTION -> {
+                        List<Assertion> next = new ArrayList<>(pathAssertions);
+                        next.add(instruction.assertion());
+                        if (!explore(instruction.target(), new ArrayList<>(path), next)) return false;
+                    }
+                    case Instruction.CHARACTER -> {
+                        conditions.add(instruction.character());
+                        targets.add(instruction.target());
+                        slots.add(path.stream().mapToInt(Integer::intValue).toArray());
+                        assertions.add(pathAssertions.toArray(Assertion[]::new));
+                    }
+                    default -> throw new IllegalStateException("Unsupported instruction " + instruction);
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.regex.matcher;
+
+import com.example.regex.compiler.Program;
+import com.example.regex.compiler.Program.Instruction;
+import com.example.regex.fsm.CharacterCondition;
+import com.example.regex.prefilter.Prefilter;
+
+import java.util.Arrays;
+
+/**
+ * Thompson NFA simulation which also tracks capture groups (Pike VM).
+ * <p>
+ * Every thread is a character instruction waiting for the next character together
+ * with its own copy of the capture slots. Threads are kept in priority order, a
+ * state already reached at the current position by a higher priority thread is
+ * never added again, so there are at most as many threads as instructions and the
+ * search runs in {@code O(n * m)}. When a thread reaches the accepting state the
+ * lower priority threads are dropped, which gives the same leftmost-first results
+ * as a backtracking matcher.
+ * <p>
+ * All the buffers are allocated upfront, a search doesn't allocate. Not thread-safe.
+ */
+public final class PikeVM {
+    private static final int EXPLORE = 0;
+    private static final int ADD_THREAD = 1;
+    private static final int RESTORE_SLOT = 2;
+
+    private final Program program;
+    private final Prefilter prefilter;
+    private final int slotCount;
+    private final int acceptThread;
+
+    /**
+     * Every instruction of the program flattened, the instruction {@code i} of the state
+     * {@code s} is at {@code offsets[s] + i}
+     */
+    private final int[] offsets;
+    private final int[] targets;
+    private final CharacterCondition[] conditions;
+
+    private Threads current;
+    private Threads next;
+    private final SparseSet visited;
+    private final int[] stack;
+    private final int[] scratch;
+
+    public PikeVM(Program program) {
+        this(program, Prefilter.none());
+    }
+
+    /**
+     * @param prefilter positions where a match can start, an unanchored search without
+     *                  any thread left skips to the next one
+     */
+    public PikeVM(Program program, Prefilter prefilter) {
+        this.program = program;
+        this.prefilter = prefilter;
+        this.slotCount = program.slotCount();
+
+        int stateCount = program.stateCount();
+        offsets = new int[stateCount + 1];
+        for (int state = 0; state < stateCount; state++) {
+            offsets[state + 1] = offsets[state] + program.states()[state].length;
+        }
+        int instructionCount = offsets[stateCount];
+        targets = new int[instructionCount];
+        conditions = new CharacterCondition[instructionCount];
+        for (int state = 0; state < stateCount; state++) {
+            Instruction[] instructions = program.states()[state];
+            for (int i = 0; i < instructions.length; i++) {
+                targets[offsets[state] + i] = instructions[i].target();
+                conditions[offsets[state] + i] = instructions[i].character();
+            }
+        }
+        acceptThread = instructionCount;
+
+        current = new Threads(instructionCount + 1, slotCount);
+        next = new Threads(instructionCount + 1, slotCount);
+        visited = new SparseSet(stateCount);
+        stack = new int[3 * (instructionCount + 2 * stateCount + 1)];
+        scratch = new int[slotCount];
+    }
+
+    public int slotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Looks for the leftmost-first match starting at or after {@code from}, or exactly
+     * at {@code from} when {@code isAnchored} is set.
+     *
+     * @param captures filled with the capture slots of the match, {@code -1} for the
+     *                 groups which didn't participate. Slots 0 and 1 are the bounds of
+     *                 the whole match.
+     * @param isMatchOnly stop at the first match found, the captures are not
+     *                    necessarily the ones of the leftmost-first match
+     */
+    public boolean search(CharSequence input, int from, int previousMatchIndex, boolean isAnchored,
+                          boolean isMatchOnly, int[] captures) {
+        return search(input, from, previousMatchIndex, isAnchored, isMatchOnly, captures,
+                MatchBudget.unlimited().start());
+    }
+
+    /**
+     * Same as {@link #search(CharSequence, int, int, boolean, boolean, int[])}, charging
+     * the budget a step for every thread stepped over a character.
+     */
+    public boolean search(CharSequence input, int from, int previousMatchIndex, boolean isAnchored,
+                          boolean isMatchOnly, int[] captures, MatchBudget budget) {
+        int length = input.length();
+        boolean isMatched = false;
+        current.clear();
+        visited.clear();
+
+        for (int index = from; ; index++) {
+            if (!isMatched && !isAnchored && current.size == 0) {
+                index = prefilter.find(input, index);
+                if (index < 0) break;
+            }
+            if (!isMatched && (!isAnchored || index == from)) {
+                // A new thread starting here has the lowest priority
+                Arrays.fill(scratch, -1);
+                scratch[0] = index;
+                addThread(current, Program.START, input, index, previousMatchIndex);
+            }
+            if (current.size == 0) {
+                // Every attempt so far failed, an unanchored search starts over from the next position
+                if (isMatched || isAnchored || index >= length) break;
+                visited.clear();
+                continue;
+            }
+            budget.charge(current.size);
+
+            visited.clear();
+            next.clear();
+            char character = index < length ? input.charAt(index) : 0;
+            for (int i = 0; i < current.size; i++) {
+                int thread = current.ids[i];
+                if (thread == acceptThread) {
+                    isMatched = true;
+                    System.arraycopy(current.slots, i * slotCount, captures, 0, slotCount);
+                    captures[1] = index;
+                    if (isMatchOnly) return true;
+                    // Drop the threads with a lower priority
+                    break;
+                }
+                if (index < length && conditions[thread].matches(character)) {
+                    System.arraycopy(current.slots, i * slotCount, scratch, 0, slotCount);
+                    addThread(next, targets[thread], input, index + 1, previousMatchIndex);
+                }
+            }
+
+            Threads swap = current;
+            current = next;
+            next = swap;
+            if (index >= length) break;
+        }
+        return isMatched;
+    }
+
+    /**
+     * Follows the epsilon transitions from {@code state} with the captures in {@link #scratch},
+     * adding a thread for every character instruction and for the accepting state.
+     */
+    private void addThread(Threads threads, int state, CharSequence input, int index, int previousMatchIndex) {
+        int size = 0;
+        stack[size++] = EXPLORE;
+        stack[size++] = state;
+        stack[size++] = 0;
+
+        Instruction[][] states = program.states();
+        while (size > 0) {
+            int value = stack[--size];
+            int argument = stack[--size];
+            int kind = stack[--size];
+
+            switch (kind) {
+                case RESTORE_SLOT -> scratch[argument] = value;
+                case ADD_THREAD -> threads.add(argument, scratch);
+                case EXPLORE -> {
+                    if (!visited.add(argument)) continue;
+
+                    int slot = program.slots()[argument];
+                    if (slot >= 0) {
+                        stack[size++] = RESTORE_SLOT;
+                        stack[size++] = slot;
+                        stack[size++] = scratch[slot];
+                        scratch[slot] = index;
+                    }
+                    if (program.isAccepting(argument)) {
+                        threads.add(acceptThread, scratch);
+                        continue;
+                    }
+
+                    Instruction[] instructions = states[argument];
+                    for (int i = instructions.length - 1; i >= 0; i--) {
+                        Instruction instruction = instructions[i];
+                        switch (instruction.opcode()) {
+                            case Instruction.EPSILON -> {
+                                stack[size++] = EXPLORE;
+                                stack[size++] = instruction.target();
+                                stack[size++] = 0;
+                            }
+                            case Instruction.ASSERTION -> {
+                                if (instruction.assertion().test(input, index, previousMatchIndex)) {
+                                    stack[size++] = EXPLORE;
+                                    stack[size++] = instruction.target();
+                                    stack[size++] = 0;
+                                }
+                            }
+                            case Instruction.CHARACTER -> {
+                                stack[size++] = ADD_THREAD;
+                                stack[size++] = offsets[argument] + i;
+                                stack[size++] = 0;
+                            }
+                            default -> throw new IllegalStateException("Unsupported instruction " + instruction);
+                        }
+                    }
+                }
+                default -> throw new IllegalStateException("Unexpected frame " + kind);
+            }
+        }
+    }
+
+    /**
+     * Threads of one position in priority order, with their capture slots.
+     */
+    private static final class Threads {
+        final int[] ids;
+        final int[] slots;
+        final int slotCount;
+        int size;
+
+        Threads(int capacity, int slotCount) {
+            this.ids = new int[capacity];
+            this.slots = new int[capacity * slotCount];
+            this.slotCount = slotCount;
+        }
+
+        void add(int id, int[] captures) {
+            ids[size] = id;
+            System.arraycopy(captures, 0, slots, size * slotCount, slotCount);
+            size++;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
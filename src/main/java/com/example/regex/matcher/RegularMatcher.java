@@ -2,16 +2,296 @@ package com.example.regex.matcher;
 
 import com.example.regex.Regex;
 import com.example.regex.compiler.CompiledRegex;
+import com.example.regex.compiler.Program;
+import com.example.regex.fsm.Assertion;
+import com.example.regex.fsm.Cursor;
+import com.example.regex.prefilter.Prefilter;
+import com.example.regex.util.ObjectPool;
+import com.example.regex.util.Range;
 
-import java.util.List;
 import java.util.Optional;
 
-public class RegularMatcher implements Matching {
-    public RegularMatcher(String string, CompiledRegex regex, Regex.Options options, boolean isMatchOnly) {
+/**
+ * Matcher for the regular patterns (no lazy quantifiers and no back references),
+ * never backtracks.
+ * <p>
+ * A search runs in three phases. A {@link MatchEndSearch}, a {@link LazyDFA} or the class
+ * generated for a hot pattern, which only tracks where matches end, finds where the
+ * leftmost-first match ends. The longest match of the
+ * {@link com.example.regex.compiler.Program#reverse() reversed program} read backwards
+ * from there finds where it starts: the leftmost start of a match ending there. The
+ * capture groups, if wanted, are then resolved by a {@link PikeVM} running from that
+ * start only, instead of in {@code O(n * m)} over everything before the match, or by
+ * the {@link OnePass} engine following a single thread if the pattern is one-pass. A search
+ * which only wants to know whether there is a match stops at the earliest match end.
+ * <p>
+ * Searches only start where the {@link Prefilter} of the pattern finds a literal prefix,
+ * and no earlier than the required literal of the pattern allows.
+ * <p>
+ * A pattern anchored to the start of the input is only tried there. The first match of
+ * a pattern anchored to its end is found backwards from the end alone, which saves
+ * scanning the input forward first.
+ * <p>
+ * The matches can be limited to a region of the input, from where they may start up to
+ * where they must have started: a search stops there rather than at the end of the
+ * input, while a match keeps going past it.
+ */
+public class RegularMatcher implements ResettableMatching {
+    private CharSequence string;
+    private final MatchEndSearch dfa;
+    private final Prefilter prefilter;
+    private final PikeVM pikeVM;
+    private final OnePass onePass;
+    private final int[] captures;
+    /**
+     * Slots of the thread of the one-pass engine
+     */
+    private final int[] slots;
+    private final boolean isMatchOnly;
+    private final Cursor cursor;
+    private final MatchBudget budget;
+    private final LiteralFilter literalFilter;
+    private final Program program;
+    private final boolean isFromStartOfString;
+    private final boolean isToEndOfString;
+    /**
+     * Whether the reversed program misses the matches around a final '\n', see
+     * {@link Program#reverse()}
+     */
+    private final boolean hasEndOfString;
+    /**
+     * Run the reversed program to find where the matches start, one is borrowed per search
+     */
+    private final ObjectPool<LazyDFA> reverseDFAs;
+    /**
+     * Last position where a match can start
+     */
+    private int to;
+    private int index;
+
+    /**
+     * @param reverseDFAs the {@link LazyDFA#longest longest match} DFAs of the reversed
+     *                    program to search with, borrowed by the searches needing one
+     * @param onePass     the engine resolving the capture groups of a one-pass pattern,
+     *                    {@code null} to use the Pike VM
+     */
+    public RegularMatcher(CharSequence string, CompiledRegex regex, MatchEndSearch dfa, ObjectPool<LazyDFA> reverseDFAs,
+                          OnePass onePass, Regex.Options options, boolean isMatchOnly) {
+        this(string, 0, string.length(), regex, dfa, reverseDFAs, onePass, options, isMatchOnly);
+    }
+
+    /**
+     * Returns a matcher of the matches starting from {@code from} up to {@code to} included
+     */
+    public RegularMatcher(CharSequence string, int from, int to, CompiledRegex regex, MatchEndSearch dfa,
+                          ObjectPool<LazyDFA> reverseDFAs, OnePass onePass, Regex.Options options,
+                          boolean isMatchOnly) {
+        this.string = string;
+        this.dfa = dfa;
+        this.prefilter = regex.prefilter();
+        this.isMatchOnly = isMatchOnly;
+        this.cursor = new Cursor(string);
+        this.budget = new MatchBudget(options.stepLimit(), options.timeout());
+        this.literalFilter = new LiteralFilter(regex.requiredLiteral());
+        this.program = regex.program();
+        this.isFromStartOfString = regex.isFromStartOfString();
+        this.isToEndOfString = regex.isToEndOfString();
+        this.hasEndOfString = program.hasAssertion(Assertion.END_OF_STRING);
+        this.reverseDFAs = reverseDFAs;
+        this.to = to;
+        this.index = from;
+
+        if (!isMatchOnly && !regex.captureGroups().isEmpty()) {
+            this.onePass = onePass;
+            this.pikeVM = new PikeVM(regex.program(), regex.prefilter());
+            this.captures = new int[pikeVM.slotCount()];
+            this.slots = new int[pikeVM.slotCount()];
+        } else {
+            this.onePass = null;
+            this.pikeVM = null;
+            this.captures = null;
+            this.slots = null;
+        }
+    }
+
+    /**
+     * Makes the matcher search the whole string, outside of the region it had if any
+     */
+    @Override
+    public void reset(CharSequence string) {
+        this.string = string;
+        this.cursor.reset(string);
+        this.literalFilter.reset();
+        this.to = string.length();
+        this.index = 0;
     }
 
     @Override
     public Optional<Regex.Match> nextMatch() {
-        return Optional.empty();
+        if (!find()) return Optional.empty();
+
+        cursor.clearGroups();
+        if (captures != null) {
+            for (int group = 1; 2 * group + 1 < captures.length; group++) {
+                int start = captures[2 * group];
+                int end = captures[2 * group + 1];
+                if (start >= 0 && end >= start) {
+                    cursor.setGroup(group, new Range<>(start, end));
+                }
+            }
+        }
+        return Optional.of(MatchAccess.of(cursor, captures != null));
+    }
+
+    @Override
+    public boolean find() {
+        if (index > to) return false;
+        budget.start();
+        int from = literalFilter.searchStart(string, index);
+        if (from < 0 || from > to || isFromStartOfString && from > 0) {
+            index = string.length() + 1;
+            return false;
+        }
+        if (isFromStartOfString) return findAt(0);
+        if (isToEndOfString && index == 0 && to == string.length() && isReversible(to)) return findFromEnd();
+        return findBounds(from);
+    }
+
+    @Override
+    public void offsets(int[] offsets) {
+        offsets[0] = cursor.startIndex();
+        offsets[1] = cursor.index();
+        for (int group = 1; 2 * group + 1 < offsets.length; group++) {
+            // The groups dropped by the compiler have no slots
+            boolean isCaptured = captures != null && 2 * group + 1 < captures.length && captures[2 * group] >= 0 &&
+                                 captures[2 * group + 1] >= captures[2 * group];
+            offsets[2 * group] = isCaptured ? captures[2 * group] : -1;
+            offsets[2 * group + 1] = isCaptured ? captures[2 * group + 1] : -1;
+        }
+    }
+
+    private boolean findBounds(int from) {
+        int candidate = prefilter.find(string, from);
+        if (candidate < 0 || candidate > to) {
+            index = string.length() + 1;
+            return false;
+        }
+        if (isMatchOnly) {
+            // The caller only wants to know whether there is a match, don't look for its bounds
+            int earliestEnd = dfa.earliestMatchEnd(string, candidate, to, budget);
+            if (earliestEnd < 0) {
+                index = string.length() + 1;
+                return false;
+            }
+            return moveTo(earliestEnd, earliestEnd);
+        }
+
+        int end = dfa.leftmostMatchEnd(string, candidate, to, budget);
+        if (end < 0) {
+            index = string.length() + 1;
+            return false;
+        }
+        int start = isReversible(end) ? findStart(candidate, end) : findStartForward(candidate, end);
+        if (start > to) {
+            // The search didn't stop at the end of the region, the leftmost match starts after it
+            index = string.length() + 1;
+            return false;
+        }
+        return captures != null ? findAt(start) : moveTo(start, end);
+    }
+
+    /**
+     * Returns where the leftmost-first match ending at {@code end} starts, the longest
+     * reversed match read backwards from there which doesn't start before {@code from}
+     */
+    private int findStart(int from, int end) {
+        int length = string.length();
+        LazyDFA reverseDFA = reverseDFAs.acquire();
+        int reversedEnd;
+        try {
+            reversedEnd = reverseDFA.anchoredMatchEnd(new ReversedSequence(string), length - end, length - from, budget);
+        } finally {
+            reverseDFAs.release(reverseDFA);
+        }
+        if (reversedEnd < 0) {
+            throw new IllegalStateException("No match ends at " + end);
+        }
+        return length - reversedEnd;
+    }
+
+    /**
+     * Returns where the leftmost-first match ending at {@code end} starts, trying anchored
+     * matches from each position where the prefilter allows one
+     */
+    private int findStartForward(int from, int end) {
+        for (int start = from; start >= 0 && start <= end; start = prefilter.find(string, start + 1)) {
+            if (dfa.anchoredMatchEnd(string, start, budget) >= 0) {
+                return start;
+            }
+        }
+        throw new IllegalStateException("No match ends at " + end);
+    }
+
+    /**
+     * Whether the reversed program finds the matches ending at {@code end}, see
+     * {@link Program#reverse()}: not those reaching a final '\n' of a pattern which may
+     * match before it
+     */
+    private boolean isReversible(int end) {
+        int length = string.length();
+        return !hasEndOfString || end < length - 1 || length == 0 || string.charAt(length - 1) != '\n';
+    }
+
+    /**
+     * Finds the leftmost match of a pattern anchored to the end of the input, which starts
+     * where the longest reversed match read from the end does
+     */
+    private boolean findFromEnd() {
+        LazyDFA reverseDFA = reverseDFAs.acquire();
+        int length;
+        try {
+            length = reverseDFA.anchoredMatchEnd(new ReversedSequence(string), 0, budget);
+        } finally {
+            reverseDFAs.release(reverseDFA);
+        }
+        if (length < 0) {
+            index = string.length() + 1;
+            return false;
+        }
+        int start = string.length() - length;
+        // The caller only wants to know whether there is a match, it was found
+        return isMatchOnly ? moveTo(start, start) : findAt(start);
+    }
+
+    /**
+     * Looks for the leftmost-first match starting exactly at {@code start}
+     */
+    private boolean findAt(int start) {
+        // A one-pass pattern needs neither the thread lists nor their copies of the slots
+        if (onePass != null) {
+            if (onePass.search(string, start, captures, slots, budget)) {
+                return moveTo(captures[0], captures[1]);
+            }
+        } else if (pikeVM != null) {
+            int previousMatchIndex = cursor.getPreviousMatchIndex().orElse(0);
+            if (pikeVM.search(string, start, previousMatchIndex, true, false, captures, budget)) {
+                return moveTo(captures[0], captures[1]);
+            }
+        } else {
+            int end = dfa.anchoredMatchEnd(string, start, budget);
+            if (end >= 0) {
+                return moveTo(start, end);
+            }
+        }
+        index = string.length() + 1;
+        return false;
+    }
+
+    private boolean moveTo(int start, int end) {
+        cursor.setStartIndex(start);
+        cursor.setIndex(end);
+        cursor.setPreviousMatchIndex(end);
+        index = start == end ? end + 1 : end;
+        return true;
     }
 }
@@ -0,0 +1,25 @@
+package com.example.regex.matcher;
+
+/**
+ * A matcher which can search another string, keeping what it allocated for the previous
+ * one: thread lists, capture arrays, the cursor.
+ */
+public interface ResettableMatching extends Matching {
+    /**
+     * Makes the matcher search the string from its start
+     */
+    void reset(CharSequence string);
+
+    /**
+     * Moves to the next match without making a {@link com.example.regex.Regex.Match} of
+     * it, returns whether there is one. Its offsets are then read with {@link #offsets}.
+     */
+    boolean find();
+
+    /**
+     * Copies the start and end of the last match found, then of each capture group, into
+     * an array of {@code 2 * (groups + 1)} offsets. The groups which didn't participate
+     * in the match, or which a match-only matcher doesn't track, are {@code -1}.
+     */
+    void offsets(int[] offsets);
+}
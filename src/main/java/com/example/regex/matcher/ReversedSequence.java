@@ -0,0 +1,38 @@
+package com.example.regex.matcher;
+
+/**
+ * The characters of an input from the last one to the first one, read by the
+ * {@link com.example.regex.compiler.Program#reverse() reversed programs}. Surrogate pairs
+ * are reversed as any other characters.
+ */
+public final class ReversedSequence implements CharSequence {
+    private final CharSequence input;
+
+    public ReversedSequence(CharSequence input) {
+        this.input = input;
+    }
+
+    @Override
+    public int length() {
+        return input.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return input.charAt(input.length() - 1 - index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        StringBuilder builder = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            builder.append(charAt(i));
+        }
+        return builder;
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length()).toString();
+    }
+}
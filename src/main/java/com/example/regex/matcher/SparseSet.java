@@ -0,0 +1,55 @@
+package com.example.regex.matcher;
+
+import java.util.Arrays;
+
+/**
+ * A set of integers in {@code [0, capacity)} with constant time insertion,
+ * membership test and clearing, iterated in insertion order (Briggs & Torczon).
+ * Neither operation allocates, so the matchers keep one per thread list.
+ */
+final class SparseSet {
+    private final int[] dense;
+    private final int[] sparse;
+    private int size;
+
+    SparseSet(int capacity) {
+        dense = new int[capacity];
+        sparse = new int[capacity];
+    }
+
+    boolean contains(int value) {
+        int index = sparse[value];
+        return index < size && dense[index] == value;
+    }
+
+    /**
+     * Returns {@code false} if the value is already in the set
+     */
+    boolean add(int value) {
+        if (contains(value)) return false;
+        dense[size] = value;
+        sparse[value] = size;
+        size++;
+        return true;
+    }
+
+    int get(int index) {
+        return dense[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(dense, size);
+    }
+}
@@ -1,10 +1,135 @@
 package com.example.regex.optimizer;
 
 import com.example.regex.ast.AST;
+import com.example.regex.ast.Alternation;
+import com.example.regex.ast.CharacterGroup;
+import com.example.regex.ast.Group;
+import com.example.regex.ast.ImplicitGroup;
+import com.example.regex.ast.Match;
+import com.example.regex.ast.QuantifiedExpression;
+import com.example.regex.ast.Unit;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Rewrites the AST into an equivalent one which compiles to fewer states:
+ * <ul>
+ *     <li>non-capturing groups and single child groups are replaced by their children,
+ *     nested alternations are merged into one</li>
+ *     <li>runs of characters are merged into a single {@link Match.string}</li>
+ *     <li>character groups with a single character or set, such as {@code [a]} or
+ *     {@code [\d]}, are replaced by the character or the set</li>
+ * </ul>
+ * The order of the alternatives is preserved, so are the capture groups.
+ */
 public class Optimizer {
     public AST optimize(AST ast) {
-        // TODO build optimizer
-        return ast;
+        return new AST(ast.isFromStartOfString(), optimize(ast.root()));
+    }
+
+    /**
+     * Returns the branches of an optimized pattern which is only an alternation of
+     * literals, possibly in a capture group, such as {@code foo|bar|baz}. Such a
+     * pattern is searched for with an Aho-Corasick automaton instead of its state machine.
+     */
+    public static Optional<List<String>> literalAlternatives(AST ast) {
+        if (ast.isFromStartOfString()) return Optional.empty();
+
+        Unit root = ast.root();
+        if (root instanceof Group group && group.children().size() == 1) {
+            root = group.children().getFirst();
+        }
+        if (!(root instanceof Alternation alternation)) return Optional.empty();
+
+        List<String> literals = new ArrayList<>();
+        for (Unit child : alternation.children()) {
+            switch (child) {
+                case Match.character(char character) -> literals.add(String.valueOf(character));
+                case Match.string(String string) -> literals.add(string);
+                default -> {
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.of(literals);
+    }
+
+    private Unit optimize(Unit unit) {
+        return switch (unit) {
+            case Group group when group.isCapturing() -> new Group(group.index(), true, sequence(group.children()));
+            case Group group -> flatten(sequence(group.children()));
+            case ImplicitGroup group -> flatten(sequence(group.children()));
+            case Alternation alternation -> new Alternation(alternatives(alternation.children()));
+            case QuantifiedExpression quantified ->
+                    new QuantifiedExpression(optimize(quantified.expression()), quantified.quantifier());
+            case Match.group(CharacterGroup group) -> simplify(group);
+            default -> unit;
+        };
+    }
+
+    /**
+     * Optimizes the units of a concatenation, inlining the nested concatenations and
+     * merging the consecutive characters.
+     */
+    private List<Unit> sequence(List<Unit> children) {
+        List<Unit> units = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        for (Unit child : children) {
+            Unit optimized = optimize(child);
+            List<Unit> inlined = optimized instanceof ImplicitGroup group ? group.children() : List.of(optimized);
+            for (Unit unit : inlined) {
+                switch (unit) {
+                    case Match.character(char character) -> literal.append(character);
+                    case Match.string(String string) -> literal.append(string);
+                    default -> {
+                        appendLiteral(units, literal);
+                        units.add(unit);
+                    }
+                }
+            }
+        }
+        appendLiteral(units, literal);
+        return units;
+    }
+
+    private static void appendLiteral(List<Unit> units, StringBuilder literal) {
+        if (literal.isEmpty()) return;
+        units.add(literal.length() == 1
+                ? new Match.character(literal.charAt(0))
+                : new Match.string(literal.toString()));
+        literal.setLength(0);
+    }
+
+    private List<Unit> alternatives(List<Unit> children) {
+        List<Unit> alternatives = new ArrayList<>();
+        for (Unit child : children) {
+            Unit optimized = optimize(child);
+            if (optimized instanceof Alternation alternation) {
+                alternatives.addAll(alternation.children());
+            } else {
+                alternatives.add(optimized);
+            }
+        }
+        return alternatives;
+    }
+
+    private static Unit flatten(List<Unit> units) {
+        return units.size() == 1 ? units.getFirst() : new ImplicitGroup(units);
+    }
+
+    /**
+     * Inverted groups are kept, their negation doesn't combine with case insensitivity
+     * the same way as an inverted set does.
+     */
+    private static Unit simplify(CharacterGroup group) {
+        if (group.isInverted() || group.items().size() != 1) return new Match.group(group);
+
+        return switch (group.items().getFirst()) {
+            case CharacterGroup.Item.character(char character) -> new Match.character(character);
+            case CharacterGroup.Item.set(var set) -> new Match.set(set);
+            case CharacterGroup.Item.range range -> new Match.group(group);
+        };
     }
 }
@@ -0,0 +1,104 @@
+package com.example.regex.prefilter;
+
+import com.example.regex.simd.CharScanner;
+import com.example.regex.simd.CharScanners;
+
+import java.util.Arrays;
+
+/**
+ * Boyer-Moore-Horspool search of a literal: the last character of the window tells
+ * how far the literal can be shifted, on most inputs it skips {@code length} characters
+ * at a time. The shifts are indexed by the low byte of the characters, characters
+ * sharing it get the smallest of their shifts.
+ * <p>
+ * With a vectorized {@link CharScanner} the input is scanned for the rarest character
+ * of the literal instead, judging by how frequent characters are in text and logs,
+ * and the literal is compared where it occurs.
+ */
+public final class Horspool {
+    /**
+     * Characters from the most frequent to the least, the others are rarer still
+     */
+    private static final String FREQUENT = " etaoinsrhldcumfpgwybvk.,-:/=_0123456789\n\"'()xjqz";
+
+    private final String literal;
+    private final int[] shifts;
+    private final CharScanner scanner = CharScanners.best();
+    private final int rareOffset;
+    private final char[] rare;
+
+    public Horspool(String literal) {
+        if (literal.isEmpty()) {
+            throw new IllegalArgumentException("Literal must not be empty");
+        }
+        this.literal = literal;
+        this.shifts = new int[256];
+        int last = literal.length() - 1;
+        Arrays.fill(shifts, literal.length());
+        for (int i = 0; i < last; i++) {
+            shifts[literal.charAt(i) & 0xFF] = last - i;
+        }
+
+        int rareOffset = 0;
+        for (int i = 1; i < literal.length(); i++) {
+            if (frequency(literal.charAt(i)) < frequency(literal.charAt(rareOffset))) {
+                rareOffset = i;
+            }
+        }
+        this.rareOffset = rareOffset;
+        this.rare = CharScanner.single(literal.charAt(rareOffset));
+    }
+
+    private static int frequency(char character) {
+        int index = FREQUENT.indexOf(character);
+        if (index >= 0) return 2 * FREQUENT.length() - index;
+        return character < 128 && Character.isUpperCase(character) ? FREQUENT.length() : 0;
+    }
+
+    public String literal() {
+        return literal;
+    }
+
+    /**
+     * Returns the first occurrence of the literal at or after {@code from} or {@code -1}
+     */
+    public int find(CharSequence input, int from) {
+        if (scanner.isVectorized()) return findRare(input, from);
+
+        int last = literal.length() - 1;
+        char lastCharacter = literal.charAt(last);
+        int end = input.length() - last;
+        int index = Math.max(from, 0);
+        while (index < end) {
+            char character = input.charAt(index + last);
+            if (character == lastCharacter && matchesAt(input, index)) {
+                return index;
+            }
+            index += shifts[character & 0xFF];
+        }
+        return -1;
+    }
+
+    private int findRare(CharSequence input, int from) {
+        int end = input.length() - literal.length() + 1;
+        for (int index = Math.max(from, 0); index < end; index++) {
+            int hit = scanner.indexOfAny(input, index + rareOffset, end + rareOffset, rare);
+            if (hit < 0) return -1;
+            index = hit - rareOffset;
+            if (scanner.regionMatches(input, index, literal)) return index;
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(CharSequence input, int index) {
+        for (int i = literal.length() - 2; i >= 0; i--) {
+            if (input.charAt(index + i) != literal.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "Horspool(" + literal + ")";
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.regex.prefilter;
+
+import com.example.regex.simd.CharScanner;
+import com.example.regex.simd.CharScanners;
+
+/**
+ * Candidates of the patterns anchored to the start of a line ({@code ^} in multiline
+ * mode): the candidates of the literal prefixes which are at the start of a line. The
+ * prefixes and the line starts are looked for in turn, each skipping ahead to the next
+ * position the other allows.
+ */
+public final class LineStartPrefilter implements Prefilter {
+    private static final char[] NEW_LINE = CharScanner.single('\n');
+
+    private final Prefilter prefixes;
+    private final CharScanner scanner = CharScanners.best();
+
+    public LineStartPrefilter(Prefilter prefixes) {
+        this.prefixes = prefixes;
+    }
+
+    @Override
+    public int find(CharSequence input, int from) {
+        for (int candidate = prefixes.find(input, from); candidate >= 0; ) {
+            if (candidate == 0 || input.charAt(candidate - 1) == '\n') return candidate;
+
+            int newLine = input instanceof String string
+                    ? string.indexOf('\n', candidate)
+                    : scanner.indexOfAny(input, candidate, input.length(), NEW_LINE);
+            if (newLine < 0) return -1;
+            candidate = prefixes.find(input, newLine + 1);
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "LineStartPrefilter(" + prefixes + ")";
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.regex.prefilter;
+
+import com.example.regex.ast.AST;
+import com.example.regex.ast.Alternation;
+import com.example.regex.ast.Anchor;
+import com.example.regex.ast.Group;
+import com.example.regex.ast.ImplicitGroup;
+import com.example.regex.ast.Match;
+import com.example.regex.ast.Quantifier;
+import com.example.regex.ast.QuantifiedExpression;
+import com.example.regex.ast.Unit;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Literals every match of a unit starts with.
+ *
+ * @param strings one of them starts every match
+ * @param isExact whether the matches are exactly the strings, a following unit
+ *                can then extend them
+ */
+public record Literals(Set<String> strings, boolean isExact) {
+    /**
+     * Beyond this many prefixes, scanning for all of them is slower than running the matchers
+     */
+    static final int MAX_PREFIXES = 16;
+
+    /**
+     * Returns the prefilter jumping to where the literal prefixes of the pattern occur,
+     * or {@link Prefilter#none()} when matches can start with anything.
+     */
+    public static Prefilter prefilter(AST ast, boolean ignoreCase) {
+        if (ignoreCase) return Prefilter.none();
+
+        Optional<Literals> prefixes = prefixes(ast.root());
+        if (prefixes.isEmpty() || prefixes.get().strings().contains("")) {
+            return Prefilter.none();
+        }
+        List<String> strings = List.copyOf(prefixes.get().strings());
+        return strings.size() == 1 ? new PrefixPrefilter(strings.getFirst()) : new PrefixSetPrefilter(strings);
+    }
+
+    /**
+     * Returns the literals starting every match of the unit, or nothing if a match can
+     * start with any character.
+     */
+    static Optional<Literals> prefixes(Unit unit) {
+        return switch (unit) {
+            case Match.character(char character) -> exact(String.valueOf(character));
+            case Match.string(String string) -> exact(string);
+            case Match match -> Optional.empty();
+            // Anchors don't consume anything, the matches start with what follows
+            case Anchor anchor -> exact("");
+            case Group group -> concatenation(group.children());
+            case ImplicitGroup group -> concatenation(group.children());
+            case Alternation alternation -> alternation(alternation.children());
+            case QuantifiedExpression quantified when minimum(quantified.quantifier()) > 0 ->
+                    prefixes(quantified.expression()).map(literals -> new Literals(literals.strings(), false));
+            default -> Optional.empty();
+        };
+    }
+
+    private static Optional<Literals> exact(String string) {
+        return Optional.of(new Literals(Set.of(string), true));
+    }
+
+    private static Optional<Literals> concatenation(List<Unit> children) {
+        Set<String> strings = Set.of("");
+        for (Unit child : children) {
+            Optional<Literals> next = prefixes(child);
+            if (next.isEmpty() || strings.size() * next.get().strings().size() > MAX_PREFIXES) {
+                return strings.contains("") ? Optional.empty() : Optional.of(new Literals(strings, false));
+            }
+
+            Set<String> concatenated = new LinkedHashSet<>();
+            for (String prefix : strings) {
+                for (String suffix : next.get().strings()) {
+                    concatenated.add(prefix + suffix);
+                }
+            }
+            strings = concatenated;
+            if (!next.get().isExact()) {
+                return Optional.of(new Literals(strings, false));
+            }
+        }
+        return Optional.of(new Literals(strings, true));
+    }
+
+    private static Optional<Literals> alternation(List<Unit> children) {
+        Set<String> strings = new LinkedHashSet<>();
+        boolean isExact = true;
+        for (Unit child : children) {
+            Optional<Literals> literals = prefixes(child);
+            if (literals.isEmpty()) return Optional.empty();
+            strings.addAll(literals.get().strings());
+            isExact &= literals.get().isExact();
+        }
+        return strings.size() > MAX_PREFIXES ? Optional.empty() : Optional.of(new Literals(strings, isExact));
+    }
+
+    static int minimum(Quantifier quantifier) {
+        return switch (quantifier.type()) {
+            case Quantifier.Type.zeroOrMore zeroOrMore -> 0;
+            case Quantifier.Type.zeroOrOne zeroOrOne -> 0;
+            case Quantifier.Type.oneOrMore oneOrMore -> 1;
+            case Quantifier.Type.range range -> range.lowerBound();
+        };
+    }
+}
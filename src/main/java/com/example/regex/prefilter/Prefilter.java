@@ -0,0 +1,28 @@
+package com.example.regex.prefilter;
+
+/**
+ * Finds the positions where a match can start much faster than the matchers can,
+ * so they only run from those positions.
+ */
+@FunctionalInterface
+public interface Prefilter {
+    /**
+     * Returns the first position at or after {@code from} where a match can start,
+     * or {@code -1} if no match can start there.
+     */
+    int find(CharSequence input, int from);
+
+    /**
+     * The prefilter of the patterns without literal prefixes, every position is a candidate.
+     */
+    static Prefilter none() {
+        return (input, from) -> from <= input.length() ? from : -1;
+    }
+
+    /**
+     * The prefilter of the patterns anchored to the start of the input, their only candidate.
+     */
+    static Prefilter startOfString() {
+        return (input, from) -> from == 0 ? 0 : -1;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.regex.prefilter;
+
+import com.example.regex.simd.CharScanner;
+import com.example.regex.simd.CharScanners;
+
+/**
+ * Candidates of the patterns starting with a single literal, found with
+ * {@link String#indexOf(String, int)}, or with the {@link CharScanner} on other
+ * character sequences.
+ */
+public final class PrefixPrefilter implements Prefilter {
+    private final String prefix;
+    private final char[] first;
+    private final CharScanner scanner = CharScanners.best();
+
+    public PrefixPrefilter(String prefix) {
+        if (prefix.isEmpty()) {
+            throw new IllegalArgumentException("Prefix must not be empty");
+        }
+        this.prefix = prefix;
+        this.first = CharScanner.single(prefix.charAt(0));
+    }
+
+    @Override
+    public int find(CharSequence input, int from) {
+        if (input instanceof String string) {
+            return string.indexOf(prefix, from);
+        }
+
+        int end = input.length() - prefix.length() + 1;
+        for (int i = scanner.indexOfAny(input, from, end, first); i >= 0;
+             i = scanner.indexOfAny(input, i + 1, end, first)) {
+            if (scanner.regionMatches(input, i, prefix)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "PrefixPrefilter(" + prefix + ")";
+    }
+}
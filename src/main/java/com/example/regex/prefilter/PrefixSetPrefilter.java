@@ -0,0 +1,59 @@
+package com.example.regex.prefilter;
+
+import com.example.regex.simd.CharScanner;
+import com.example.regex.simd.CharScanners;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Candidates of the patterns starting with one of a few literals: the first
+ * characters of the literals are looked for with the {@link CharScanner} when they
+ * make a few ranges, in a bitmap otherwise, the literals are only compared where
+ * one of them matches.
+ */
+public final class PrefixSetPrefilter implements Prefilter {
+    private final String[] prefixes;
+    private final BitSet firstCharacters;
+    /**
+     * Ranges of the first characters, {@code null} if there are too many
+     */
+    private final char[] firstRanges;
+    private final CharScanner scanner = CharScanners.best();
+
+    public PrefixSetPrefilter(List<String> prefixes) {
+        if (prefixes.isEmpty() || prefixes.stream().anyMatch(String::isEmpty)) {
+            throw new IllegalArgumentException("Prefixes must not be empty");
+        }
+        this.prefixes = prefixes.toArray(String[]::new);
+        this.firstCharacters = new BitSet();
+        for (String prefix : prefixes) {
+            firstCharacters.set(prefix.charAt(0));
+        }
+        this.firstRanges = CharScanner.ranges(firstCharacters).orElse(null);
+    }
+
+    @Override
+    public int find(CharSequence input, int from) {
+        int length = input.length();
+        for (int i = Math.max(from, 0); i < length; i++) {
+            if (firstRanges != null) {
+                i = scanner.indexOfAny(input, i, length, firstRanges);
+                if (i < 0) return -1;
+            } else if (!firstCharacters.get(input.charAt(i))) {
+                continue;
+            }
+            for (String prefix : prefixes) {
+                if (scanner.regionMatches(input, i, prefix)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "PrefixSetPrefilter" + List.of(prefixes);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.regex.prefilter;
+
+import com.example.regex.ast.AST;
+import com.example.regex.ast.Alternation;
+import com.example.regex.ast.Anchor;
+import com.example.regex.ast.Group;
+import com.example.regex.ast.ImplicitGroup;
+import com.example.regex.ast.Match;
+import com.example.regex.ast.QuantifiedExpression;
+import com.example.regex.ast.Quantifier;
+import com.example.regex.ast.Unit;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * A literal every match contains, for the patterns which don't start with one.
+ * <p>
+ * A match starting at or after some position contains an occurrence of the literal
+ * after that position, so an input without it can't match and the search can start
+ * where the first occurrence is, minus the longest distance between the start of a
+ * match and the literal when the length of the matches is bounded.
+ *
+ * @param maxDistance the longest distance between the start of a match and the start
+ *                    of the literal, {@code -1} if unbounded
+ */
+public record RequiredLiteral(Horspool searcher, int maxDistance) {
+    /**
+     * Shorter literals are too frequent to skip much
+     */
+    static final int MIN_LENGTH = 2;
+
+    /**
+     * Returns the longest literal every match of the pattern contains, if the pattern
+     * doesn't start with a literal already.
+     */
+    public static Optional<RequiredLiteral> of(AST ast, boolean ignoreCase) {
+        if (ignoreCase || Literals.prefixes(ast.root()).isPresent()) return Optional.empty();
+
+        return longest(ast.root())
+                .filter(literal -> literal.length() >= MIN_LENGTH)
+                .map(literal -> {
+                    int maxLength = maxLength(ast.root());
+                    return new RequiredLiteral(new Horspool(literal),
+                            maxLength < 0 ? -1 : maxLength - literal.length());
+                });
+    }
+
+    /**
+     * Returns where a search from {@code from} can start
+     *
+     * @param hit the first occurrence of the literal at or after {@code from}
+     */
+    public int searchStart(int from, int hit) {
+        return maxDistance < 0 ? from : Math.max(from, hit - maxDistance);
+    }
+
+    /**
+     * Returns the first occurrence of the literal at or after {@code from} or {@code -1}
+     */
+    public int find(CharSequence input, int from) {
+        return searcher.find(input, from);
+    }
+
+    /**
+     * Returns the longest literal every match of the unit contains
+     */
+    static Optional<String> longest(Unit unit) {
+        return switch (unit) {
+            case Match.character(char character) -> Optional.of(String.valueOf(character));
+            case Match.string(String string) -> Optional.of(string);
+            case Group group -> longest(group.children());
+            case ImplicitGroup group -> longest(group.children());
+            case QuantifiedExpression quantified when Literals.minimum(quantified.quantifier()) > 0 ->
+                    longest(quantified.expression());
+            default -> Optional.empty();
+        };
+    }
+
+    /**
+     * Every child of a concatenation is required, so is every literal starting a
+     * suffix of the concatenation, which can span several children as in {@code (ab)c}.
+     */
+    private static Optional<String> longest(List<Unit> children) {
+        Optional<String> longest = Optional.empty();
+        for (int i = 0; i < children.size(); i++) {
+            Optional<String> candidates = Stream.of(
+                            longest(children.get(i)),
+                            Literals.prefixes(new ImplicitGroup(children.subList(i, children.size())))
+                                    .filter(literals -> literals.strings().size() == 1)
+                                    .map(literals -> literals.strings().iterator().next()))
+                    .flatMap(Optional::stream)
+                    .max(Comparator.comparingInt(String::length));
+            if (candidates.isPresent() && candidates.get().length() > longest.map(String::length).orElse(0)) {
+                longest = candidates;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Returns the length of the longest match of the unit, {@code -1} if unbounded
+     */
+    static int maxLength(Unit unit) {
+        return switch (unit) {
+            case Match.string(String string) -> string.length();
+            case Match match -> 1;
+            case Anchor anchor -> 0;
+            case Group group -> sum(group.children());
+            case ImplicitGroup group -> sum(group.children());
+            case Alternation alternation -> alternation.children().stream()
+                    .mapToInt(RequiredLiteral::maxLength)
+                    .reduce(0, (lhs, rhs) -> lhs < 0 || rhs < 0 ? -1 : Math.max(lhs, rhs));
+            case QuantifiedExpression quantified -> switch (quantified.quantifier().type()) {
+                case Quantifier.Type.zeroOrOne zeroOrOne -> maxLength(quantified.expression());
+                case Quantifier.Type.range(int lowerBound, Optional<Integer> upperBound)
+                        when upperBound.isPresent() -> multiply(maxLength(quantified.expression()), upperBound.get());
+                default -> -1;
+            };
+            default -> -1;
+        };
+    }
+
+    private static int sum(List<Unit> children) {
+        long sum = 0;
+        for (Unit child : children) {
+            int length = maxLength(child);
+            if (length < 0) return -1;
+            sum += length;
+        }
+        return sum > Integer.MAX_VALUE ? -1 : (int) sum;
+    }
+
+    private static int multiply(int length, int count) {
+        long product = (long) length * count;
+        return length < 0 || product > Integer.MAX_VALUE ? -1 : (int) product;
+    }
+}
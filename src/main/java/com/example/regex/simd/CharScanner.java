@@ -0,0 +1,60 @@
+package com.example.regex.simd;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The scanning loops the engines spend most of their time in when they skip text:
+ * looking for the next character of a small set and comparing literals.
+ * <p>
+ * Character sets are given as ranges, {@code [low0, high0, low1, high1, ...]} with
+ * inclusive bounds, at most {@value #MAX_RANGES} of them. The ranges made by
+ * {@link #single} and {@link #ranges} are padded to {@value #MAX_RANGES} by repeating the
+ * first one, which the vectorized scans compare with at once. See {@link CharScanners}
+ * for the implementations.
+ */
+public interface CharScanner {
+    int MAX_RANGES = 4;
+
+    /**
+     * Returns the first index in {@code [from, to)} whose character is in one of the
+     * ranges or {@code -1}
+     */
+    int indexOfAny(CharSequence input, int from, int to, char[] ranges);
+
+    /**
+     * Returns whether the literal occurs in the input at {@code offset}
+     */
+    boolean regionMatches(CharSequence input, int offset, String literal);
+
+    boolean isVectorized();
+
+    /**
+     * Returns the ranges of a single character
+     */
+    static char[] single(char character) {
+        return ScalarCharScanner.padded(new char[]{character, character});
+    }
+
+    /**
+     * Returns the ranges of the characters of the set, nothing if there are more
+     * than {@value #MAX_RANGES} of them
+     */
+    static Optional<char[]> ranges(BitSet characters) {
+        List<Character> bounds = new ArrayList<>();
+        for (int low = characters.nextSetBit(0); low >= 0; ) {
+            int end = characters.nextClearBit(low);
+            if (bounds.size() == 2 * MAX_RANGES) return Optional.empty();
+            bounds.add((char) low);
+            bounds.add((char) (end - 1));
+            low = end > Character.MAX_VALUE ? -1 : characters.nextSetBit(end);
+        }
+        char[] ranges = new char[bounds.size()];
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = bounds.get(i);
+        }
+        return Optional.of(ScalarCharScanner.padded(ranges));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.regex.simd;
+
+import java.util.Optional;
+import java.util.logging.Logger;
+
+/**
+ * Picks the {@link CharScanner} of the engines, once per JVM.
+ * <p>
+ * The vectorized scanner needs the incubating {@code jdk.incubator.vector} module,
+ * which is only resolved when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}. Without it, or with the system property
+ * {@value #PROPERTY} set to {@code false}, the engines use the scalar scanner.
+ */
+public final class CharScanners {
+    public static final String PROPERTY = "com.example.regex.vectorize";
+
+    private static final Logger LOGGER = Logger.getLogger(CharScanners.class.getName());
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final CharScanner SCALAR = new ScalarCharScanner();
+    private static final CharScanner VECTOR = loadVector();
+    private static final CharScanner BEST =
+            VECTOR != null && Boolean.parseBoolean(System.getProperty(PROPERTY, "true")) ? VECTOR : SCALAR;
+
+    private CharScanners() {
+    }
+
+    /**
+     * Returns the scanner the engines use
+     */
+    public static CharScanner best() {
+        return BEST;
+    }
+
+    public static CharScanner scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * Returns the vectorized scanner, nothing if the Vector API isn't available
+     */
+    public static Optional<CharScanner> vector() {
+        return Optional.ofNullable(VECTOR);
+    }
+
+    private static CharScanner loadVector() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            LOGGER.fine(() -> VECTOR_MODULE + " isn't available, scanning without it");
+            return null;
+        }
+        try {
+            return new VectorCharScanner();
+        } catch (LinkageError e) {
+            LOGGER.fine(() -> "Could not load the vectorized scanner: " + e);
+            return null;
+        }
+    }
+}
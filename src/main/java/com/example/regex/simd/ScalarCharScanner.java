@@ -0,0 +1,84 @@
+package com.example.regex.simd;
+
+/**
+ * Character by character scans, with the {@link String} methods the JDK already
+ * vectorizes for single characters and literals.
+ */
+final class ScalarCharScanner implements CharScanner {
+
+    @Override
+    public int indexOfAny(CharSequence input, int from, int to, char[] ranges) {
+        int start = Math.max(from, 0);
+        if (isSingle(ranges) && input instanceof String string) {
+            int index = string.indexOf(ranges[0], start);
+            return index < to ? index : -1;
+        }
+        for (int i = start; i < to; i++) {
+            if (inRanges(input.charAt(i), ranges)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean regionMatches(CharSequence input, int offset, String literal) {
+        if (offset < 0 || offset + literal.length() > input.length()) return false;
+        if (input instanceof String string) {
+            return string.startsWith(literal, offset);
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (input.charAt(offset + i) != literal.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return false;
+    }
+
+    static boolean inRanges(char character, char[] ranges) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (i > 0 && isFirst(ranges, i)) break;
+            // Unsigned comparison, characters below the range wrap around above it
+            if ((char) (character - ranges[i]) <= ranges[i + 1] - ranges[i]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the ranges are a single character, padded or not
+     */
+    static boolean isSingle(char[] ranges) {
+        if (ranges.length == 0 || ranges[0] != ranges[1]) return false;
+        for (int i = 2; i < ranges.length; i += 2) {
+            if (!isFirst(ranges, i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ranges with {@value #MAX_RANGES} ranges, the missing ones repeat the first
+     */
+    static char[] padded(char[] ranges) {
+        if (ranges.length == 0 || ranges.length == 2 * MAX_RANGES) return ranges;
+        char[] padded = new char[2 * MAX_RANGES];
+        for (int i = 0; i < padded.length; i += 2) {
+            int range = i < ranges.length ? i : 0;
+            padded[i] = ranges[range];
+            padded[i + 1] = ranges[range + 1];
+        }
+        return padded;
+    }
+
+    /**
+     * Whether the range at {@code i} repeats the first one, as the padding does
+     */
+    private static boolean isFirst(char[] ranges, int i) {
+        return ranges[i] == ranges[0] && ranges[i + 1] == ranges[1];
+    }
+
+    @Override
+    public String toString() {
+        return "ScalarCharScanner";
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.regex.simd;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Scans with the Vector API, {@code 16} or {@code 32} characters at a time depending on
+ * the widest vectors of the CPU.
+ * <p>
+ * A {@link CharSequence} doesn't expose its characters, they are copied block by block
+ * into a per-thread buffer ({@link String#getChars} is itself vectorized) and compared
+ * there. Blocks start small and double up to {@value #MAX_BLOCK} characters, and the
+ * first few characters are checked one by one, so short skips don't pay for copies.
+ * <p>
+ * Looking for a single character in a {@link String} and comparing a literal with one
+ * are left to {@link String#indexOf(int, int)} and {@link String#startsWith(String, int)},
+ * which the JIT already vectorizes without copying.
+ */
+final class VectorCharScanner implements CharScanner {
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final int SCALAR_PROBE = 16;
+    private static final int MIN_BLOCK = 64;
+    private static final int MAX_BLOCK = 4096;
+
+    /**
+     * Input block followed by the literal block for the comparisons
+     */
+    private static final ThreadLocal<char[]> BUFFERS = ThreadLocal.withInitial(() -> new char[2 * MAX_BLOCK]);
+
+    private final CharScanner strings = new ScalarCharScanner();
+
+    @Override
+    public int indexOfAny(CharSequence input, int from, int to, char[] ranges) {
+        if (ranges.length == 0) return -1;
+        if (input instanceof String && ScalarCharScanner.isSingle(ranges)) {
+            return strings.indexOfAny(input, from, to, ranges);
+        }
+
+        int index = Math.max(from, 0);
+        int probeEnd = Math.min(to, index + SCALAR_PROBE);
+        for (; index < probeEnd; index++) {
+            if (ScalarCharScanner.inRanges(input.charAt(index), ranges)) return index;
+        }
+        if (index >= to) return -1;
+
+        // The ranges of CharScanner.single and ranges are padded already
+        char[] padded = ScalarCharScanner.padded(ranges);
+        char[] buffer = BUFFERS.get();
+        int block = MIN_BLOCK;
+        while (index < to) {
+            int count = Math.min(block, to - index);
+            copy(input, index, count, buffer, 0);
+            int found = indexOfAny(buffer, count, padded);
+            if (found >= 0) return index + found;
+            index += count;
+            block = Math.min(2 * block, MAX_BLOCK);
+        }
+        return -1;
+    }
+
+    private static int indexOfAny(char[] buffer, int count, char[] ranges) {
+        ShortVector low0 = ShortVector.broadcast(SPECIES, (short) ranges[0]);
+        ShortVector low1 = ShortVector.broadcast(SPECIES, (short) ranges[2]);
+        ShortVector low2 = ShortVector.broadcast(SPECIES, (short) ranges[4]);
+        ShortVector low3 = ShortVector.broadcast(SPECIES, (short) ranges[6]);
+        short width0 = (short) (ranges[1] - ranges[0]);
+        short width1 = (short) (ranges[3] - ranges[2]);
+        short width2 = (short) (ranges[5] - ranges[4]);
+        short width3 = (short) (ranges[7] - ranges[6]);
+
+        int i = 0;
+        for (; i <= count - LANES; i += LANES) {
+            ShortVector characters = ShortVector.fromCharArray(SPECIES, buffer, i);
+            // Unsigned comparisons, characters below a range wrap around above it
+            VectorMask<Short> mask = characters.sub(low0).compare(VectorOperators.UNSIGNED_LE, width0)
+                    .or(characters.sub(low1).compare(VectorOperators.UNSIGNED_LE, width1))
+                    .or(characters.sub(low2).compare(VectorOperators.UNSIGNED_LE, width2))
+                    .or(characters.sub(low3).compare(VectorOperators.UNSIGNED_LE, width3));
+            if (mask.anyTrue()) return i + mask.firstTrue();
+        }
+        for (; i < count; i++) {
+            if (ScalarCharScanner.inRanges(buffer[i], ranges)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean regionMatches(CharSequence input, int offset, String literal) {
+        int length = literal.length();
+        if (offset < 0 || offset + length > input.length()) return false;
+        if (input instanceof String) return strings.regionMatches(input, offset, literal);
+        if (length < LANES) {
+            for (int i = 0; i < length; i++) {
+                if (input.charAt(offset + i) != literal.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        char[] buffer = BUFFERS.get();
+        for (int start = 0; start < length; start += MAX_BLOCK) {
+            int count = Math.min(MAX_BLOCK, length - start);
+            copy(input, offset + start, count, buffer, 0);
+            literal.getChars(start, start + count, buffer, MAX_BLOCK);
+
+            int i = 0;
+            for (; i <= count - LANES; i += LANES) {
+                ShortVector characters = ShortVector.fromCharArray(SPECIES, buffer, i);
+                ShortVector expected = ShortVector.fromCharArray(SPECIES, buffer, MAX_BLOCK + i);
+                if (characters.compare(VectorOperators.NE, expected).anyTrue()) return false;
+            }
+            for (; i < count; i++) {
+                if (buffer[i] != buffer[MAX_BLOCK + i]) return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+
+    private static void copy(CharSequence input, int from, int count, char[] buffer, int offset) {
+        switch (input) {
+            case String string -> string.getChars(from, from + count, buffer, offset);
+            case StringBuilder builder -> builder.getChars(from, from + count, buffer, offset);
+            default -> {
+                for (int i = 0; i < count; i++) {
+                    buffer[offset + i] = input.charAt(from + i);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "VectorCharScanner(" + LANES + " lanes)";
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.regex.util;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Characters of a region of a byte buffer or memory segment, one per byte (ISO-8859-1),
+ * read in place. Exactly the decoded text for a Latin-1 buffer, or an ASCII region of a
+ * UTF-8 one.
+ * <p>
+ * The {@link #utf8} views are the code units of the UTF-8 encoding instead, for the
+ * programs lowered to bytes: ASCII bytes are themselves and the other bytes are mapped
+ * to private use characters, which are neither word characters nor line terminators.
+ */
+public final class ByteSequence implements CharSequence {
+    /**
+     * Code unit of the byte {@code 0x80}, the bytes above it follow
+     */
+    private static final char UTF8_HIGH_BYTES = '\uF780';
+
+    private final MemorySegment segment;
+    private final boolean isUtf8;
+    private long offset;
+    private int length;
+
+    /**
+     * Returns a view of the bytes of the buffer from the index {@code offset}, its segment
+     * starts at its position
+     */
+    public ByteSequence(ByteBuffer buffer, int offset, int length) {
+        this(MemorySegment.ofBuffer(buffer), offset - buffer.position(), length, false);
+    }
+
+    public ByteSequence(MemorySegment segment, long offset, int length) {
+        this(segment, offset, length, false);
+    }
+
+    private ByteSequence(MemorySegment segment, long offset, int length, boolean isUtf8) {
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+        this.isUtf8 = isUtf8;
+    }
+
+    /**
+     * Returns a view of the UTF-8 code units of a region of the buffer
+     */
+    public static ByteSequence utf8(ByteBuffer buffer, int offset, int length) {
+        return new ByteSequence(MemorySegment.ofBuffer(buffer), offset - buffer.position(), length, true);
+    }
+
+    /**
+     * Returns the character standing for a byte in the {@link #utf8} views
+     */
+    public static char utf8Unit(byte b) {
+        return b >= 0 ? (char) b : (char) (UTF8_HIGH_BYTES + (b & 0x7F));
+    }
+
+    /**
+     * Moves the view to another region of the same buffer or segment
+     */
+    public ByteSequence reset(long offset, int length) {
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        byte b = segment.get(ValueLayout.JAVA_BYTE, offset + index);
+        return isUtf8 ? utf8Unit(b) : (char) (b & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || start > end || end > length) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ") out of " + length);
+        }
+        return new ByteSequence(segment, offset + start, end - start, isUtf8);
+    }
+
+    /**
+     * Returns the decoded text of the region
+     */
+    @Override
+    public String toString() {
+        byte[] bytes = segment.asSlice(offset, length).toArray(ValueLayout.JAVA_BYTE);
+        return new String(bytes, isUtf8 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+    }
+}
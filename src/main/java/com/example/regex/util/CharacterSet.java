@@ -1,15 +1,17 @@
 package com.example.regex.util;
 
+import java.util.BitSet;
+
 @FunctionalInterface
 public interface CharacterSet {
     boolean contains(char character);
 
     // Common predefined sets as static methods
-    CharacterSet decimalDigit = Character::isDigit;
-    CharacterSet whiteSpaces = Character::isWhitespace;
-    CharacterSet alphaNumeric = Character::isLetterOrDigit;
+    CharacterSet decimalDigit = ListedSet.cached(Character::isDigit);
+    CharacterSet whiteSpaces = ListedSet.cached(Character::isWhitespace);
+    CharacterSet alphaNumeric = ListedSet.cached(Character::isLetterOrDigit);
     CharacterSet word = alphaNumeric.union(charactersIn("_"));
-    CharacterSet punctuationCharacters = character -> {
+    CharacterSet punctuationCharacters = ListedSet.cached(character -> {
         var type = Character.getType(character);
         return type == Character.CONNECTOR_PUNCTUATION ||
                type == Character.DASH_PUNCTUATION ||
@@ -18,41 +20,83 @@ public interface CharacterSet {
                type == Character.OTHER_PUNCTUATION ||
                type == Character.INITIAL_QUOTE_PUNCTUATION ||
                type == Character.FINAL_QUOTE_PUNCTUATION;
-    };
-    CharacterSet capitalizedLetters = Character::isUpperCase;
-    CharacterSet lowerCaseCharacters = Character::isLowerCase;
-    CharacterSet nonBaseCharacters = character -> Character.getType(character) == Character.NON_SPACING_MARK;
-    CharacterSet symbols = character -> {
+    });
+    CharacterSet capitalizedLetters = ListedSet.cached(Character::isUpperCase);
+    CharacterSet lowerCaseCharacters = ListedSet.cached(Character::isLowerCase);
+    CharacterSet nonBaseCharacters = ListedSet.cached(
+            character -> Character.getType(character) == Character.NON_SPACING_MARK);
+    CharacterSet symbols = ListedSet.cached(character -> {
         var type = Character.getType(character);
         return type == Character.MATH_SYMBOL ||
                type == Character.CURRENCY_SYMBOL ||
                type == Character.MODIFIER_SYMBOL ||
                type == Character.OTHER_SYMBOL;
-    };
+    });
 
     static CharacterSet charactersIn(String allowed) {
-        return character -> allowed.indexOf(character) != -1;
+        return new ListedSet(character -> allowed.indexOf(character) != -1, () -> {
+            BitSet characters = new BitSet();
+            allowed.chars().forEach(characters::set);
+            return characters;
+        });
     }
 
     static CharacterSet fromChar(char character) {
-        return c -> c == character;
+        return new ListedSet(c -> c == character, () -> {
+            BitSet characters = new BitSet();
+            characters.set(character);
+            return characters;
+        });
     }
 
     static CharacterSet fromRange(Range<Character> range) {
         int lowerBound = range.lowerBound();
         int upperBound = range.upperBound();
-        return c -> c >= lowerBound && c <= upperBound;
+        return new ListedSet(c -> c >= lowerBound && c <= upperBound, () -> {
+            BitSet characters = new BitSet();
+            characters.set(lowerBound, upperBound + 1);
+            return characters;
+        });
     }
 
     static CharacterSet empty() {
-        return character -> false;
+        return new ListedSet(character -> false, BitSet::new);
     }
 
     default CharacterSet union(CharacterSet other) {
-        return character -> CharacterSet.this.contains(character) || other.contains(character);
+        return new ListedSet(character -> CharacterSet.this.contains(character) || other.contains(character), () -> {
+            BitSet characters = CharacterSet.this.characters();
+            characters.or(other.characters());
+            return characters;
+        });
     }
 
     default CharacterSet inverted() {
-        return character -> !CharacterSet.this.contains(character);
+        return new ListedSet(character -> !CharacterSet.this.contains(character), () -> {
+            BitSet characters = CharacterSet.this.characters();
+            characters.flip(0, Character.MAX_VALUE + 1);
+            return characters;
+        });
+    }
+
+    /**
+     * Returns a new set of the characters in this one. The sets made from characters,
+     * ranges and the predefined sets list them without reading every character.
+     */
+    default BitSet characters() {
+        return read(this);
+    }
+
+    /**
+     * Returns the characters in the set, asking for each one
+     */
+    private static BitSet read(CharacterSet set) {
+        BitSet characters = new BitSet(Character.MAX_VALUE + 1);
+        for (int character = 0; character <= Character.MAX_VALUE; character++) {
+            if (set.contains((char) character)) {
+                characters.set(character);
+            }
+        }
+        return characters;
     }
 }
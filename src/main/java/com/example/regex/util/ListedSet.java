@@ -0,0 +1,51 @@
+package com.example.regex.util;
+
+import java.util.BitSet;
+import java.util.function.Supplier;
+
+/**
+ * A character set which lists its characters from how it was made, instead of asking
+ * each of the 65,536 characters whether it is in the set
+ *
+ * @param set    the membership test
+ * @param lister returns a new set of the characters of {@code set}
+ */
+record ListedSet(CharacterSet set, Supplier<BitSet> lister) implements CharacterSet {
+
+    /**
+     * Returns the set, its characters read once on the first call then copied
+     */
+    static CharacterSet cached(CharacterSet set) {
+        return new ListedSet(set, new Cache(set));
+    }
+
+    @Override
+    public boolean contains(char character) {
+        return set.contains(character);
+    }
+
+    @Override
+    public BitSet characters() {
+        return lister.get();
+    }
+
+    private static final class Cache implements Supplier<BitSet> {
+        private final CharacterSet set;
+        private volatile BitSet characters;
+
+        Cache(CharacterSet set) {
+            this.set = set;
+        }
+
+        @Override
+        public BitSet get() {
+            BitSet read = characters;
+            if (read == null) {
+                // Threads racing on the first call read them more than once, to the same result
+                read = set.characters();
+                characters = read;
+            }
+            return (BitSet) read.clone();
+        }
+    }
+}
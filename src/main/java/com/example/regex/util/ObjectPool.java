@@ -0,0 +1,81 @@
+package com.example.regex.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Objects expensive to make, such as matchers and their caches, lent to the threads
+ * and given back once used. A thread first looks in a slot of its own, so in steady
+ * state it gets back what it released without contending with the other threads.
+ * Objects released while every slot is taken are dropped.
+ * <p>
+ * Unlike a {@link ThreadLocal} the threads keep nothing: the pooled objects are
+ * collected with the pool, however long the threads live.
+ * <p>
+ * Thread-safe.
+ */
+public final class ObjectPool<T> {
+    /**
+     * Distance between two slots, one cache line, so the threads don't write to the
+     * same line
+     */
+    private static final int STRIDE = 16;
+
+    private final Supplier<T> factory;
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+
+    /**
+     * Returns a pool of as many objects as there are processors
+     */
+    public ObjectPool(Supplier<T> factory) {
+        this(factory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param capacity the number of objects kept, rounded up to a power of two
+     */
+    public ObjectPool(Supplier<T> factory, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int slotCount = Integer.highestOneBit(2 * capacity - 1);
+        this.factory = factory;
+        this.slots = new AtomicReferenceArray<>(slotCount * STRIDE);
+        this.mask = slotCount - 1;
+    }
+
+    /**
+     * Takes an object of the pool, a new one if it is empty
+     */
+    public T acquire() {
+        int home = home();
+        for (int i = 0; i <= mask; i++) {
+            int slot = ((home + i) & mask) * STRIDE;
+            if (slots.getPlain(slot) != null) {
+                T item = slots.getAndSet(slot, null);
+                if (item != null) return item;
+            }
+        }
+        return factory.get();
+    }
+
+    /**
+     * Gives back an object taken with {@link #acquire()}, it must not be used anymore
+     */
+    public void release(T item) {
+        int home = home();
+        for (int i = 0; i <= mask; i++) {
+            int slot = ((home + i) & mask) * STRIDE;
+            // Two threads may release to the same slot at once, one of the objects is dropped
+            if (slots.getPlain(slot) == null) {
+                slots.setRelease(slot, item);
+                return;
+            }
+        }
+    }
+
+    private int home() {
+        return (int) Thread.currentThread().threadId() & mask;
+    }
+}
@@ -1,4 +1,5 @@
 module regex {
     requires java.logging;
+    requires static jdk.incubator.vector;
     exports com.example.regex;
 }
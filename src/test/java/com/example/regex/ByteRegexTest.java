@@ -0,0 +1,95 @@
+package com.example.regex;
+
+import com.example.regex.ByteRegex.Encoding;
+import com.example.regex.Regex.Options;
+import com.example.regex.Regex.Options.Option;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ByteRegexTest {
+
+    private static int byteOffset(String string, int index) {
+        return string.substring(0, index).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Test
+    public void testSameMatchesAsOnCharacters() {
+        List<String> patterns = List.of("caf.", "[à-ÿ]+", "\\w+", "[^a-z ]+", "(é|e)t(é)?", "ü{2}|€", ".", "\\d+€",
+                "[a-zé]+@\\w+", "\\S+$", "x*");
+        List<String> inputs = List.of("", "café", "été à Zürich", "a € b €€ 12€", "naïve ümlaut üü", "é@ünï abc",
+                "ÿĀ߿ࠀ�", "line\nnext");
+
+        for (Options options : List.of(new Options(), new Options(Option.CASE_INSENSITIVE),
+                new Options().withCompilationThreshold(0))) {
+            for (String pattern : patterns) {
+                Regex regex = new Regex(pattern, options);
+                ByteRegex byteRegex = new ByteRegex(pattern, options, Encoding.UTF_8);
+                for (String input : inputs) {
+                    List<String> expected = regex.matches(input)
+                            .stream()
+                            .map(match -> byteOffset(input, match.startIndex()) + "-" +
+                                          byteOffset(input, match.endIndex()) + " " + match.fullMatch() + " " + match.groups())
+                            .toList();
+                    List<String> found = byteRegex.matches(input.getBytes(StandardCharsets.UTF_8))
+                            .stream()
+                            .map(match -> match.startIndex() + "-" + match.endIndex() + " " + match.fullMatch() + " " + match.groups())
+                            .toList();
+                    assertEquals(expected, found, pattern + " on \"" + input + "\"");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCodePoints() {
+        byte[] bytes = "a😀b".getBytes(StandardCharsets.UTF_8);
+        Regex.Match match = new ByteRegex("a.b").firstMatch(bytes).orElseThrow();
+
+        // The supplementary character is a single character of 4 bytes
+        assertEquals(6, match.endIndex());
+        assertEquals("a😀b", match.fullMatch());
+        assertFalse(new ByteRegex("a..b").isMatch(bytes));
+    }
+
+    @Test
+    public void testMalformedBytes() {
+        byte[] bytes = {'a', (byte) 0xC3, 'b', (byte) 0xA9, 'c'};
+        assertFalse(new ByteRegex("a.b").isMatch(bytes));
+        assertFalse(new ByteRegex("b.c").isMatch(bytes));
+        assertTrue(new ByteRegex("c").isMatch(bytes));
+    }
+
+    @Test
+    public void testBinaryProtocol() {
+        byte[] frame = {0x00, 0x7E, (byte) 0xFF, 0x03, 'G', 'E', 'T', 0x7E};
+        ByteRegex regex = new ByteRegex("~[^~]*~", new Options(), Encoding.BYTES);
+
+        Regex.Match match = regex.firstMatch(frame).orElseThrow();
+        assertEquals(1, match.startIndex());
+        assertEquals(8, match.endIndex());
+        assertTrue(new ByteRegex("ÿ\u0003GET", new Options(), Encoding.BYTES).isMatch(frame));
+    }
+
+    @Test
+    public void testBufferPosition() {
+        ByteBuffer buffer = ByteBuffer.wrap("skip: café".getBytes(StandardCharsets.UTF_8));
+        buffer.position(6);
+
+        Regex.Match match = new ByteRegex("é").firstMatch(buffer).orElseThrow();
+        assertEquals(3, match.startIndex());
+        assertEquals(5, match.endIndex());
+    }
+
+    @Test
+    public void testIrregularPatterns() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteRegex("a+?"));
+    }
+}
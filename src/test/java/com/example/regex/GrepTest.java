@@ -0,0 +1,136 @@
+package com.example.regex;
+
+import com.example.regex.Regex.Options;
+import com.example.regex.Regex.Options.Option;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GrepTest {
+    @TempDir
+    Path directory;
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(directory.resolve("input.txt"), content, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testLines() throws IOException {
+        Path file = write("GET /index 200\r\nPOST /login 500\nGET /a 404 GET /b 200\n\nGET /c 200");
+        List<FileMatch> matches = new Grep(new Regex("GET (/\\w+) 200$")).search(file);
+
+        assertEquals(List.of(
+                new FileMatch(1, 0, 0, 14, "GET /index 200"),
+                new FileMatch(3, 32, 43, 53, "GET /a 404 GET /b 200"),
+                new FileMatch(5, 55, 55, 65, "GET /c 200")
+        ), matches);
+    }
+
+    @Test
+    public void testSameLinesAsFilesLines() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            content.append(i % 7 == 0 ? "café " : "cafe ").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        Path file = write(content.toString());
+        Regex regex = new Regex("^caf. \\d*5$");
+
+        List<String> expected = new ArrayList<>();
+        try (var lines = Files.lines(file)) {
+            lines.filter(regex::isMatch).forEach(expected::add);
+        }
+        List<String> found = new Grep(regex)
+                .search(file)
+                .stream()
+                .map(FileMatch::line)
+                .toList();
+        assertEquals(expected, found);
+    }
+
+    @Test
+    public void testParallelSearch() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append(i % 11 == 0 ? "naïve " : "plain ").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        Path file = write(content.toString());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (Grep.Mode mode : Grep.Mode.values()) {
+                Regex regex = new Regex("\\w+ \\d*7", new Options(Option.MULTILINE));
+                // Chunks of a few hundred bytes, cut in the middle of lines
+                Grep grep = new Grep(regex, StandardCharsets.UTF_8, mode, 1 << 20, 500);
+                assertEquals(grep.search(file), grep.search(file, pool), mode.toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testByteOffsetsOfDecodedLines() throws IOException {
+        Path file = write("ascii\nnaïve café, déjà vu 😀 café\n");
+        List<FileMatch> matches = new Grep(new Regex("café")).search(file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        assertEquals(2, matches.size());
+        for (FileMatch match : matches) {
+            assertEquals(2, match.lineNumber());
+            assertEquals(6, match.lineOffset());
+            String matched = new String(bytes, (int) match.startOffset(),
+                    (int) (match.endOffset() - match.startOffset()), StandardCharsets.UTF_8);
+            assertEquals("café", matched);
+        }
+    }
+
+    @Test
+    public void testWholeFile() throws IOException {
+        Path file = write("first\nbegin\r\nsome text\nend\nlast begin end\n");
+        Regex regex = new Regex("^\\w+$", new Options(Option.MULTILINE));
+        Grep grep = new Grep(new Regex("begin\\s+\\w+ \\w+\\s+end"), StandardCharsets.UTF_8, Grep.Mode.WHOLE_FILE);
+
+        assertEquals(List.of(new FileMatch(2, 6, 6, 26, "begin\r\nsome text\nend")), grep.search(file));
+        assertEquals(List.of(1L, 4L), new Grep(regex, StandardCharsets.UTF_8, Grep.Mode.WHOLE_FILE)
+                .search(file)
+                .stream()
+                .map(FileMatch::lineNumber)
+                .toList());
+    }
+
+    @Test
+    public void testWholeFileByteOffsetsOfDecodedLines() throws IOException {
+        Path file = write("é ab ab\nxx ab\n");
+        Grep grep = new Grep(new Regex("ab"), StandardCharsets.UTF_8, Grep.Mode.WHOLE_FILE);
+
+        assertEquals(List.of(
+                new FileMatch(1, 0, 3, 5, "é ab ab"),
+                new FileMatch(1, 0, 6, 8, "é ab ab"),
+                new FileMatch(2, 9, 12, 14, "xx ab")
+        ), grep.search(file));
+    }
+
+    @Test
+    public void testLongLines() throws IOException {
+        Path file = write("short\n" + "x".repeat(100) + "\n");
+        Grep grep = new Grep(new Regex("x+"), StandardCharsets.UTF_8, Grep.Mode.LINES, 64, ParallelSearch.MIN_CHUNK_SIZE);
+        assertThrows(IOException.class, () -> grep.search(file));
+        assertEquals(1, new Grep(new Regex("x{64}"), StandardCharsets.UTF_8, Grep.Mode.LINES, 100,
+                ParallelSearch.MIN_CHUNK_SIZE).search(file).size());
+    }
+
+    @Test
+    public void testUnsupportedCharset() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new Grep(new Regex("a"), StandardCharsets.UTF_16, Grep.Mode.LINES));
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.regex;
+
+import com.example.regex.Regex.Options;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MatcherTest {
+
+    private static List<String> findAll(Matcher matcher) {
+        List<String> found = new ArrayList<>();
+        for (var match = matcher.find(); match.isPresent(); match = matcher.find()) {
+            found.add(match.get().startIndex() + " " + match.get().fullMatch() + " " + match.get().groups());
+        }
+        return found;
+    }
+
+    private static List<String> describe(List<Regex.Match> matches) {
+        return matches.stream()
+                .map(match -> match.startIndex() + " " + match.fullMatch() + " " + match.groups())
+                .toList();
+    }
+
+    private static List<String> describeResults(List<MatchResult> results) {
+        return results.stream()
+                .map(result -> IntStream.rangeClosed(0, result.groupCount())
+                        .mapToObj(group -> result.start(group) + "-" + result.end(group) + " " + result.group(group))
+                        .toList()
+                        .toString())
+                .toList();
+    }
+
+    @Test
+    public void testReset() {
+        Matcher matcher = new Regex("(\\d)+").matcher("a1b22");
+        assertEquals("1", matcher.find().orElseThrow().fullMatch());
+        // Whether there is a match doesn't depend on the matches already found
+        assertTrue(matcher.isMatch());
+        assertEquals("22", matcher.find().orElseThrow().fullMatch());
+        assertTrue(matcher.find().isEmpty());
+
+        matcher.reset("333 x");
+        assertEquals(List.of("0 333 [3]"), findAll(matcher));
+        assertFalse(matcher.reset("none").isMatch());
+        assertEquals("none", matcher.input());
+    }
+
+    @Test
+    public void testSameMatchesAcrossCompilation() {
+        List<String> inputs = List.of("ab12 cd3", "", "x9y", "abc", "12 34 56", "z");
+        for (String pattern : List.of("[a-z]+\\d", "([a-z]+)(\\d)?", "ab|cd", "\\d+?", "(\\w)\\1")) {
+            // The matcher switches to the generated class once it's compiled, after its third search
+            Regex regex = new Regex(pattern, new Options().withCompilationThreshold(3));
+            Matcher matcher = regex.matcher("");
+            for (String input : inputs) {
+                assertEquals(describe(new Regex(pattern).matches(input)), findAll(matcher.reset(input)), pattern);
+                assertEquals(new Regex(pattern).isMatch(input), matcher.isMatch(), pattern);
+            }
+        }
+    }
+
+    @Test
+    public void testSharedBetweenThreads() throws Exception {
+        String pattern = "(\\w+)@(\\w+)\\.com";
+        Regex shared = new Regex(pattern, new Options().withCompilationThreshold(500));
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            inputs.add("user" + i + "@host" + i % 7 + ".com, " + "x".repeat(i % 13) + " @nowhere, a@b.com");
+        }
+        List<List<String>> expected = inputs.stream().map(input -> describe(new Regex(pattern).matches(input))).toList();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> {
+                    for (int round = 0; round < 20; round++) {
+                        for (int i = 0; i < inputs.size(); i++) {
+                            if (!expected.get(i).equals(describe(shared.matches(inputs.get(i)))) ||
+                                !shared.isMatch(inputs.get(i))) {
+                                return false;
+                            }
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDiscardedPatternIsCollected() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // The thread outlives the patterns it searched with, like the threads of a pool
+            List<WeakReference<Object>> discarded = executor.submit(() -> {
+                List<WeakReference<Object>> references = new ArrayList<>();
+                for (String pattern : List.of("(\\d+)-(\\d+)", "\\w+$", "(a+?)\\1")) {
+                    Regex regex = new Regex(pattern);
+                    String input = "12-34 aa ".repeat(1000);
+                    regex.isMatch(input);
+                    regex.matches(input);
+                    regex.split(input);
+                    regex.replaceAll(input, "$0");
+                    references.add(new WeakReference<>(regex));
+                    references.add(new WeakReference<>(input));
+                }
+                return references;
+            }).get();
+
+            for (int attempt = 0; attempt < 50 && discarded.stream().anyMatch(reference -> !reference.refersTo(null));
+                 attempt++) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            for (WeakReference<Object> reference : discarded) {
+                assertTrue(reference.refersTo(null));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFindAllLikeJavaRegex() {
+        String input = "ab12 cd3, x-9 abab 77 cd";
+        // Regular, backtracking and literal alternation patterns, groups which don't participate
+        for (String pattern : List.of("[a-z]+\\d", "([a-z]+)(\\d)?", "(a)|(b)", "\\d+?", "(\\w)\\1", "ab|cd", "(ab|cd)",
+                "x*", "(\\d)(\\d)|(-)", "(a){0}b", "(x){0}(\\d)")) {
+            for (Options options : List.of(new Options(), new Options().withCompilationThreshold(0))) {
+                List<MatchResult> expected = Pattern.compile(pattern).matcher(input).results().toList();
+                List<MatchResult> found = new Regex(pattern, options).findAll(input).toList();
+                assertEquals(describeResults(expected), describeResults(found), pattern);
+            }
+        }
+    }
+
+    @Test
+    public void testResultsAfterFind() {
+        Matcher matcher = new Regex("(\\d)+").matcher("a1b22c333");
+        assertEquals("1", matcher.find().orElseThrow().fullMatch());
+        // The stream starts after the matches already found and consumes the others
+        assertEquals(List.of("22", "333"), matcher.results().map(MatchResult::group).toList());
+        assertTrue(matcher.find().isEmpty());
+        assertEquals(List.of(0, 2, 4), matcher.reset("1x2y3").results().map(MatchResult::start).toList());
+    }
+
+    @Test
+    public void testResultGroups() {
+        MatchResult result = new Regex("(a)|(b)").findAll("xb").findFirst().orElseThrow();
+        assertEquals(2, result.groupCount());
+        assertNull(result.group(1));
+        assertEquals(-1, result.start(1));
+        assertEquals("b", result.group(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> result.group(3));
+        assertThrows(IllegalArgumentException.class, () -> result.group("name"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.regex;
+
+import com.example.regex.Regex.Options;
+import com.example.regex.Regex.Options.Option;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ParallelSearchTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    private static List<String> describe(List<Regex.Match> matches) {
+        return matches.stream()
+                .map(match -> match.startIndex() + "-" + match.endIndex() + " " + match.fullMatch() + " " + match.groups())
+                .toList();
+    }
+
+    private static String generate(int length, String alphabet, long seed) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testSameMatchesAsSequentialSearch() {
+        // Matches cross the chunk boundaries, overlap the matches found from a chunk start or are empty
+        List<String> patterns = List.of("a", "ab|ba", "a[^z]*z", "\\w+", "x*", "(\\d+)-(\\d+)", "a.*?b", "\\bab\\b",
+                "b$", "[ab]{3,}", "(a|b)\\1", "ab|abab|bab");
+        String input = generate(5000, "ab xz\n1-2", 42);
+
+        // The generated class of a hot pattern doesn't stop at the end of a chunk
+        for (Options options : List.of(new Options(), new Options(Option.MULTILINE),
+                new Options().withCompilationThreshold(0))) {
+            for (String pattern : patterns) {
+                Regex regex = new Regex(pattern, options);
+                for (int minChunkSize : new int[]{7, 100, 1000}) {
+                    assertEquals(describe(regex.matches(input)), describe(regex.matches(input, pool, minChunkSize)),
+                            pattern + " in chunks of " + minChunkSize);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesSpanningChunks() {
+        String input = "a" + "b".repeat(3000) + "z" + "ab".repeat(500) + "z";
+        Regex regex = new Regex("a[^z]*z");
+
+        List<Regex.Match> matches = regex.matches(input, pool, 10);
+        assertEquals(2, matches.size());
+        assertEquals(3002, matches.get(0).endIndex());
+        assertEquals(3002, matches.get(1).startIndex());
+    }
+
+    @Test
+    public void testFilterLines() {
+        List<String> lines = generate(20_000, "ab 1\n", 3).lines().toList();
+        for (String pattern : List.of("^a+ \\d", "ab|ba", "b\\d$", "a+?1")) {
+            Regex regex = new Regex(pattern);
+            List<String> expected = lines.stream().filter(regex::isMatch).toList();
+
+            assertEquals(expected, regex.filter(lines, pool, true), pattern);
+            List<String> unordered = new ArrayList<>(regex.filter(lines.stream(), pool, false));
+            unordered.sort(Comparator.naturalOrder());
+            assertEquals(expected.stream().sorted().toList(), unordered, pattern);
+        }
+    }
+
+    @Test
+    public void testFirstMatchesOfLines() {
+        List<String> lines = generate(20_000, "ab1-2 \n", 5).lines().toList();
+        // Matchers are reset from one line to the next, before and after the pattern is compiled
+        for (Options options : List.of(new Options(), new Options().withCompilationThreshold(50))) {
+            for (String pattern : List.of("(a+)(\\d)-(\\d)?", "(ab|ba)", "(a)\\1", "b(\\d+?)")) {
+                Regex regex = new Regex(pattern, options);
+                List<String> expected = lines.stream()
+                        .flatMap(line -> new Regex(pattern).firstMatch(line).stream())
+                        .map(match -> match.fullMatch() + " " + match.groups())
+                        .toList();
+                List<String> found = regex.firstMatches(lines, pool, true)
+                        .stream()
+                        .map(match -> match.fullMatch() + " " + match.groups())
+                        .toList();
+                assertEquals(expected, found, pattern);
+            }
+        }
+    }
+
+    @Test
+    public void testSequentialPatterns() {
+        String input = generate(1000, "ab", 7);
+        for (String pattern : List.of("^a+", "\\Gab", "a+?b", "(a)\\1")) {
+            Regex regex = new Regex(pattern);
+            assertEquals(describe(regex.matches(input)), describe(regex.matches(input, pool, 10)), pattern);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.regex;
+
+import com.example.regex.Regex.Options;
+import com.example.regex.Regex.Options.Option;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RegexSetTest {
+
+    @Test
+    public void testMatches() {
+        RegexSet set = new RegexSet("GET /api/\\w+", "POST", "\\d{3}$", "^GET", "timeout");
+
+        assertArrayEquals(new int[]{0, 2, 3}, set.matchingIndices("GET /api/users 200"));
+        assertArrayEquals(new int[]{1}, set.matchingIndices("POST /login 20000 ms"));
+        assertArrayEquals(new int[]{}, set.matchingIndices("PUT /x"));
+        assertTrue(set.isMatch("a timeout"));
+        assertFalse(set.isMatch("PUT /x"));
+    }
+
+    @Test
+    public void testAnchorsAndBoundaries() {
+        RegexSet set = new RegexSet(List.of("^b", "a$", "\\bword\\b", "^$"), new Options(Option.MULTILINE));
+
+        assertArrayEquals(new int[]{0, 1}, set.matchingIndices("xa\nbx"));
+        assertArrayEquals(new int[]{2}, set.matchingIndices("a word."));
+        assertArrayEquals(new int[]{3}, set.matchingIndices(""));
+        assertArrayEquals(new int[]{}, set.matchingIndices("swordfish"));
+    }
+
+    @Test
+    public void testSameAsRegex() {
+        List<String> patterns = List.of("a+?b", "(a|b)*c", "x{2,3}y", "[^a]b", "(\\w)\\1", "\\Ga", "a(?:bc)?d");
+        RegexSet set = new RegexSet(patterns, new Options());
+
+        for (String input : List.of("aab", "abababc", "xxxy", "xb", "hello", "abcd", "ad", "a", "")) {
+            BitSet expected = new BitSet();
+            for (int i = 0; i < patterns.size(); i++) {
+                if (new Regex(patterns.get(i)).isMatch(input)) expected.set(i);
+            }
+            assertEquals(expected, set.matches(input), input);
+        }
+    }
+
+    @Test
+    public void testManyPatterns() {
+        List<String> patterns = IntStream.range(0, 2000).mapToObj(i -> "rule" + i + "\\b").toList();
+        RegexSet set = new RegexSet(patterns, new Options());
+
+        assertArrayEquals(new int[]{7, 1234, 1999}, set.matchingIndices("rule1999 and rule7 then rule1234"));
+        assertEquals(2000, set.size());
+    }
+}
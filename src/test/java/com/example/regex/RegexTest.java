@@ -0,0 +1,320 @@
+package com.example.regex;
+
+import com.example.regex.Regex.Options;
+import com.example.regex.Regex.Options.Option;
+import com.example.regex.parser.ParseException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.MatchResult;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RegexTest {
+
+    private static List<String> matches(String pattern, String string, Option... options) {
+        return new Regex(pattern, new Options(options)).matches(string).stream()
+                .map(Regex.Match::fullMatch)
+                .toList();
+    }
+
+    @Test
+    public void testIsMatch() {
+        assertTrue(new Regex("abc").isMatch("xxabcxx"));
+        assertFalse(new Regex("abc").isMatch("xxabxcx"));
+        assertTrue(new Regex("a|b").isMatch("b"));
+        assertTrue(new Regex("a*").isMatch(""));
+        assertTrue(new Regex("\\d{2,4}-\\w+").isMatch("call 555-foo"));
+        assertFalse(new Regex("\\d{2,4}-\\w+").isMatch("call 5-foo"));
+        assertTrue(new Regex("[a-zA-Z_][a-zA-Z0-9_]*").isMatch("_id42"));
+        assertTrue(new Regex("é+").isMatch("caféé"));
+    }
+
+    @Test
+    public void testFirstMatch() {
+        Regex.Match match = new Regex("b+").firstMatch("aabbbcbb").orElseThrow();
+        assertEquals("bbb", match.fullMatch());
+        assertEquals(2, match.startIndex());
+        assertEquals(5, match.endIndex());
+
+        assertTrue(new Regex("x").firstMatch("abc").isEmpty());
+    }
+
+    @Test
+    public void testLeftmostFirst() {
+        assertEquals(List.of("a"), matches("a|ab", "ab"));
+        assertEquals(List.of("ab"), matches("ab|a", "ab"));
+        assertEquals(List.of("bc"), matches("abcd|bc", "abcx"));
+        assertEquals(List.of("abcd"), matches("abcd|bc", "abcd"));
+        assertEquals(List.of("aaa", ""), matches("a*", "aaa"));
+    }
+
+    @Test
+    public void testMatches() {
+        assertEquals(List.of("12", "345", "6"), matches("\\d+", "a12b345c6"));
+        assertEquals(List.of("", "", ""), matches("x?", "ab"));
+        assertEquals(List.of("foo", "bar"), matches("(foo|bar)", "foo-bar"));
+        assertEquals(List.of("ab", "ab"), matches("(?:ab){1}", "abab"));
+        assertEquals(List.of("aaa", "aa"), matches("a{2,3}", "aaaaa"));
+        assertEquals(List.of("aaaaa"), matches("a{2,}", "aaaaa"));
+    }
+
+    @Test
+    public void testAnchors() {
+        assertEquals(List.of("ab"), matches("^ab", "abab"));
+        assertEquals(List.of("ab"), matches("ab$", "abab"));
+        assertEquals(List.of("ab"), matches("ab$", "abab\n"));
+        assertEquals(List.of(), matches("ab\\z", "abab\n"));
+        assertEquals(List.of("ab"), matches("ab\\Z", "abab\n"));
+        assertEquals(List.of("ab"), matches("\\Aab", "abab"));
+        assertEquals(List.of("cat"), matches("\\bcat\\b", "concat cat cats"));
+        assertEquals(List.of("cat"), matches("\\Bcat", "cat concat"));
+    }
+
+    @Test
+    public void testAnchoredSearches() {
+        Random random = new Random(11);
+        List<String> inputs = new ArrayList<>(List.of("", "\n", "ab12", "ab12\n", "a\nb\n12\n", "12\n\n", "ba"));
+        for (int i = 0; i < 50; i++) {
+            StringBuilder input = new StringBuilder();
+            for (int length = random.nextInt(30); length > 0; length--) {
+                input.append("ab1 \n".charAt(random.nextInt(5)));
+            }
+            inputs.add(input.toString());
+        }
+
+        // Anchored to the start, to the end or both, with groups, alternations and empty matches
+        List<String> patterns = List.of("^a+", "\\Aab|\\Aba", "^\\w+$", "\\d+$", "\\d+\\z", "\\d+\\Z",
+                "(a|ab)(1|b1)$", "(\\w+) (\\w+)$", "a*$", "x?$", "\\b\\w+$", "^(a|b)*?1", "[ab]+ ?$");
+        for (Options options : List.of(new Options(), new Options(Option.MULTILINE),
+                new Options().withCompilationThreshold(0))) {
+            int flags = Pattern.UNIX_LINES | (options.contains(Option.MULTILINE) ? Pattern.MULTILINE : 0);
+            for (String pattern : patterns) {
+                Regex regex = new Regex(pattern, options);
+                Pattern expected = Pattern.compile(pattern, flags);
+                for (String input : inputs) {
+                    List<String> found = expected.matcher(input).results()
+                            .map(match -> match.start() + " " + match.group() + " " + match.group(match.groupCount()))
+                            .toList();
+                    List<String> matches = regex.findAll(input)
+                            .map(match -> match.start() + " " + match.group() + " " + match.group(match.groupCount()))
+                            .toList();
+                    assertEquals(found, matches, pattern + " on " + input);
+                    assertEquals(!found.isEmpty(), regex.isMatch(input), pattern + " on " + input);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchStartsFoundBackwards() {
+        Random random = new Random(24);
+        List<String> inputs = new ArrayList<>(List.of("", "xab", "abc", "ab\nb\n", "a1 b2\n", "aab\n\n"));
+        for (int i = 0; i < 50; i++) {
+            StringBuilder input = new StringBuilder();
+            for (int length = random.nextInt(30); length > 0; length--) {
+                input.append("abx1 \n".charAt(random.nextInt(6)));
+            }
+            inputs.add(input.toString());
+        }
+
+        // Matches whose start the earliest match end doesn't give, around assertions and line ends
+        List<String> patterns = List.of("xa|ab|b", "b|abx", "a+", "(a|ab)(x|bx)", "\\b\\w+\\b", "\\B[ab]+",
+                "(\\w)(\\d)?", "^\\w+", "\\w+$", "b$\n?", "(a|b)\\Z", "[ab]\n*\\z", "a*", "x?b*");
+        for (Options options : List.of(new Options(), new Options(Option.MULTILINE),
+                new Options().withCompilationThreshold(0))) {
+            int flags = Pattern.UNIX_LINES | (options.contains(Option.MULTILINE) ? Pattern.MULTILINE : 0);
+            for (String pattern : patterns) {
+                Regex regex = new Regex(pattern, options);
+                Pattern expected = Pattern.compile(pattern, flags);
+                for (String input : inputs) {
+                    List<String> found = expected.matcher(input).results()
+                            .map(match -> match.start() + "-" + match.end() + " " + match.group(match.groupCount()))
+                            .toList();
+                    List<String> matches = regex.findAll(input)
+                            .map(match -> match.start() + "-" + match.end() + " " + match.group(match.groupCount()))
+                            .toList();
+                    assertEquals(found, matches, pattern + " on " + input);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOnePassCaptures() {
+        List<String> inputs = List.of("", "a=1;b=22;", "x 12-34 5-", "k=;=v;k=v", "ab1 ab ba2\n1", "aaa=b=c;");
+        // One-pass patterns, their groups are resolved by a single thread whether the search is compiled or not
+        List<String> patterns = List.of("(\\d+)-(\\d+)", "(\\w+)=([^;]*);", "(\\w)(\\d)?", "(?:(a)|(b))+(\\d)?",
+                "^(\\w*)=", "(=)?(\\w+)$");
+        for (Options options : List.of(new Options(), new Options().withCompilationThreshold(0),
+                new Options().withCompilationThreshold(-1))) {
+            for (String pattern : patterns) {
+                Regex regex = new Regex(pattern, options);
+                assertNotNull(regex.onePass(), pattern);
+                Pattern expected = Pattern.compile(pattern, Pattern.UNIX_LINES);
+                for (String input : inputs) {
+                    List<String> found = expected.matcher(input).results().map(RegexTest::groups).toList();
+                    List<String> matches = regex.findAll(input).map(RegexTest::groups).toList();
+                    assertEquals(found, matches, pattern + " on " + input);
+                }
+            }
+        }
+        // A digit could go on with either group
+        assertNull(new Regex("(\\w+)(\\d)").onePass());
+    }
+
+    private static String groups(MatchResult match) {
+        StringBuilder groups = new StringBuilder();
+        for (int group = 0; group <= match.groupCount(); group++) {
+            groups.append(match.start(group)).append('-').append(match.end(group)).append(' ');
+        }
+        return groups.toString();
+    }
+
+    @Test
+    public void testMultiline() {
+        assertEquals(List.of(), matches("^ab$", "ab\nab\nab"));
+        assertEquals(List.of("ab"), matches("^ab$", "ab\n"));
+        assertEquals(List.of("ab", "ab", "ab"), matches("^ab$", "ab\nab\nab", Option.MULTILINE));
+        assertEquals(List.of("ab", "ab"), matches("^ab", "ab\ncab\nab", Option.MULTILINE));
+    }
+
+    @Test
+    public void testOptions() {
+        assertTrue(new Regex("hello", new Options(Option.CASE_INSENSITIVE)).isMatch("HeLLo"));
+        assertFalse(new Regex("hello").isMatch("HeLLo"));
+        assertTrue(new Regex("[a-z]+", new Options(Option.CASE_INSENSITIVE)).isMatch("ABC"));
+
+        assertFalse(new Regex("a.b").isMatch("a\nb"));
+        assertTrue(new Regex("a.b", new Options(Option.DOT_MATCHES_LINE_SEPARATORS)).isMatch("a\nb"));
+    }
+
+    @Test
+    public void testCharacterClasses() {
+        assertEquals(List.of("a1"), matches("[^\\s]+", " a1 "));
+        assertEquals(List.of(" "), matches("\\S\\s\\S", "a b").stream().map(s -> s.substring(1, 2)).toList());
+        assertEquals(List.of("_x9"), matches("\\w+", "!_x9!"));
+        assertEquals(List.of("!"), matches("\\W", "_x9!"));
+        assertEquals(List.of("b-c"), matches("[a-c]-[a-c]", "ab-cd"));
+    }
+
+    @Test
+    public void testCaptureGroups() {
+        Regex.Match match = new Regex("(\\w+)@(\\w+)\\.com").firstMatch("mail bob@example.com now").orElseThrow();
+        assertEquals("bob@example.com", match.fullMatch());
+        assertEquals(List.of("bob", "example"), match.groups());
+
+        assertEquals(List.of("c"), new Regex("(?:a|b)*(c)").firstMatch("abac").orElseThrow().groups());
+        assertEquals(List.of("b"), new Regex("(a|b)+").firstMatch("ab").orElseThrow().groups());
+
+        List<Regex.Match> matches = new Regex("(\\d)(\\d)?").matches("1 23");
+        assertEquals(List.of("1"), matches.get(0).groups());
+        assertEquals(List.of("2", "3"), matches.get(1).groups());
+    }
+
+    @Test
+    public void testBacktracking() {
+        assertEquals(List.of("<a>", "<b>"), matches("<.+?>", "<a><b>"));
+        assertEquals(List.of("abcabc"), matches("(abc)\\1", "xabcabcx"));
+        assertEquals(List.of("a", "a"), matches("\\Ga", "aab"));
+        assertTrue(new Regex("(\\w+) \\1").isMatch("hello hello"));
+        assertFalse(new Regex("(\\w+) \\1").isMatch("hello world"));
+        assertEquals(List.of("xx"), new Regex("(x+?)y").firstMatch("xxy").orElseThrow().groups());
+    }
+
+    @Test
+    public void testLiteralPrefixes() {
+        String log = "INFO start\nERROR 42 disk\nWARN x\nERROR 7 net\n";
+        assertEquals(List.of("ERROR 42", "ERROR 7"), matches("ERROR \\d+", log));
+        assertEquals(List.of("42", "7"), new Regex("ERROR (\\d+)").matches(log).stream()
+                .map(match -> match.groups().getFirst())
+                .toList());
+        assertEquals(List.of("ERROR 42 disk"), matches("ERROR \\d+? disk", log));
+        assertEquals(List.of("ERROR", "WARN", "ERROR"), matches("ERROR|WARN", log));
+        assertEquals(List.of("ERROR"), matches("^ERROR", "ERROR ERROR"));
+        assertTrue(new Regex("Error", new Options(Option.CASE_INSENSITIVE)).isMatch(log));
+        assertFalse(new Regex("FATAL \\d").isMatch(log));
+    }
+
+    @Test
+    public void testRequiredLiterals() {
+        String log = "12ms ok\n340ms timeout\n5ms timeout\n";
+        assertEquals(List.of("340ms timeout", "5ms timeout"), matches("\\d+ms timeout", log));
+        assertEquals(List.of("340", "5"), new Regex("(\\d+)ms timeout").matches(log).stream()
+                .map(match -> match.groups().getFirst())
+                .toList());
+        assertEquals(List.of("40ms timeout", "5ms timeout"), matches("\\d{1,2}ms timeout", log));
+        assertEquals(List.of("a@example.com"), matches("\\w+@example\\.com", "a@example.com b@example.org"));
+        assertEquals(List.of("1ab1"), matches("(\\d)ab\\1", "2ab1 1ab1"));
+        assertFalse(new Regex("\\d+ms timeout").isMatch("12ms ok\n"));
+    }
+
+    @Test
+    public void testLiteralAlternations() {
+        assertEquals(List.of("foo", "baz", "bar"), matches("foo|bar|baz", "foo baz xbar"));
+        assertEquals(List.of("ab", "a"), matches("ab|a", "ab a"));
+        assertEquals(List.of("one"), new Regex("(one|two)").firstMatch("one").orElseThrow().groups());
+        assertEquals(List.of("two"), new Regex("(one|two)").firstMatch("xtwo").orElseThrow().groups());
+
+        List<String> words = IntStream.range(0, 2000).mapToObj(i -> "word" + i + "x").toList();
+        Regex blocklist = new Regex(String.join("|", words));
+        assertEquals(List.of("word1999x", "word7x"), blocklist.matches("a word1999x b word7x c word20001x").stream()
+                .map(Regex.Match::fullMatch)
+                .toList());
+        assertFalse(blocklist.isMatch("word2000x"));
+    }
+
+    @Test
+    public void testMatchLimits() {
+        String input = "a".repeat(40);
+        // Back references aren't memoized, every way to repeat the group is tried
+        String exponential = "(a|a)*?\\1b";
+
+        MatchLimitExceededException steps = assertThrows(MatchLimitExceededException.class,
+                () -> new Regex(exponential, new Options().withStepLimit(100_000)).isMatch(input));
+        assertEquals(MatchLimitExceededException.Limit.STEPS, steps.limit());
+        assertEquals(100_001, steps.steps());
+
+        MatchLimitExceededException deadline = assertThrows(MatchLimitExceededException.class,
+                () -> new Regex(exponential, new Options().withTimeout(Duration.ofMillis(20))).isMatch(input));
+        assertEquals(MatchLimitExceededException.Limit.DEADLINE, deadline.limit());
+
+        assertThrows(MatchLimitExceededException.class,
+                () -> new Regex("a+b", new Options().withStepLimit(10)).isMatch(input));
+        assertThrows(MatchLimitExceededException.class,
+                () -> new Regex("(a+)b", new Options().withStepLimit(10)).firstMatch(input));
+
+        // The budget is given to every match, not to the whole search
+        assertEquals(List.of("ab", "ab", "ab"), matches("ab", "ab ab ab"));
+        assertEquals(4, new Regex("ab", new Options().withStepLimit(10)).matches("ab ab ab ab").size());
+        assertThrows(IllegalArgumentException.class, () -> new Options().withStepLimit(0));
+    }
+
+    @Test
+    public void testCompiledSearch() {
+        Options compiled = new Options().withCompilationThreshold(0);
+        String log = "12ms ok\n340ms timeout\n5ms timeout\n";
+        assertEquals(List.of("340ms timeout", "5ms timeout"),
+                new Regex("\\d+ms timeout", compiled).matches(log).stream().map(Regex.Match::fullMatch).toList());
+        assertEquals(List.of("aab", "ab"),
+                new Regex("a+b|c", compiled).matches("xaab ab").stream().map(Regex.Match::fullMatch).toList());
+        assertFalse(new Regex("a+b", compiled).isMatch("aaaa"));
+
+        // Hot patterns switch to the generated search without changing the matches
+        Regex hot = new Regex("[a-z]+@[a-z]+\\.com", new Options().withCompilationThreshold(3));
+        for (int i = 0; i < 5; i++) {
+            assertEquals("me@example.com", hot.firstMatch("to: me@example.com").orElseThrow().fullMatch());
+        }
+    }
+
+    @Test
+    public void testInvalidPatterns() {
+        assertThrows(ParseException.class, () -> new Regex("(a)\\2"));
+        assertThrows(ParseException.class, () -> new Regex("a{3,1}"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.regex;
+
+import com.example.regex.Regex.Options;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ReplaceTest {
+    // Regular, backtracking and literal alternation patterns, empty matches
+    private static final List<String> PATTERNS = List.of("\\d+", "([a-z]+)@(\\w+)", "(a)|(b)", "\\d+?", "(\\w)\\1",
+            "ab|cd", "(ab|cd)", "x*", ",\\s*", "^a");
+    private static final String INPUT = "ab12, cd3,x-9 abab@host 77 cd,, aa ";
+
+    @Test
+    public void testReplaceLikeJavaRegex() {
+        for (String pattern : PATTERNS) {
+            String template = pattern.contains("(") ? "<$1|\\$$0>" : "[$0]";
+            for (Options options : List.of(new Options(), new Options().withCompilationThreshold(0))) {
+                Regex regex = new Regex(pattern, options);
+                java.util.regex.Matcher expected = Pattern.compile(pattern).matcher(INPUT);
+                assertEquals(expected.replaceAll(template), regex.replaceAll(INPUT, template), pattern);
+                assertEquals(expected.replaceFirst(template), regex.replaceFirst(INPUT, template), pattern);
+                assertEquals(expected.replaceAll(match -> match.start() + "-" + match.end()),
+                        regex.replaceAll(INPUT, match -> match.start() + "-" + match.end()), pattern);
+            }
+        }
+    }
+
+    @Test
+    public void testReplaceIntoSink() throws IOException {
+        StringWriter sink = new StringWriter();
+        new Regex("(\\w+)@(\\w+)\\.com").replaceAll("mail a@b.com or cd@ef.com", "$1 at $2", sink);
+        assertEquals("mail a at b or cd at ef", sink.toString());
+
+        sink = new StringWriter();
+        new Regex("\\d").replaceAll("none", "#", sink);
+        assertEquals("none", sink.toString());
+    }
+
+    @Test
+    public void testReplacerSearchingWithSamePattern() {
+        Regex regex = new Regex("\\w+");
+        // The nested calls must not reset the matcher of the outer one
+        assertEquals("[abab 2] [cdcd 2]", regex.replaceAll("ab cd", match -> "[" +
+                regex.replaceFirst(match.group(), "$0$0") + " " + regex.matches(match.group() + " x").size() + "]"));
+    }
+
+    @Test
+    public void testUntouchedWithoutMatch() {
+        String input = "no digits here";
+        assertSame(input, new Regex("\\d").replaceAll(input, "#"));
+        assertSame(input, new Regex("\\d").replaceAll(input, match -> "#"));
+    }
+
+    @Test
+    public void testTemplates() {
+        Regex regex = new Regex("(a)(b)(c)(d)(e)(f)(g)(h)(i)(j)(k)");
+        // Digits are read as long as they make an existing group
+        assertEquals("k j a2", regex.replaceAll("abcdefghijk", "$11 $10 $12"));
+        assertEquals("$a", regex.replaceAll("abcdefghijk", "\\$$1"));
+
+        Regex group = new Regex("(a)");
+        assertThrows(IndexOutOfBoundsException.class, () -> group.replaceAll("a", "$2"));
+        assertThrows(IllegalArgumentException.class, () -> group.replaceAll("a", "$x"));
+        assertThrows(IllegalArgumentException.class, () -> group.replaceAll("a", "a\\"));
+        // A group which didn't participate is replaced by nothing
+        assertEquals("[]b", new Regex("(x)?a").replaceAll("ab", "[$1]"));
+        // A group which can't match is still numbered
+        assertEquals("a[]", new Regex("(a){0}b").replaceAll("ab", "[$1]"));
+        assertEquals("[]x", new Regex("(a){0}b|(c)").replaceAll("bx", "[$2]"));
+    }
+
+    @Test
+    public void testSplitLikeJavaRegex() {
+        for (String pattern : PATTERNS) {
+            for (String input : List.of(INPUT, "", "12", "x", ",a,,b,,")) {
+                List<String> expected = Arrays.asList(Pattern.compile(pattern).split(input));
+                assertEquals(expected, new Regex(pattern).split(input), pattern + " on " + input);
+            }
+        }
+    }
+}
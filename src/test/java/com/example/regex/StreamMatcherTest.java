@@ -0,0 +1,107 @@
+package com.example.regex;
+
+import com.example.regex.Regex.Options;
+import com.example.regex.Regex.Options.Option;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class StreamMatcherTest {
+
+    private static List<StreamMatch> streamMatches(StreamMatcher matcher) throws IOException {
+        List<StreamMatch> matches = new ArrayList<>();
+        for (var match = matcher.nextMatch(); match.isPresent(); match = matcher.nextMatch()) {
+            matches.add(match.get());
+        }
+        return matches;
+    }
+
+    private static void assertSameMatches(Regex regex, String input, int chunkSize) throws IOException {
+        List<StreamMatch> expected = regex.matches(input)
+                .stream()
+                .map(match -> new StreamMatch(match.startIndex(), match.endIndex(), match.fullMatch(), match.groups()))
+                .toList();
+        StreamMatcher matcher = regex.streamMatcher(new StringReader(input), chunkSize, 1024);
+        assertEquals(expected, streamMatches(matcher), "\"" + input + "\" in chunks of " + chunkSize);
+    }
+
+    @Test
+    public void testSameMatchesAsInMemory() throws IOException {
+        List<String> patterns = List.of("a+b", "a*", "abc|abd|b", "x?", "\\d{2,4}-\\w+", "(?:a|b)*abb",
+                "\\bword\\b", "^\\w+$", "a$", "\\n$", "(\\w+)@(\\w+)\\.com", "(a)|(b)", "[^ab]c",
+                "\"[^\"]*\"", "(?:ab)*c");
+        List<String> inputs = List.of("", "a", "ab", "aab", "xaab", "abcabd", "12-ab 1234-x", "aababb",
+                "a word, swordfish, words", "line\nword\n", "a\n", "mail bob@example.com or al@x.com",
+                "say \"hi\" and \"" + "long ".repeat(30) + "\"", "ababab ababc abc", "xcacc\n\n");
+
+        for (Options options : List.of(new Options(), new Options(Option.MULTILINE))) {
+            for (String pattern : patterns) {
+                Regex regex = new Regex(pattern, options);
+                for (String input : inputs) {
+                    for (int chunkSize : List.of(1, 2, 7, 1024)) {
+                        assertSameMatches(regex, input, chunkSize);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAbsoluteOffsets() throws IOException {
+        String input = ("x".repeat(997) + "ERROR 42\n").repeat(50);
+        StreamMatcher matcher = new Regex("ERROR (\\d+)").streamMatcher(new StringReader(input), 64, 256);
+
+        List<StreamMatch> matches = streamMatches(matcher);
+        assertEquals(50, matches.size());
+        assertEquals(new StreamMatch(49 * 1006 + 997, 49 * 1006 + 1005, "ERROR 42", List.of("42")), matches.get(49));
+    }
+
+    @Test
+    public void testChannel() throws IOException {
+        String input = "déjà vu, déjà lu";
+        var channel = Channels.newChannel(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        try (StreamMatcher matcher = new Regex("déjà \\w+").streamMatcher(channel, StandardCharsets.UTF_8)) {
+            List<StreamMatch> matches = streamMatches(matcher);
+            assertEquals(List.of(new StreamMatch(0, 7, "déjà vu", List.of()), new StreamMatch(9, 16, "déjà lu", List.of())),
+                    matches);
+        }
+    }
+
+    @Test
+    public void testBufferLimit() throws IOException {
+        // A match attempt spanning more than the buffer limit
+        String input = "<" + "a".repeat(1000) + ">";
+        StreamMatcher matcher = new Regex("<a*>").streamMatcher(new StringReader(input), 16, 256);
+        var exception = assertThrows(MatchLimitExceededException.class, matcher::nextMatch);
+        assertEquals(MatchLimitExceededException.Limit.BUFFER, exception.limit());
+
+        // Failed attempts are dropped, the buffer doesn't grow
+        StreamMatcher bounded = new Regex("<a*>").streamMatcher(new StringReader("<a".repeat(5000) + "<aa>"), 16, 64);
+        assertEquals(List.of(new StreamMatch(10000, 10004, "<aa>", List.of())), streamMatches(bounded));
+    }
+
+    @Test
+    public void testLongFailedAttempts() throws IOException {
+        // Every attempt runs up to the 'd' before failing, they aren't tried one by one
+        String input = "ab".repeat(100_000) + "d";
+        StreamMatcher matcher = new Regex("(?:a|b)*c|d").streamMatcher(new StringReader(input), 1024, 1 << 20);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertEquals(
+                List.of(new StreamMatch(200_000, 200_001, "d", List.of())), streamMatches(matcher)));
+    }
+
+    @Test
+    public void testIrregularPatterns() {
+        assertThrows(IllegalArgumentException.class, () -> new Regex("(a)\\1").streamMatcher(new StringReader("aa")));
+    }
+}
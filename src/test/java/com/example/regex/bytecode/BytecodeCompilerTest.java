@@ -0,0 +1,84 @@
+package com.example.regex.bytecode;
+
+import com.example.regex.Regex;
+import com.example.regex.compiler.Compiler;
+import com.example.regex.compiler.Program;
+import com.example.regex.grammar.Grammar;
+import com.example.regex.matcher.LazyDFA;
+import com.example.regex.matcher.MatchBudget;
+import com.example.regex.matcher.MatchEndSearch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BytecodeCompilerTest {
+
+    private static Program program(String pattern, Regex.Options options) {
+        return new Compiler(Grammar.REGEX.parse(pattern).orElseThrow().value(), options)
+                .compile()
+                .program();
+    }
+
+    @Test
+    void testCharacterClasses() {
+        Program program = program("[a-c]x|[0-9]", new Regex.Options());
+        CharacterClasses classes = CharacterClasses.of(EagerDFA.conditions(program));
+
+        // [a-c], x, [0-9] and everything else
+        assertEquals(4, classes.count());
+        assertEquals(classes.table()['a'], classes.table()['c']);
+        assertEquals(classes.table()['0'], classes.table()['9']);
+        assertEquals(classes.otherClass(), classes.table()['d']);
+        assertTrue(classes.limit() <= 'y');
+    }
+
+    @Test
+    void testSameMatchEndsAsLazyDFA() {
+        List<String> patterns = List.of("a+b", "a*", "abc|abd|b", "(?:ab|a)(?:bc)?", "[a-c]+d?", "x?",
+                "\\d{2,4}-\\w+", "(?:a|b)*abb", "[^ab]c", "é+|ü", ".a",
+                "\"[^\"]*\"", "a[ \t]*=[ \t]*b", "[^x]*xy");
+        List<String> inputs = List.of("", "a", "ab", "aab", "xaab", "abcabd", "abbc", "ccd ab", "12-ab 1234-x",
+                "aababb", "xcacc", "éé ü", "\na\n", "baaaab abb",
+                "say \"hi\" and \"" + "long ".repeat(30) + "\"", "a =  b, a=b, a = c", "xxy " + "z".repeat(100) + "xy");
+
+        for (Regex.Options options : List.of(new Regex.Options(), new Regex.Options(Regex.Options.Option.CASE_INSENSITIVE))) {
+            for (String pattern : patterns) {
+                Program program = program(pattern, options);
+                LazyDFA dfa = new LazyDFA(program);
+                MatchEndSearch compiled = BytecodeCompiler.compile(program).orElseThrow();
+                for (String input : inputs) {
+                    for (int from = 0; from <= input.length(); from++) {
+                        String context = pattern + " on \"" + input + "\" from " + from;
+                        assertEquals(dfa.earliestMatchEnd(input, from),
+                                compiled.earliestMatchEnd(input, from, MatchBudget.unlimited().start()), context);
+                        assertEquals(dfa.anchoredMatchEnd(input, from),
+                                compiled.anchoredMatchEnd(input, from, MatchBudget.unlimited().start()), context);
+                        assertEquals(dfa.leftmostMatchEnd(input, from, MatchBudget.unlimited().start()),
+                                compiled.leftmostMatchEnd(input, from, MatchBudget.unlimited().start()), context);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testUnsupportedPrograms() {
+        assertFalse(BytecodeCompiler.isSupported(program("^a", new Regex.Options())));
+        assertFalse(BytecodeCompiler.compile(program("\\bword\\b", new Regex.Options())).isPresent());
+        // Too many states for the generated methods
+        assertFalse(BytecodeCompiler.compile(program("[ab]*a[ab]{12}", new Regex.Options())).isPresent());
+    }
+
+    @Test
+    void testChargesTheScannedCharacters() {
+        MatchEndSearch compiled = BytecodeCompiler.compile(program("b", new Regex.Options())).orElseThrow();
+        MatchBudget budget = MatchBudget.unlimited().start();
+
+        assertEquals(4, compiled.earliestMatchEnd("aaab", 0, budget));
+        assertEquals(4, budget.steps());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.regex.compiler;
+
+import com.example.regex.Regex;
+import com.example.regex.fsm.Epsilon;
+import com.example.regex.grammar.Grammar;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompilerTest {
+
+    private static CompiledRegex compile(String pattern) {
+        return compile(pattern, new Regex.Options());
+    }
+
+    private static CompiledRegex compile(String pattern, Regex.Options options) {
+        return new Compiler(Grammar.REGEX.parse(pattern).orElseThrow().value(), options).compile();
+    }
+
+    private static List<CompiledTransition> transitions(CompiledRegex regex) {
+        return regex.fsm().transitions().stream().flatMap(List::stream).toList();
+    }
+
+    private static boolean isUnconditional(CompiledTransition transition) {
+        return transition.condition() instanceof Epsilon epsilon && epsilon.predicate() == null;
+    }
+
+    @Test
+    void testEpsilonsRemoved() {
+        CompiledRegex regex = compile("(?:a|b)*c?d");
+
+        // Only the transitions to the accepting state don't consume anything
+        for (CompiledTransition transition : transitions(regex)) {
+            if (isUnconditional(transition)) {
+                assertTrue(regex.fsm().transitions().get(transition.end().state()).isEmpty());
+            }
+        }
+        // The start, after each of the characters and the accepting state
+        assertEquals(5, regex.fsm().transitions().size());
+    }
+
+    @Test
+    void testCaptureGroupBoundariesKept() {
+        CompiledRegex regex = compile("(a)*b");
+        Set<Integer> boundaries = regex.captureGroups().stream()
+                .flatMap(captureGroup -> List.of(captureGroup.start(), captureGroup.end()).stream())
+                .map(CompiledState::state)
+                .collect(Collectors.toSet());
+
+        assertEquals(2, boundaries.size());
+        for (CompiledTransition transition : transitions(regex)) {
+            if (isUnconditional(transition)) {
+                int end = transition.end().state();
+                assertTrue(boundaries.contains(end) || regex.fsm().transitions().get(end).isEmpty());
+            }
+        }
+    }
+
+    @Test
+    void testAssertionsKept() {
+        CompiledRegex regex = compile("\\bab$");
+
+        assertEquals(2, transitions(regex).stream()
+                .filter(transition -> transition.condition() instanceof Epsilon epsilon && epsilon.predicate() != null)
+                .count());
+    }
+
+    @Test
+    void testAnchoredPatterns() {
+        assertTrue(compile("^ab").isFromStartOfString());
+        assertTrue(compile("\\Aa|\\Ab*").isFromStartOfString());
+        assertFalse(compile("\\Aa|b").isFromStartOfString());
+        // In multiline mode a match can start at any line
+        assertFalse(compile("^ab", new Regex.Options(Regex.Options.Option.MULTILINE)).isFromStartOfString());
+
+        assertTrue(compile("ab$").isToEndOfString());
+        assertTrue(compile("(a\\z|b+\\Z)").isToEndOfString());
+        assertFalse(compile("a$|b").isToEndOfString());
+        assertFalse(compile("ab$", new Regex.Options(Regex.Options.Option.MULTILINE)).isToEndOfString());
+        // The automata can't run back references backwards
+        assertFalse(compile("(a)\\1$").isToEndOfString());
+    }
+}
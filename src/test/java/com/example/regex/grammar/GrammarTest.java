@@ -427,11 +427,12 @@ public class GrammarTest {
         result = parser.parse("(a)");
         assertTrue(result.isPresent());
         assertInstanceOf(Group.class, result.get().value());
+        assertTrue(((Group) result.get().value()).isCapturing());
 
         result = parser.parse("(?:a)");
         assertTrue(result.isPresent());
         var value = (Group) result.get().value();
-        assertTrue(value.isCapturing());
+        assertFalse(value.isCapturing());
         assertEquals(new Match.character('a'), value.children().getFirst());
 
         assertThrows(ParseException.class, () -> parser.parse("(?a)"));
@@ -0,0 +1,47 @@
+package com.example.regex.matcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AhoCorasickTest {
+
+    private static int[] search(List<String> literals, String input, int from) {
+        int[] bounds = new int[2];
+        if (!new AhoCorasick(literals).search(input, from, false, bounds, MatchBudget.unlimited().start())) {
+            return null;
+        }
+        return bounds;
+    }
+
+    @Test
+    void testLeftmostFirst() {
+        // Leftmost wins even when a later literal ends first
+        assertArrayEquals(new int[]{0, 4}, search(List.of("bc", "abcd"), "abcd", 0));
+        // At the same start the earliest literal of the alternation wins
+        assertArrayEquals(new int[]{0, 1}, search(List.of("a", "ab"), "ab", 0));
+        assertArrayEquals(new int[]{0, 2}, search(List.of("ab", "a"), "ab", 0));
+        assertArrayEquals(new int[]{3, 6}, search(List.of("she", "he", "hers"), "xx she", 0));
+        assertArrayEquals(new int[]{1, 3}, search(List.of("he", "hers"), "xhers", 0));
+    }
+
+    @Test
+    void testFailureLinks() {
+        assertArrayEquals(new int[]{2, 5}, search(List.of("abd", "bca"), "abbca", 0));
+        assertArrayEquals(new int[]{4, 7}, search(List.of("aab", "abc"), "aaaxaab", 0));
+        assertArrayEquals(new int[]{5, 7}, search(List.of("foo", "ba"), "fofofba", 0));
+        assertArrayEquals(null, search(List.of("foo", "bar"), "fobabaz", 0));
+        assertArrayEquals(new int[]{4, 7}, search(List.of("foo"), "foo foo", 1));
+    }
+
+    @Test
+    void testMatchOnly() {
+        AhoCorasick automaton = new AhoCorasick(List.of("needle", "pin"));
+        assertTrue(automaton.search("hay pin hay", 0, true, new int[2], MatchBudget.unlimited().start()));
+        assertFalse(automaton.search("hay hay", 0, true, new int[2], MatchBudget.unlimited().start()));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.regex.matcher;
+
+import com.example.regex.MatchLimitExceededException;
+import com.example.regex.Regex;
+import com.example.regex.compiler.Compiler;
+import com.example.regex.compiler.Program;
+import com.example.regex.grammar.Grammar;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BacktrackerTest {
+
+    private static Program program(String pattern) {
+        return new Compiler(Grammar.REGEX.parse(pattern).orElseThrow().value(), new Regex.Options())
+                .compile()
+                .program();
+    }
+
+    private static int[] search(String pattern, String input) {
+        Backtracker backtracker = new Backtracker(program(pattern), Regex.Options.DEFAULT_BACKTRACKING_MEMORY);
+        int[] captures = new int[backtracker.slotCount()];
+        return backtracker.search(input, 0, 0, false, captures) ? captures : null;
+    }
+
+    @Test
+    void testLazyQuantifiers() {
+        assertArrayEquals(new int[]{0, 1}, search("a+?", "aaa"));
+        assertArrayEquals(new int[]{0, 0}, search("a*?", "aaa"));
+        assertArrayEquals(new int[]{0, 7, 1, 2}, search("<(.+?)>.*", "<b></b>"));
+        assertArrayEquals(new int[]{0, 3}, search("a{2,4}?b", "aab"));
+    }
+
+    @Test
+    void testBackReferences() {
+        assertArrayEquals(new int[]{1, 5, 1, 3}, search("([a-z]+)\\1", "xabab"));
+        assertArrayEquals(null, search("([a-z]+)\\1", "abc"));
+        assertArrayEquals(new int[]{1, 5, 1, 2}, search("(a|b)\\1b\\1", "baaba"));
+
+        // A group entered again keeps its previous capture until it is exited
+        assertArrayEquals(null, search(" *([a-c]+?|\\d{1,2}\\1){2}", "\nb1\nc"));
+        assertArrayEquals(new int[]{3, 7, -1, -1}, search(".{1,2}(\\w*[^a]\\1|x){0,}\\s{2}", "1x x1  1"));
+        assertArrayEquals(new int[]{0, 3, 1, 3}, search("(a|b\\1)+", "aba"));
+    }
+
+    @Test
+    void testEmptyLoops() {
+        assertArrayEquals(new int[]{0, 3, 0, 3}, search("(a*)*", "aaa"));
+        assertArrayEquals(new int[]{0, 2}, search("(?:a?)+?b", "ab"));
+        assertArrayEquals(new int[]{0, 1}, search("(?:a*?)*b", "b"));
+    }
+
+    @Test
+    void testMemoizationBoundsExponentialPatterns() {
+        Backtracker backtracker = new Backtracker(program("(a|a)*?b"), Regex.Options.DEFAULT_BACKTRACKING_MEMORY);
+        int[] captures = new int[backtracker.slotCount()];
+        String input = "a".repeat(100);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertFalse(backtracker.search(input, 0, 0, false, captures)));
+        assertTrue(backtracker.isMemoizing());
+        assertTrue(backtracker.search(input + "b", 0, 0, false, captures));
+        assertArrayEquals(new int[]{0, 101, 99, 100}, captures);
+    }
+
+    @Test
+    void testMemoizationIsSkipped() {
+        // The bitmap would be larger than the budget
+        Backtracker small = new Backtracker(program("(a|a)*?b"), 1);
+        int[] captures = new int[small.slotCount()];
+        assertTrue(small.search("aaab", 0, 0, false, captures));
+        assertFalse(small.isMemoizing());
+
+        // It's not valid with back references
+        Backtracker backReferences = new Backtracker(program("(a)\\1"), Regex.Options.DEFAULT_BACKTRACKING_MEMORY);
+        assertTrue(backReferences.search("aa", 0, 0, false, new int[backReferences.slotCount()]));
+        assertFalse(backReferences.isMemoizing());
+    }
+
+    @Test
+    void testDeepInputDoesNotOverflow() {
+        Backtracker backtracker = new Backtracker(program("(a|b)*c"), 128 << 20);
+        int[] captures = new int[backtracker.slotCount()];
+        String input = "ab".repeat(500_000) + "c";
+
+        assertTrue(backtracker.search(input, 0, 0, true, captures));
+        assertArrayEquals(new int[]{0, 1_000_001, 999_999, 1_000_000}, captures);
+
+        // The stack is reused by the following searches
+        assertTrue(backtracker.search(input, 0, 0, true, captures));
+    }
+
+    @Test
+    void testDeepInputRunsOnPikeVM() {
+        // Neither the bitmap nor the stack of a 10 MB input fit the default budget
+        Backtracker backtracker = new Backtracker(program("(a|b)*?c"), Regex.Options.DEFAULT_BACKTRACKING_MEMORY);
+        int[] captures = new int[backtracker.slotCount()];
+        String input = "ab".repeat(5_000_000);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertFalse(backtracker.search(input, 0, 0, false, captures)));
+        assertFalse(backtracker.isMemoizing());
+        assertTrue(backtracker.search(input + "c", 0, 0, false, captures));
+        assertArrayEquals(new int[]{0, 10_000_001, 9_999_999, 10_000_000}, captures);
+
+        Backtracker end = new Backtracker(program("((a|b)*?)$"), Regex.Options.DEFAULT_BACKTRACKING_MEMORY);
+        int[] groups = new int[end.slotCount()];
+        assertTrue(end.search(input, 0, 0, false, groups));
+        assertArrayEquals(new int[]{0, 10_000_000, 0, 10_000_000, 9_999_999, 10_000_000}, groups);
+
+        // The bitmap fits but the stack doesn't
+        Backtracker deep = new Backtracker(program("(a|b)*?c"), 4 << 20);
+        assertTrue(deep.search(input.substring(0, 1_000_000) + "c", 0, 0, false, captures));
+        assertTrue(deep.isMemoizing());
+        assertArrayEquals(new int[]{0, 1_000_001, 999_999, 1_000_000}, captures);
+    }
+
+    @Test
+    void testStackIsBounded() {
+        // Back references can't be memoized, every character leaves a choice point
+        Backtracker backtracker = new Backtracker(program("(a|b)*?c\\1"), Regex.Options.DEFAULT_BACKTRACKING_MEMORY);
+        int[] captures = new int[backtracker.slotCount()];
+        String input = "ab".repeat(5_000_000);
+
+        MatchLimitExceededException exception = assertThrows(MatchLimitExceededException.class,
+                () -> backtracker.search(input, 0, 0, false, captures));
+        assertEquals(MatchLimitExceededException.Limit.MEMORY, exception.limit());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.regex.matcher;
+
+import com.example.regex.Regex;
+import com.example.regex.compiler.Compiler;
+import com.example.regex.compiler.Program;
+import com.example.regex.grammar.Grammar;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LazyDFATest {
+
+    private static Program program(String pattern) {
+        return new Compiler(Grammar.REGEX.parse(pattern).orElseThrow().value(), new Regex.Options())
+                .compile()
+                .program();
+    }
+
+    @Test
+    void testMatchEnds() {
+        LazyDFA dfa = new LazyDFA(program("a+b"));
+
+        assertEquals(4, dfa.earliestMatchEnd("xaab", 0));
+        assertEquals(-1, dfa.earliestMatchEnd("xaab", 4));
+        assertEquals(4, dfa.anchoredMatchEnd("xaab", 1));
+        assertEquals(-1, dfa.anchoredMatchEnd("xaab", 0));
+        assertTrue(dfa.isMatch("aaaab", 0));
+        assertFalse(dfa.isMatch("aaaa", 0));
+    }
+
+    @Test
+    void testLongestReversedMatch() {
+        // Read backwards from the end of "xabc", the longest match starts the leftmost one
+        LazyDFA dfa = LazyDFA.longest(program("(a|ab)c").reverse());
+        assertEquals(3, dfa.anchoredMatchEnd(new ReversedSequence("xabc"), 0));
+        assertEquals(-1, dfa.anchoredMatchEnd(new ReversedSequence("xabd"), 0));
+
+        LazyDFA anchored = LazyDFA.longest(program("^a+b$").reverse());
+        assertEquals(4, anchored.anchoredMatchEnd(new ReversedSequence("aaab"), 0));
+        assertEquals(-1, anchored.anchoredMatchEnd(new ReversedSequence("caab"), 0));
+    }
+
+    @Test
+    void testLeftmostMatchEnd() {
+        LazyDFA dfa = new LazyDFA(program("b|abc"));
+        // "b" ends first, but "abc" starts first
+        assertEquals(2, dfa.earliestMatchEnd("abc", 0));
+        assertEquals(3, dfa.leftmostMatchEnd("abc", 0, 3, MatchBudget.unlimited().start()));
+
+        LazyDFA greedy = new LazyDFA(program("a+"));
+        assertEquals(4, greedy.leftmostMatchEnd("xaaa ab", 0, 7, MatchBudget.unlimited().start()));
+        assertEquals(-1, greedy.leftmostMatchEnd("xaaa ab", 4, 4, MatchBudget.unlimited().start()));
+        assertEquals(6, greedy.leftmostMatchEnd("xaaa ab", 4, 5, MatchBudget.unlimited().start()));
+    }
+
+    @Test
+    void testBoundedReversedMatch() {
+        // Backwards from the end of "xab", "ab" would start before the bound
+        LazyDFA dfa = LazyDFA.longest(program("xa|ab|b").reverse());
+        ReversedSequence input = new ReversedSequence("xab");
+        assertEquals(2, dfa.anchoredMatchEnd(input, 0, 3, MatchBudget.unlimited().start()));
+        assertEquals(1, dfa.anchoredMatchEnd(input, 0, 1, MatchBudget.unlimited().start()));
+
+        // The character past the bound is read for the assertions
+        LazyDFA boundary = LazyDFA.longest(program("\\b\\w").reverse());
+        assertEquals(-1, boundary.anchoredMatchEnd(new ReversedSequence("ab"), 0, 1, MatchBudget.unlimited().start()));
+        assertEquals(1, boundary.anchoredMatchEnd(new ReversedSequence(" b"), 0, 1, MatchBudget.unlimited().start()));
+    }
+
+    @Test
+    void testGreedyEnd() {
+        LazyDFA dfa = new LazyDFA(program("a*"));
+
+        assertEquals(0, dfa.earliestMatchEnd("aaa", 0));
+        assertEquals(3, dfa.anchoredMatchEnd("aaa", 0));
+    }
+
+    @Test
+    void testSmallCacheGivesSameResults() {
+        // Every character of the alphabet leads to a new state, the cache is cleared constantly
+        Program program = program("[a-z]{3}x[a-z]{3}y");
+        LazyDFA small = new LazyDFA(program, 1);
+        LazyDFA large = new LazyDFA(program);
+
+        String input = "abcdefghijklmnopqrstuvwxyz".repeat(100) + "abcxdefy";
+        assertEquals(large.earliestMatchEnd(input, 0), small.earliestMatchEnd(input, 0));
+        assertEquals(input.length(), small.earliestMatchEnd(input, 0));
+        assertEquals(large.anchoredMatchEnd(input, 2600), small.anchoredMatchEnd(input, 2600));
+    }
+
+    @Test
+    void testNonAsciiInput() {
+        LazyDFA dfa = new LazyDFA(program("[α-ω]+\\d"));
+
+        assertEquals(6, dfa.anchoredMatchEnd("xαβγδ5", 1));
+        assertTrue(dfa.isMatch("xαβγδ5", 0));
+        assertFalse(dfa.isMatch("xαβγδ", 0));
+
+        // Enough distinct characters to grow the transitions of a state, read twice from the cache
+        StringBuilder input = new StringBuilder();
+        for (char character = 'Ā'; character < 'Ā' + 300; character++) {
+            input.append(character);
+        }
+        LazyDFA others = new LazyDFA(program("[^α-ω]+α"));
+        String twice = input + "α" + input + "α";
+        assertEquals(301, others.anchoredMatchEnd(twice, 0));
+        assertEquals(602, others.anchoredMatchEnd(twice, 301));
+        assertEquals(-1, others.anchoredMatchEnd(input, 0));
+    }
+}
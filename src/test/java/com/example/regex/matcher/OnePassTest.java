@@ -0,0 +1,104 @@
+package com.example.regex.matcher;
+
+import com.example.regex.MatchLimitExceededException;
+import com.example.regex.Regex;
+import com.example.regex.compiler.Compiler;
+import com.example.regex.compiler.Program;
+import com.example.regex.grammar.Grammar;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OnePassTest {
+
+    private static Program program(String pattern) {
+        return new Compiler(Grammar.REGEX.parse(pattern).orElseThrow().value(), new Regex.Options())
+                .compile()
+                .program();
+    }
+
+    private static int[] search(String pattern, String input, int from) {
+        OnePass onePass = OnePass.of(program(pattern)).orElseThrow();
+        int[] captures = new int[onePass.slotCount()];
+        int[] slots = new int[onePass.slotCount()];
+        return onePass.search(input, from, captures, slots, MatchBudget.unlimited().start()) ? captures : null;
+    }
+
+    @Test
+    void testOnePassPrograms() {
+        assertTrue(OnePass.of(program("(\\d+)-(\\d+)")).isPresent());
+        assertTrue(OnePass.of(program("key=([^;]*);")).isPresent());
+        assertTrue(OnePass.of(program("^(\\w+)@(\\w+)$")).isPresent());
+        // Both alternatives start with an 'a'
+        assertFalse(OnePass.of(program("(a|ab)c")).isPresent());
+        // Which 'a' goes in which group is only known at the end
+        assertFalse(OnePass.of(program("(a*)(a*)")).isPresent());
+        assertFalse(OnePass.of(program("(\\w+)\\1")).isPresent());
+    }
+
+    @Test
+    void testCaptures() {
+        assertArrayEquals(new int[]{2, 7, 2, 4, 5, 7}, search("(\\d+)-(\\d+)", "a 12-34 b", 2));
+        assertArrayEquals(new int[]{0, 8, 4, 7}, search("key=([^;]*);", "key=a b;c;", 0));
+        assertArrayEquals(new int[]{0, 1, -1, -1}, search("(a)?b", "b", 0));
+        assertArrayEquals(null, search("(\\d+)-(\\d+)", "a 12-34 b", 0));
+        assertArrayEquals(null, search("(a+)b", "aaaa", 0));
+    }
+
+    @Test
+    void testLeftmostFirst() {
+        // The match after "ab" has a lower priority than going on, it's kept as the loop fails
+        assertArrayEquals(new int[]{0, 4, 2, 4}, search("(ab)+", "ababa", 0));
+        assertArrayEquals(new int[]{0, 2, 0, 2}, search("(a(?:b|$))", "ab", 0));
+        assertArrayEquals(new int[]{0, 1, 0, 1}, search("(a(?:b|$))", "a", 0));
+        assertArrayEquals(null, search("(a(?:b|$))", "ac", 0));
+    }
+
+    @Test
+    void testStepLimit() {
+        OnePass onePass = OnePass.of(program("(\\d+)-(\\d+)")).orElseThrow();
+        String input = "1".repeat(1000) + "-1";
+        MatchBudget budget = new MatchBudget(100, Duration.ZERO);
+        MatchLimitExceededException exception = assertThrows(MatchLimitExceededException.class,
+                () -> onePass.search(input, 0, new int[onePass.slotCount()], new int[onePass.slotCount()],
+                        budget.start()));
+        // Stopped as soon as the limit is reached, not once the match is over
+        assertEquals(101, exception.steps());
+    }
+
+    @Test
+    void testSameCapturesAsPikeVM() {
+        List<String> patterns = List.of("(\\d+)-(\\d+)", "(\\w+)=([^;]*);", "\\b(\\w+)\\b", "(a|b)*c", "^(\\d*)$",
+                "(x)?(ab)+", "([a-c])([^a-c]+)?");
+        Random random = new Random(25);
+        for (String pattern : patterns) {
+            Program program = program(pattern);
+            OnePass onePass = OnePass.of(program).orElseThrow();
+            PikeVM vm = new PikeVM(program);
+            for (int i = 0; i < 200; i++) {
+                StringBuilder input = new StringBuilder();
+                for (int length = random.nextInt(12); length > 0; length--) {
+                    input.append("abcx12=;- ".charAt(random.nextInt(10)));
+                }
+                for (int from = 0; from <= input.length(); from++) {
+                    int[] expected = new int[vm.slotCount()];
+                    int[] captures = new int[onePass.slotCount()];
+                    boolean isMatch = vm.search(input, from, 0, true, false, expected);
+                    assertEquals(isMatch, onePass.search(input, from, captures, new int[onePass.slotCount()],
+                            MatchBudget.unlimited().start()), pattern + " on " + input + " from " + from);
+                    if (isMatch) {
+                        assertArrayEquals(expected, captures, pattern + " on " + input + " from " + from);
+                    }
+                }
+            }
+        }
+    }
+}
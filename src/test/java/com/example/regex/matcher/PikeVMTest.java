@@ -0,0 +1,63 @@
+package com.example.regex.matcher;
+
+import com.example.regex.Regex;
+import com.example.regex.compiler.Compiler;
+import com.example.regex.compiler.Program;
+import com.example.regex.grammar.Grammar;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PikeVMTest {
+
+    private static int[] search(String pattern, String input) {
+        Program program = new Compiler(Grammar.REGEX.parse(pattern).orElseThrow().value(), new Regex.Options())
+                .compile()
+                .program();
+        PikeVM vm = new PikeVM(program);
+        int[] captures = new int[vm.slotCount()];
+        return vm.search(input, 0, 0, false, false, captures) ? captures : null;
+    }
+
+    @Test
+    void testCaptures() {
+        assertArrayEquals(new int[]{2, 7, 2, 4, 5, 7}, search("(\\d+)-(\\d+)", "a 12-34 b"));
+        assertArrayEquals(new int[]{0, 6, 4, 6}, search("(ab|cd)*", "abcdab"));
+        assertArrayEquals(new int[]{0, 1, -1, -1}, search("(a)?b", "b"));
+        assertArrayEquals(new int[]{0, 3, 0, 3, 2, 3}, search("((a|b)+)", "abb"));
+    }
+
+    @Test
+    void testLeftmostFirst() {
+        assertArrayEquals(new int[]{0, 1, 0, 1}, search("(a|ab)", "ab"));
+        assertArrayEquals(new int[]{0, 2, 0, 2}, search("(ab|a)", "ab"));
+        assertArrayEquals(new int[]{1, 3, 1, 3}, search("(abcd|bc)", "abcx"));
+    }
+
+    @Test
+    void testNoMatch() {
+        assertArrayEquals(null, search("(a+)b", "aaaa"));
+    }
+
+    @Test
+    void testAttemptsFailingWhereTheyStart() {
+        // The attempt starting at 1 fails before reading anything, the search goes on after it
+        assertArrayEquals(new int[]{3, 4, 3, 4}, search("\\b(b)", "ab b"));
+    }
+
+    @Test
+    void testDoesNotAllocateThreadsPerCharacter() {
+        Program program = new Compiler(Grammar.REGEX.parse("(a|b)*c").orElseThrow().value(), new Regex.Options())
+                .compile()
+                .program();
+        PikeVM vm = new PikeVM(program);
+        int[] captures = new int[vm.slotCount()];
+        String input = "ab".repeat(500_000);
+
+        assertFalse(vm.search(input, 0, 0, false, false, captures));
+        assertTrue(vm.search(input + "c", 0, 0, false, false, captures));
+        assertArrayEquals(new int[]{0, 1_000_001, 999_999, 1_000_000}, captures);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.regex.optimizer;
+
+import com.example.regex.ast.AST;
+import com.example.regex.ast.Alternation;
+import com.example.regex.ast.Group;
+import com.example.regex.ast.ImplicitGroup;
+import com.example.regex.ast.Match;
+import com.example.regex.ast.QuantifiedExpression;
+import com.example.regex.ast.Unit;
+import com.example.regex.grammar.Grammar;
+import com.example.regex.util.CharacterSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class OptimizerTest {
+
+    private static Unit optimize(String pattern) {
+        AST ast = Grammar.REGEX.parse(pattern).orElseThrow().value();
+        return new Optimizer().optimize(ast).root();
+    }
+
+    @Test
+    void testLiteralCoalescing() {
+        assertEquals(new Match.string("hello"), optimize("hello"));
+        assertEquals(new ImplicitGroup(List.of(
+                new Match.string("ab"),
+                optimize("c*"),
+                new Match.character('d'))), optimize("abc*d"));
+    }
+
+    @Test
+    void testGroupFlattening() {
+        assertEquals(new Match.string("abcd"), optimize("a(?:b(?:c))d"));
+        assertEquals(new Alternation(List.of(
+                new Match.character('a'),
+                new Match.character('b'),
+                new Match.character('c'))), optimize("(?:a|b)|c"));
+
+        Unit quantified = optimize("(?:ab)+");
+        assertInstanceOf(QuantifiedExpression.class, quantified);
+        assertEquals(new Match.string("ab"), ((QuantifiedExpression) quantified).expression());
+    }
+
+    @Test
+    void testCaptureGroupsKept() {
+        assertEquals(new ImplicitGroup(List.of(
+                new Match.character('a'),
+                new Group(Optional.of(1), true, List.of(new Match.string("bc"))),
+                new Match.character('d'))), optimize("a(bc)d"));
+    }
+
+    @Test
+    void testCharacterGroupSimplification() {
+        assertEquals(new Match.string("abc"), optimize("a[b]c"));
+        assertEquals(new Match.set(CharacterSet.decimalDigit), optimize("[\\d]"));
+        assertInstanceOf(Match.group.class, optimize("[^a]"));
+        assertInstanceOf(Match.group.class, optimize("[a-z]"));
+        assertInstanceOf(Match.group.class, optimize("[ab]"));
+    }
+}
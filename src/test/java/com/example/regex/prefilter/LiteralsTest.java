@@ -0,0 +1,57 @@
+package com.example.regex.prefilter;
+
+import com.example.regex.ast.AST;
+import com.example.regex.grammar.Grammar;
+import com.example.regex.optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LiteralsTest {
+
+    private static AST ast(String pattern) {
+        return new Optimizer().optimize(Grammar.REGEX.parse(pattern).orElseThrow().value());
+    }
+
+    private static Optional<Set<String>> prefixes(String pattern) {
+        return Literals.prefixes(ast(pattern).root()).map(Literals::strings);
+    }
+
+    @Test
+    void testPrefixes() {
+        assertEquals(Optional.of(Set.of("ERROR ")), prefixes("ERROR \\d+"));
+        assertEquals(Optional.of(Set.of("GET /api/")), prefixes("GET /api/\\w+"));
+        assertEquals(Optional.of(Set.of("ab")), prefixes("\\bab+c"));
+        assertEquals(Optional.of(Set.of("ac", "bc")), prefixes("(a|b)c\\d"));
+        assertEquals(Optional.of(Set.of("foo", "bar")), prefixes("foo|bar"));
+        assertEquals(Optional.empty(), prefixes("foo|\\d"));
+        assertEquals(Optional.empty(), prefixes(".*foo"));
+    }
+
+    @Test
+    void testPrefilter() {
+        assertTrue(Literals.prefilter(ast("ERROR \\d+"), false) instanceof PrefixPrefilter);
+        assertTrue(Literals.prefilter(ast("foo|bar"), false) instanceof PrefixSetPrefilter);
+        // Optional prefixes match anywhere
+        assertEquals(0, Literals.prefilter(ast("a?b"), false).find("xxb", 0));
+        assertEquals(0, Literals.prefilter(ast("ab"), true).find("xAB", 0));
+    }
+
+    @Test
+    void testFind() {
+        Prefilter prefix = new PrefixPrefilter("GET ");
+        assertEquals(4, prefix.find("PUT GET /", 0));
+        assertEquals(4, prefix.find(new StringBuilder("PUT GET /"), 0));
+        assertEquals(-1, prefix.find("PUT GET /", 5));
+
+        Prefilter prefixes = new PrefixSetPrefilter(List.of("foo", "bar"));
+        assertEquals(2, prefixes.find("xxbarfoo", 0));
+        assertEquals(5, prefixes.find("xxbarfoo", 3));
+        assertEquals(-1, prefixes.find("xxbarfo", 3));
+    }
+}
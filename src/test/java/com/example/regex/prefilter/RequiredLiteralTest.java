@@ -0,0 +1,55 @@
+package com.example.regex.prefilter;
+
+import com.example.regex.ast.AST;
+import com.example.regex.grammar.Grammar;
+import com.example.regex.optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequiredLiteralTest {
+
+    private static AST ast(String pattern) {
+        return new Optimizer().optimize(Grammar.REGEX.parse(pattern).orElseThrow().value());
+    }
+
+    private static Optional<String> literal(String pattern) {
+        return RequiredLiteral.of(ast(pattern), false).map(literal -> literal.searcher().literal());
+    }
+
+    @Test
+    void testLiterals() {
+        assertEquals(Optional.of("ms timeout"), literal("\\d+ms timeout"));
+        assertEquals(Optional.of("@example.com"), literal(".*@example\\.com"));
+        assertEquals(Optional.of("abc"), literal("\\d(ab)c"));
+        assertEquals(Optional.of("xyz"), literal("\\w+(?:xyz)+\\d"));
+        // Optional, alternative or already a prefix
+        assertEquals(Optional.empty(), literal("\\d(?:abc)?"));
+        assertEquals(Optional.empty(), literal("\\d(?:abc|abd)"));
+        assertEquals(Optional.empty(), literal("abc\\d"));
+        assertEquals(Optional.empty(), RequiredLiteral.of(ast("\\dabc"), true));
+    }
+
+    @Test
+    void testMaxDistance() {
+        assertEquals(-1, RequiredLiteral.of(ast("\\d+ms"), false).orElseThrow().maxDistance());
+        assertEquals(3, RequiredLiteral.of(ast("\\d{1,3}ms"), false).orElseThrow().maxDistance());
+        assertEquals(2, RequiredLiteral.of(ast("(?:\\d|xy)ms\\b"), false).orElseThrow().maxDistance());
+        assertEquals(7, RequiredLiteral.of(ast("[a-z]?\\d{2}ms timeout"), false).orElseThrow().searchStart(0, 10));
+    }
+
+    @Test
+    void testHorspool() {
+        Horspool horspool = new Horspool("needle");
+        assertEquals(14, horspool.find("haystack with needle and needle", 0));
+        assertEquals(25, horspool.find("haystack with needle and needle", 15));
+        assertEquals(-1, horspool.find("haystack with needl", 0));
+        assertEquals(0, horspool.find("needle", 0));
+        assertEquals(-1, horspool.find("needle", 1));
+        // Shares its low byte with 'e'
+        assertEquals(1, new Horspool("ťe").find("xťe", 0));
+        assertEquals(2, new Horspool("aab").find(new StringBuilder("aaaab"), 0));
+    }
+}
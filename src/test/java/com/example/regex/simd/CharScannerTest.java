@@ -0,0 +1,98 @@
+package com.example.regex.simd;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CharScannerTest {
+
+    private static List<CharScanner> scanners() {
+        List<CharScanner> scanners = new ArrayList<>(List.of(CharScanners.scalar()));
+        CharScanners.vector().ifPresent(scanners::add);
+        return scanners;
+    }
+
+    @Test
+    void testVectorScannerIsAvailable() {
+        // The build runs the tests with the incubator module
+        assertTrue(CharScanners.vector().isPresent());
+        assertTrue(CharScanners.best().isVectorized());
+    }
+
+    @Test
+    void testRanges() {
+        BitSet characters = new BitSet();
+        characters.set('a', 'z' + 1);
+        characters.set('_');
+        // Padded with the first range
+        assertArrayEquals(new char[]{'_', '_', 'a', 'z', '_', '_', '_', '_'}, CharScanner.ranges(characters).orElseThrow());
+        assertArrayEquals(new char[]{'"', '"', '"', '"', '"', '"', '"', '"'}, CharScanner.single('"'));
+
+        for (char c : "13579".toCharArray()) {
+            characters.set(c);
+        }
+        assertFalse(CharScanner.ranges(characters).isPresent());
+    }
+
+    @Test
+    void testIndexOfAny() {
+        String input = "  key = \"some value\" " + " ".repeat(300) + "x";
+        char[] quote = CharScanner.single('"');
+        char[] notSpace = {0, ' ' - 1, ' ' + 1, Character.MAX_VALUE};
+        for (CharScanner scanner : scanners()) {
+            assertEquals(8, scanner.indexOfAny(input, 0, input.length(), quote), scanner.toString());
+            assertEquals(19, scanner.indexOfAny(input, 9, input.length(), quote), scanner.toString());
+            assertEquals(-1, scanner.indexOfAny(input, 20, input.length(), quote), scanner.toString());
+            assertEquals(-1, scanner.indexOfAny(input, 0, 8, quote), scanner.toString());
+            assertEquals(input.length() - 1, scanner.indexOfAny(input, 21, input.length(), notSpace), scanner.toString());
+            assertEquals(input.length() - 1,
+                    scanner.indexOfAny(new StringBuilder(input), 21, input.length(), notSpace), scanner.toString());
+        }
+    }
+
+    @Test
+    void testSameResultsAsScalar() {
+        Random random = new Random(42);
+        CharScanner scalar = CharScanners.scalar();
+        for (CharScanner scanner : scanners()) {
+            for (int i = 0; i < 200; i++) {
+                StringBuilder input = new StringBuilder();
+                int length = random.nextInt(2000);
+                for (int j = 0; j < length; j++) {
+                    input.append(random.nextInt(50) == 0 ? (char) random.nextInt(0x3000) : (char) ('a' + random.nextInt(3)));
+                }
+                char[] ranges = {'d', 'f', 0x100, 0x2FFF};
+                int from = length == 0 ? 0 : random.nextInt(length);
+                String string = input.toString();
+                assertEquals(scalar.indexOfAny(string, from, length, ranges),
+                        scanner.indexOfAny(string, from, length, ranges), scanner.toString());
+
+                String literal = string.substring(from, Math.min(length, from + random.nextInt(100)));
+                assertTrue(scanner.regionMatches(string, from, literal), scanner.toString());
+                if (!literal.isEmpty()) {
+                    String changed = literal.substring(0, literal.length() - 1) + '#';
+                    assertFalse(scanner.regionMatches(string, from, changed), scanner.toString());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRegionMatchesBounds() {
+        String literal = "connection refused after retry";
+        for (CharScanner scanner : scanners()) {
+            assertTrue(scanner.regionMatches("ERROR " + literal, 6, literal), scanner.toString());
+            assertFalse(scanner.regionMatches("ERROR " + literal, 7, literal), scanner.toString());
+            assertFalse(scanner.regionMatches(literal, -1, literal), scanner.toString());
+            assertTrue(scanner.regionMatches(literal, literal.length(), ""), scanner.toString());
+        }
+    }
+}
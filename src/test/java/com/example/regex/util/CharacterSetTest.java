@@ -2,6 +2,10 @@ package com.example.regex.util;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -188,4 +192,22 @@ class CharacterSetTest {
         assertFalse(set.contains('A'));
         assertFalse(set.contains('0'));
     }
+
+    @Test
+    void testCharacters() {
+        // Listed from how the sets were made, the same as asking for every character
+        for (CharacterSet set : List.of(CharacterSet.word, CharacterSet.word.inverted(), CharacterSet.symbols,
+                CharacterSet.charactersIn("a_9"), CharacterSet.fromRange(new Range<>('a', 'f')),
+                CharacterSet.empty().union(CharacterSet.fromChar('x')), CharacterSet.empty(),
+                character -> character > 'Ω')) {
+            BitSet expected = new BitSet();
+            for (int character = 0; character <= Character.MAX_VALUE; character++) {
+                if (set.contains((char) character)) {
+                    expected.set(character);
+                }
+            }
+            assertEquals(expected, set.characters());
+        }
+        assertEquals(3, CharacterSet.charactersIn("a_9").characters().cardinality());
+    }
 }